@@ -0,0 +1,230 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.testing.stats.benchmark.valuebox;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.wandrell.tabletop.stats.valuebox.AggregatedValueBox;
+import com.wandrell.tabletop.stats.valuebox.DefaultValueBox;
+import com.wandrell.tabletop.stats.valuebox.ValueBox;
+
+/**
+ * Benchmark for {@link AggregatedValueBox}, measuring how its operations scale
+ * with the number of {@code ValueBox} instances being aggregated.
+ * <p>
+ * The following operations are measured:
+ * <ul>
+ * <li>Adding a new {@code ValueBox} and then removing it.</li>
+ * <li>Removing one of the aggregated {@code ValueBox} instances and then
+ * adding it back.</li>
+ * <li>Updating the aggregated value after one of the {@code ValueBox}
+ * instances changes.</li>
+ * <li>Building a new {@code AggregatedValueBox} from all the values, and then
+ * removing them.</li>
+ * <li>Changing one of the {@code ValueBox} instances without querying the
+ * aggregated value.</li>
+ * </ul>
+ * <p>
+ * All of them are run both with the lazy mode disabled and enabled.
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BenchmarkAggregatedValueBox {
+
+    /**
+     * Number of {@code ValueBox} instances being aggregated.
+     */
+    @Param({ "10", "1000", "100000" })
+    private int                children;
+
+    /**
+     * {@code AggregatedValueBox} being benchmarked.
+     */
+    private AggregatedValueBox aggregated;
+
+    /**
+     * Values to aggregate when building a new {@code AggregatedValueBox}.
+     */
+    private ValueBox[]         boxes;
+
+    /**
+     * Counter used to generate new values.
+     */
+    private int                counter;
+
+    /**
+     * {@code ValueBox} which is not aggregated.
+     */
+    private ValueBox           external;
+
+    /**
+     * Flag indicating if the lazy mode is enabled.
+     */
+    @Param({ "false", "true" })
+    private boolean            lazy;
+
+    /**
+     * Aggregated {@code ValueBox} placed at the middle of the collection by
+     * the setup.
+     * <p>
+     * Removing it and adding it back moves it to the end.
+     */
+    private ValueBox           middle;
+
+    /**
+     * Constructs a {@code BenchmarkAggregatedValueBox}.
+     */
+    public BenchmarkAggregatedValueBox() {
+        super();
+    }
+
+    /**
+     * Sets up the {@code AggregatedValueBox} and its values.
+     */
+    @Setup
+    public final void setup() {
+        aggregated = new AggregatedValueBox();
+
+        // The middle value is added after the first half
+        for (int i = 0; i < children / 2; i++) {
+            aggregated.addValueBox(new DefaultValueBox(1));
+        }
+
+        middle = new DefaultValueBox(1);
+        aggregated.addValueBox(middle);
+
+        for (int i = children / 2 + 1; i < children; i++) {
+            aggregated.addValueBox(new DefaultValueBox(1));
+        }
+
+        aggregated.setLazy(lazy);
+
+        external = new DefaultValueBox(1);
+
+        boxes = new ValueBox[children];
+        for (int i = 0; i < children; i++) {
+            boxes[i] = new DefaultValueBox(1);
+        }
+
+        counter = 0;
+    }
+
+    /**
+     * Adds a {@code ValueBox} which was not being aggregated, and then removes
+     * it.
+     * 
+     * @return the aggregated value, to avoid dead code elimination
+     */
+    @Benchmark
+    public final int addRemoveValueBox() {
+        aggregated.addValueBox(external);
+        aggregated.removeValueBox(external);
+
+        return aggregated.getInt();
+    }
+
+    /**
+     * Builds a new {@code AggregatedValueBox}, adding all the values one by
+     * one, and then removes them.
+     * <p>
+     * The values are removed so they don't keep the listener of each
+     * {@code AggregatedValueBox} built.
+     * 
+     * @return the aggregated value, to avoid dead code elimination
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public final int buildValueBox() {
+        final AggregatedValueBox built;
+        final int value;
+
+        built = new AggregatedValueBox();
+        built.setLazy(lazy);
+
+        for (final ValueBox box : boxes) {
+            built.addValueBox(box);
+        }
+
+        value = built.getInt();
+
+        for (final ValueBox box : boxes) {
+            built.removeValueBox(box);
+        }
+
+        return value;
+    }
+
+    /**
+     * Removes a {@code ValueBox} which is being aggregated, and then adds it
+     * back.
+     * 
+     * @return the aggregated value, to avoid dead code elimination
+     */
+    @Benchmark
+    public final int removeAddValueBox() {
+        aggregated.removeValueBox(middle);
+        aggregated.addValueBox(middle);
+
+        return aggregated.getInt();
+    }
+
+    /**
+     * Changes the value of an aggregated {@code ValueBox}, which updates the
+     * aggregated value.
+     * 
+     * @return the aggregated value, to avoid dead code elimination
+     */
+    @Benchmark
+    public final int updateValue() {
+        counter = (counter + 1) & 0xFF;
+        middle.setInt(counter);
+
+        return aggregated.getInt();
+    }
+
+    /**
+     * Changes one of the aggregated {@code ValueBox} instances, without
+     * querying the aggregated value.
+     * 
+     * @return the value set, to avoid dead code elimination
+     */
+    @Benchmark
+    public final int writeValue() {
+        counter = (counter + 1) & 0xFF;
+        middle.setInt(counter);
+
+        return counter;
+    }
+
+}
@@ -0,0 +1,146 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.testing.stats.benchmark.valuebox;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.wandrell.tabletop.stats.event.IntValueChangeListener;
+import com.wandrell.tabletop.stats.event.ValueChangeEvent;
+import com.wandrell.tabletop.stats.event.ValueChangeListener;
+import com.wandrell.tabletop.stats.valuebox.DefaultValueBox;
+import com.wandrell.tabletop.stats.valuebox.ValueBox;
+
+/**
+ * Benchmark for the event dispatching on
+ * {@link com.wandrell.tabletop.stats.valuebox.AbstractValueBoxEventFirer
+ * AbstractValueBoxEventFirer}.
+ * <p>
+ * Each operation sets a new value, which fires a {@link ValueChangeEvent} to
+ * all the registered listeners. The number of listeners is parameterized, so
+ * the cost of the dispatch loop can be told apart from the cost of the setter.
+ * <p>
+ * The listeners may be either {@link ValueChangeListener} instances, which
+ * receive an event, or {@link IntValueChangeListener} instances, which just
+ * receive the values.
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BenchmarkEventValueBox {
+
+    /**
+     * Number of listeners registered on the {@code ValueBox}.
+     */
+    @Param({ "0", "1", "10" })
+    private int      listeners;
+
+    /**
+     * Flag indicating if the listeners receive the values as primitives.
+     */
+    @Param({ "false", "true" })
+    private boolean  primitive;
+
+    /**
+     * {@code ValueBox} firing the events.
+     */
+    private ValueBox box;
+
+    /**
+     * Counter used to generate new values.
+     */
+    private int      counter;
+
+    /**
+     * Constructs a {@code BenchmarkEventValueBox}.
+     */
+    public BenchmarkEventValueBox() {
+        super();
+    }
+
+    /**
+     * Sets up the {@code ValueBox} and its listeners.
+     * 
+     * @param blackhole
+     *            sink for the events received by the listeners
+     */
+    @Setup
+    public final void setup(final Blackhole blackhole) {
+        box = new DefaultValueBox();
+
+        for (int i = 0; i < listeners; i++) {
+            if (primitive) {
+                box.addIntValueChangeListener(new IntValueChangeListener() {
+
+                    @Override
+                    public final void valueChanged(final ValueBox source,
+                            final int oldValue, final int newValue) {
+                        blackhole.consume(newValue);
+                    }
+
+                });
+            } else {
+                box.addValueChangeListener(new ValueChangeListener() {
+
+                    @Override
+                    public final void valueChanged(
+                            final ValueChangeEvent event) {
+                        blackhole.consume(event.getNewInt());
+                    }
+
+                });
+            }
+        }
+
+        counter = 0;
+    }
+
+    /**
+     * Sets a new value through the boxed setter, firing the event.
+     */
+    @Benchmark
+    public final void setValue() {
+        counter++;
+        box.setValue(counter);
+    }
+
+    /**
+     * Sets a new value through the primitive setter, firing the event.
+     */
+    @Benchmark
+    public final void setInt() {
+        counter++;
+        box.setInt(counter);
+    }
+
+}
@@ -0,0 +1,158 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.testing.stats.benchmark.valuebox;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.wandrell.tabletop.stats.valuebox.AggregatedValueBox;
+import com.wandrell.tabletop.stats.valuebox.DefaultValueBox;
+import com.wandrell.tabletop.stats.valuebox.ValueBox;
+
+/**
+ * Benchmark comparing the boxed and primitive paths for updating a
+ * {@link ValueBox}.
+ * <p>
+ * The values set are kept outside the {@code Integer} cache, so the boxed path
+ * has to allocate a new object on each update. The GC profiler will show the
+ * difference on the bytes allocated per operation.
+ * <p>
+ * Each path is measured on a plain {@code ValueBox}, and on one being
+ * aggregated, so the propagation into the {@link AggregatedValueBox} is
+ * included.
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BenchmarkPrimitiveValueBox {
+
+    /**
+     * Offset keeping the values outside the {@code Integer} cache.
+     */
+    private static final int OFFSET = 1000;
+
+    /**
+     * {@code ValueBox} being aggregated.
+     */
+    private ValueBox         aggregatedBox;
+
+    /**
+     * Counter used to generate new values.
+     */
+    private int              counter;
+
+    /**
+     * {@code ValueBox} with no dependencies.
+     */
+    private ValueBox         plainBox;
+
+    /**
+     * Constructs a {@code BenchmarkPrimitiveValueBox}.
+     */
+    public BenchmarkPrimitiveValueBox() {
+        super();
+    }
+
+    /**
+     * Sets up the {@code ValueBox} instances.
+     */
+    @Setup
+    public final void setup() {
+        plainBox = new DefaultValueBox();
+
+        aggregatedBox = new DefaultValueBox();
+        new AggregatedValueBox(aggregatedBox, new DefaultValueBox(OFFSET));
+
+        counter = 0;
+    }
+
+    /**
+     * Sets a new value, through the boxed setter, into a {@code ValueBox}
+     * being aggregated.
+     * 
+     * @return the value stored, to avoid dead code elimination
+     */
+    @Benchmark
+    public final Integer setValue_Aggregated() {
+        aggregatedBox.setValue(nextValue());
+
+        return aggregatedBox.getValue();
+    }
+
+    /**
+     * Sets a new value, through the boxed setter, into a {@code ValueBox}.
+     * 
+     * @return the value stored, to avoid dead code elimination
+     */
+    @Benchmark
+    public final Integer setValue_Plain() {
+        plainBox.setValue(nextValue());
+
+        return plainBox.getValue();
+    }
+
+    /**
+     * Sets a new value, through the primitive setter, into a {@code ValueBox}
+     * being aggregated.
+     * 
+     * @return the value stored, to avoid dead code elimination
+     */
+    @Benchmark
+    public final int setInt_Aggregated() {
+        aggregatedBox.setInt(nextValue());
+
+        return aggregatedBox.getInt();
+    }
+
+    /**
+     * Sets a new value, through the primitive setter, into a {@code ValueBox}.
+     * 
+     * @return the value stored, to avoid dead code elimination
+     */
+    @Benchmark
+    public final int setInt_Plain() {
+        plainBox.setInt(nextValue());
+
+        return plainBox.getInt();
+    }
+
+    /**
+     * Returns the next value to set.
+     * 
+     * @return the next value to set
+     */
+    private final int nextValue() {
+        counter = (counter + 1) & 0xFFFF;
+
+        return OFFSET + counter;
+    }
+
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.testing.stats.benchmark.valuecontroller;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.wandrell.tabletop.stats.controller.DefaultValueController;
+import com.wandrell.tabletop.stats.controller.ValueController;
+import com.wandrell.tabletop.stats.valuebox.DefaultValueBox;
+import com.wandrell.tabletop.stats.valuebox.ValueBox;
+
+/**
+ * Benchmark for {@link DefaultValueController}.
+ * <p>
+ * Measures increasing a value both when it is inside the interval, and so it
+ * is modified, and when it is at the maximum possible value, where the
+ * overflow check rejects the change.
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BenchmarkDefaultValueController {
+
+    /**
+     * Controller for the value stored at the maximum integer.
+     */
+    private ValueController controllerAtLimit;
+
+    /**
+     * Controller for the value inside the interval.
+     */
+    private ValueController controllerInside;
+
+    /**
+     * Value inside the interval.
+     */
+    private ValueBox        valueInside;
+
+    /**
+     * Constructs a {@code BenchmarkDefaultValueController}.
+     */
+    public BenchmarkDefaultValueController() {
+        super();
+    }
+
+    /**
+     * Sets up the controllers.
+     */
+    @Setup
+    public final void setup() {
+        valueInside = new DefaultValueBox();
+        controllerInside = new DefaultValueController(valueInside);
+
+        controllerAtLimit = new DefaultValueController(
+                new DefaultValueBox(Integer.MAX_VALUE));
+    }
+
+    /**
+     * Moves the value back to the start of the interval, so it never reaches
+     * the limit during an iteration.
+     */
+    @Setup(Level.Iteration)
+    public final void resetValue() {
+        valueInside.setInt(0);
+    }
+
+    /**
+     * Increases the value at the maximum integer, which can't be done.
+     * 
+     * @return {@code false}, to avoid dead code elimination
+     */
+    @Benchmark
+    public final boolean increaseValue_AtLimit() {
+        controllerAtLimit.increaseValue();
+
+        return controllerAtLimit.isAbleToIncrease();
+    }
+
+    /**
+     * Increases the value inside the interval.
+     * 
+     * @return the increased value, to avoid dead code elimination
+     */
+    @Benchmark
+    public final int increaseValue_Inside() {
+        controllerInside.increaseValue();
+
+        return valueInside.getInt();
+    }
+
+}
@@ -0,0 +1,42 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.stats.aggregator;
+
+/**
+ * Abstract implementation of {@link Aggregator}, offering the basic
+ * functionality shared by most of them.
+ * <p>
+ * Replacing a value is done by removing the old one and then adding the new
+ * one.
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public abstract class AbstractAggregator implements Aggregator {
+
+    /**
+     * Default constructor.
+     */
+    public AbstractAggregator() {
+        super();
+    }
+
+    @Override
+    public void replace(final int old, final int value) {
+        remove(old);
+        add(value);
+    }
+
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.stats.aggregator;
+
+/**
+ * Interface for operations combining a group of values into a single one, such
+ * as adding them together or choosing the highest of them.
+ * <p>
+ * The values are not received all at once, instead the {@code Aggregator} is
+ * told each time a value is added, removed or replaced, and it should update
+ * its result without going again through all the values. This way it can be
+ * used by an {@link com.wandrell.tabletop.stats.valuebox.AggregatedValueBox
+ * AggregatedValueBox} to keep its value up to date when any of the
+ * {@code ValueBox} instances it contains changes.
+ * <p>
+ * If the result is too big, or too small, to be stored in an {@code int} then
+ * it should be set to the maximum or minimum integer.
+ * <p>
+ * Each {@code Aggregator} keeps the state of a single group of values, so an
+ * instance should never be shared. {@link #newInstance() newInstance} can be
+ * used to create a new, empty, {@code Aggregator} of the same type.
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public interface Aggregator {
+
+    /**
+     * Adds a value to the group.
+     * 
+     * @param value
+     *            the value to add
+     */
+    public void add(final int value);
+
+    /**
+     * Removes all the values from the group.
+     */
+    public void clear();
+
+    /**
+     * Returns the result of aggregating all the values in the group.
+     * 
+     * @return the aggregated value
+     */
+    public int getResult();
+
+    /**
+     * Creates a new {@code Aggregator} of the same type, which contains no
+     * values.
+     * 
+     * @return a new, empty, {@code Aggregator} of the same type
+     */
+    public Aggregator newInstance();
+
+    /**
+     * Removes a value from the group.
+     * <p>
+     * The value should be one which was previously added.
+     * 
+     * @param value
+     *            the value to remove
+     */
+    public void remove(final int value);
+
+    /**
+     * Replaces a value in the group with a new one.
+     * <p>
+     * The replaced value should be one which was previously added.
+     * 
+     * @param old
+     *            the value to replace
+     * @param value
+     *            the new value
+     */
+    public void replace(final int old, final int value);
+
+}
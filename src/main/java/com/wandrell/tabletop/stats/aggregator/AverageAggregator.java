@@ -0,0 +1,98 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.stats.aggregator;
+
+import com.google.common.base.MoreObjects;
+import com.wandrell.tabletop.stats.valuebox.SaturatedMath;
+
+/**
+ * {@link Aggregator} taking the average of all the values.
+ * <p>
+ * It keeps the sum and the number of values, so the average can be calculated
+ * at any moment. The result is rounded towards zero, and when there are no
+ * values it is zero.
+ * <p>
+ * The average of a group of integers is always inside the integer range, so
+ * this will never overflow.
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class AverageAggregator extends AbstractAggregator {
+
+    /**
+     * Number of values.
+     */
+    private int  count = 0;
+    /**
+     * Sum of all the values.
+     */
+    private long sum   = 0;
+
+    /**
+     * Constructs an {@code AverageAggregator}.
+     */
+    public AverageAggregator() {
+        super();
+    }
+
+    @Override
+    public final void add(final int value) {
+        sum += value;
+        count++;
+    }
+
+    @Override
+    public final void clear() {
+        sum = 0;
+        count = 0;
+    }
+
+    @Override
+    public final int getResult() {
+        final int result;
+
+        if (count == 0) {
+            result = 0;
+        } else {
+            result = SaturatedMath.saturate(sum / count);
+        }
+
+        return result;
+    }
+
+    @Override
+    public final AverageAggregator newInstance() {
+        return new AverageAggregator();
+    }
+
+    @Override
+    public final void remove(final int value) {
+        sum -= value;
+        count--;
+    }
+
+    @Override
+    public final void replace(final int old, final int value) {
+        sum += (long) value - old;
+    }
+
+    @Override
+    public final String toString() {
+        return MoreObjects.toStringHelper(this).add("sum", sum)
+                .add("count", count).toString();
+    }
+
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.stats.aggregator;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.SortedMultiset;
+import com.google.common.collect.TreeMultiset;
+
+/**
+ * {@link Aggregator} choosing the lowest of the values.
+ * <p>
+ * The values are kept sorted, along how many times each of them appears, so
+ * adding, removing and replacing a value, and finding the lowest one, are all
+ * done in logarithmic time.
+ * <p>
+ * When there are no values the result is zero.
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class MinAggregator extends AbstractAggregator {
+
+    /**
+     * All the values, sorted.
+     */
+    private final SortedMultiset<Integer> values = TreeMultiset.create();
+
+    /**
+     * Constructs a {@code MinAggregator}.
+     */
+    public MinAggregator() {
+        super();
+    }
+
+    @Override
+    public final void add(final int value) {
+        values.add(value);
+    }
+
+    @Override
+    public final void clear() {
+        values.clear();
+    }
+
+    @Override
+    public final int getResult() {
+        final int result;
+
+        if (values.isEmpty()) {
+            result = 0;
+        } else {
+            result = values.firstEntry().getElement();
+        }
+
+        return result;
+    }
+
+    @Override
+    public final MinAggregator newInstance() {
+        return new MinAggregator();
+    }
+
+    @Override
+    public final void remove(final int value) {
+        values.remove(value);
+    }
+
+    @Override
+    public final String toString() {
+        return MoreObjects.toStringHelper(this).add("values", values)
+                .toString();
+    }
+
+}
@@ -0,0 +1,200 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.stats.aggregator;
+
+import java.util.Iterator;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Multiset;
+import com.wandrell.tabletop.stats.valuebox.SaturatedMath;
+
+/**
+ * {@link Aggregator} multiplying together all the values.
+ * <p>
+ * Zeros are just counted, as while there is any of them the result will be
+ * zero, and they can't be undone by a division. The sign is taken from the
+ * number of negative values, and the magnitude is the product of the absolute
+ * values, so removing a value just requires dividing by it.
+ * <p>
+ * If the magnitude grows too big to be stored in a {@code long} it is not
+ * kept anymore, and the result is set to the maximum or minimum integer. When
+ * a value is removed in this state, the magnitude is recalculated from the
+ * remaining absolute values, stopping as soon as it overflows again.
+ * <p>
+ * When there are no values the result is one.
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class ProductAggregator extends AbstractAggregator {
+
+    /**
+     * Absolute values greater than one.
+     * <p>
+     * These are used to recalculate the magnitude after it overflows.
+     */
+    private final Multiset<Long> factors   = HashMultiset.create();
+    /**
+     * Product of the absolute values, ignoring the zeros.
+     */
+    private long                 magnitude = 1;
+    /**
+     * Number of negative values.
+     */
+    private int                  negatives = 0;
+    /**
+     * Flag indicating if the magnitude is too big to be stored.
+     */
+    private boolean              overflow  = false;
+    /**
+     * Number of zeros.
+     */
+    private int                  zeros     = 0;
+
+    /**
+     * Constructs a {@code ProductAggregator}.
+     */
+    public ProductAggregator() {
+        super();
+    }
+
+    @Override
+    public final void add(final int value) {
+        final long factor; // Absolute value
+
+        if (value == 0) {
+            zeros++;
+        } else {
+            if (value < 0) {
+                negatives++;
+            }
+
+            factor = Math.abs((long) value);
+            if (factor > 1) {
+                factors.add(factor);
+                if (!overflow) {
+                    multiply(factor);
+                }
+            }
+        }
+    }
+
+    @Override
+    public final void clear() {
+        factors.clear();
+        magnitude = 1;
+        negatives = 0;
+        overflow = false;
+        zeros = 0;
+    }
+
+    @Override
+    public final int getResult() {
+        final int result;
+
+        if (zeros > 0) {
+            result = 0;
+        } else if ((negatives % 2) == 0) {
+            if (overflow) {
+                result = Integer.MAX_VALUE;
+            } else {
+                result = SaturatedMath.saturate(magnitude);
+            }
+        } else {
+            if (overflow) {
+                result = Integer.MIN_VALUE;
+            } else {
+                result = SaturatedMath.saturate(0 - magnitude);
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public final ProductAggregator newInstance() {
+        return new ProductAggregator();
+    }
+
+    @Override
+    public final void remove(final int value) {
+        final long factor; // Absolute value
+
+        if (value == 0) {
+            zeros--;
+        } else {
+            if (value < 0) {
+                negatives--;
+            }
+
+            factor = Math.abs((long) value);
+            if (factor > 1) {
+                factors.remove(factor);
+                if (overflow) {
+                    recalculate();
+                } else {
+                    magnitude /= factor;
+                }
+            }
+        }
+    }
+
+    @Override
+    public final String toString() {
+        return MoreObjects.toStringHelper(this).add("zeros", zeros)
+                .add("negatives", negatives).add("factors", factors)
+                .toString();
+    }
+
+    /**
+     * Multiplies the magnitude by the received factor.
+     * <p>
+     * If the result would overflow, then the magnitude is marked as too big.
+     * 
+     * @param factor
+     *            the value to multiply the magnitude by
+     */
+    private final void multiply(final long factor) {
+        if (magnitude > (Long.MAX_VALUE / factor)) {
+            overflow = true;
+        } else {
+            magnitude *= factor;
+        }
+    }
+
+    /**
+     * Recalculates the magnitude from the stored factors.
+     * <p>
+     * As all of the factors are greater than one, the magnitude will overflow
+     * after a few multiplications, so this stops as soon as that happens.
+     */
+    private final void recalculate() {
+        final Iterator<Multiset.Entry<Long>> itr; // Factors iterator
+        Multiset.Entry<Long> entry;               // Iterated factor
+
+        magnitude = 1;
+        overflow = false;
+
+        itr = factors.entrySet().iterator();
+        while ((itr.hasNext()) && (!overflow)) {
+            entry = itr.next();
+            for (int i = 0; (i < entry.getCount()) && (!overflow); i++) {
+                multiply(entry.getElement());
+            }
+        }
+    }
+
+}
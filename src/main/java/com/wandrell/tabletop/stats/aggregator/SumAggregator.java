@@ -0,0 +1,82 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.stats.aggregator;
+
+import com.google.common.base.MoreObjects;
+import com.wandrell.tabletop.stats.valuebox.SaturatedMath;
+
+/**
+ * {@link Aggregator} adding together all the values.
+ * <p>
+ * The sum is kept in a {@code long}, which won't overflow for any number of
+ * values which could be stored. The result is fitted into the integer range
+ * only when queried, so if the sum goes over the limits and then comes back
+ * the result will still be correct.
+ * <p>
+ * When there are no values the result is zero.
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class SumAggregator extends AbstractAggregator {
+
+    /**
+     * Sum of all the values.
+     */
+    private long sum = 0;
+
+    /**
+     * Constructs a {@code SumAggregator}.
+     */
+    public SumAggregator() {
+        super();
+    }
+
+    @Override
+    public final void add(final int value) {
+        sum += value;
+    }
+
+    @Override
+    public final void clear() {
+        sum = 0;
+    }
+
+    @Override
+    public final int getResult() {
+        return SaturatedMath.saturate(sum);
+    }
+
+    @Override
+    public final SumAggregator newInstance() {
+        return new SumAggregator();
+    }
+
+    @Override
+    public final void remove(final int value) {
+        sum -= value;
+    }
+
+    @Override
+    public final void replace(final int old, final int value) {
+        sum += (long) value - old;
+    }
+
+    @Override
+    public final String toString() {
+        return MoreObjects.toStringHelper(this).add("sum", sum).toString();
+    }
+
+}
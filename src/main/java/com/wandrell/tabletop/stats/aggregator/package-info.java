@@ -0,0 +1,32 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+/**
+ * Provides the operations used to combine a group of values into a single one.
+ * <p>
+ * These are implementations of
+ * {@link com.wandrell.tabletop.stats.aggregator.Aggregator Aggregator}, which
+ * are meant to be used by an
+ * {@link com.wandrell.tabletop.stats.valuebox.AggregatedValueBox
+ * AggregatedValueBox}. They are told each time a value is added, removed or
+ * changed, and update their result without going through all the values
+ * again.
+ * <p>
+ * The sum, average, lowest, highest and product of the values are supported,
+ * and new operations can be created by extending
+ * {@link com.wandrell.tabletop.stats.aggregator.AbstractAggregator
+ * AbstractAggregator}.
+ */
+package com.wandrell.tabletop.stats.aggregator;
@@ -0,0 +1,618 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.stats.controller;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collection;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import com.google.common.base.MoreObjects;
+import com.wandrell.tabletop.stats.event.IntValueChangeListener;
+import com.wandrell.tabletop.stats.valuebox.AbstractValueBoxEventFirer;
+import com.wandrell.tabletop.stats.valuebox.ValueBox;
+
+/**
+ * Controller whose limits may be taken from other {@code ValueBox} instances.
+ * <p>
+ * This allows rules such as a skill not going above its governing attribute,
+ * or the current health not going above the maximum health, where the limit
+ * is itself a value which may change. Constant limits can still be set with
+ * {@link #setInterval(Integer, Integer) setInterval}.
+ * <p>
+ * The answers to {@link #isAbleToIncrease() isAbleToIncrease} and
+ * {@link #isAbleToDecrease() isAbleToDecrease}, and the changes, are always
+ * checked against the current value and limits. So they are right even inside
+ * a {@code ValueBoxBatch}, where the events are held back.
+ * <p>
+ * For views polling many controllers, the controller listens to the handled
+ * value and to the limits, and keeps flags updated with each change. These are
+ * returned as primitives by {@link #canIncrease() canIncrease} and
+ * {@link #canDecrease() canDecrease}, without reading any value. The changes
+ * made by the controller update them at once, but other changes held back by
+ * a {@code ValueBoxBatch} reach them only once it is committed.
+ * <p>
+ * Instead of polling, a {@link CapabilityListener} can be added, which will
+ * be called only when one of the flags changes.
+ * <p>
+ * Optionally, when a limit changes the handled value can be clamped to it.
+ * <p>
+ * The listeners are registered weakly when possible, so long-lived values
+ * used as limits won't keep the controller from being garbage collected.
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class BoundValueController implements ValueController {
+
+    /**
+     * Flag indicating if the value can be decreased.
+     * <p>
+     * It is updated with each change received, and with each change made by
+     * this controller.
+     */
+    private boolean                              ableToDecrease      = false;
+    /**
+     * Flag indicating if the value can be increased.
+     * <p>
+     * It is updated with each change received, and with each change made by
+     * this controller.
+     */
+    private boolean                              ableToIncrease      = false;
+    /**
+     * Listeners for the changes on the flags.
+     * <p>
+     * It is iterated over a snapshot, so the listeners can add or remove
+     * listeners, or change the value, while being called.
+     */
+    private final Collection<CapabilityListener> capabilityListeners = new CopyOnWriteArraySet<CapabilityListener>();
+    /**
+     * The step marking the change to be applied on the value.
+     */
+    private int                                  changeStep          = 1;
+    /**
+     * Flag indicating if the value is clamped when a limit changes.
+     */
+    private boolean                              clamping            = false;
+    /**
+     * The {@code ValueBox} to be handled.
+     */
+    private ValueBox                             handledValue        = null;
+    /**
+     * History where the changes are recorded.
+     * <p>
+     * If it is {@code null} then no change is recorded.
+     */
+    private ValueHistory                         history             = null;
+    /**
+     * Minimum allowed value.
+     * <p>
+     * If the limit is a {@code ValueBox}, this is its latest value.
+     */
+    private int                                  limitLower          = Integer.MIN_VALUE;
+    /**
+     * Maximum allowed value.
+     * <p>
+     * If the limit is a {@code ValueBox}, this is its latest value.
+     */
+    private int                                  limitUpper          = Integer.MAX_VALUE;
+    /**
+     * The listener to be added into the limits.
+     */
+    private final IntValueChangeListener         listenerLimit;
+    /**
+     * The listener to be added into the handled value.
+     */
+    private final IntValueChangeListener         listenerValue;
+    /**
+     * {@code ValueBox} with the minimum allowed value.
+     * <p>
+     * If it is {@code null}, the limit is constant.
+     */
+    private ValueBox                             lowerBox            = null;
+    /**
+     * {@code ValueBox} with the maximum allowed value.
+     * <p>
+     * If it is {@code null}, the limit is constant.
+     */
+    private ValueBox                             upperBox            = null;
+
+    {
+        // The IntValueChangeListeners are initialized
+        // The first one rereads the limits, the second one checks the value
+        listenerLimit = new IntValueChangeListener() {
+
+            @Override
+            public void valueChanged(final ValueBox source, final int oldValue,
+                    final int newValue) {
+                updateLimits();
+            }
+
+        };
+        listenerValue = new IntValueChangeListener() {
+
+            @Override
+            public void valueChanged(final ValueBox source, final int oldValue,
+                    final int newValue) {
+                updateFlags();
+            }
+
+        };
+    }
+
+    /**
+     * Constructs a {@code BoundValueController} with no {@code ValueBox} and
+     * no limits.
+     */
+    public BoundValueController() {
+        super();
+    }
+
+    /**
+     * Constructs a {@code BoundValueController} with the specified
+     * {@code ValueBox} and no limits.
+     * 
+     * @param value
+     *            the {@code ValueBox} to control
+     */
+    public BoundValueController(final ValueBox value) {
+        this();
+
+        setValueBox(value);
+    }
+
+    /**
+     * Constructs a {@code BoundValueController} with the specified
+     * {@code ValueBox} and limits.
+     * 
+     * @param value
+     *            the {@code ValueBox} to control
+     * @param lowerLimit
+     *            {@code ValueBox} with the minimum allowed value
+     * @param upperLimit
+     *            {@code ValueBox} with the maximum allowed value
+     */
+    public BoundValueController(final ValueBox value,
+            final ValueBox lowerLimit, final ValueBox upperLimit) {
+        this();
+
+        setValueBox(value);
+        setInterval(lowerLimit, upperLimit);
+    }
+
+    /**
+     * Adds a listener which will be called when the flags change.
+     * 
+     * @param listener
+     *            the listener to add
+     */
+    public final void addCapabilityListener(final CapabilityListener listener) {
+        checkNotNull(listener, "Received a null pointer as listener");
+
+        capabilityListeners.add(listener);
+    }
+
+    /**
+     * Indicates if the value can be decreased.
+     * <p>
+     * This returns the flag kept updated by the controller, and so it is as
+     * cheap as possible. Inside a {@code ValueBoxBatch} it may not reflect
+     * the changes made without this controller, which
+     * {@link #isAbleToDecrease() isAbleToDecrease} does.
+     * 
+     * @return {@code true} if the value can be decreased, {@code false}
+     *         otherwise
+     */
+    public final boolean canDecrease() {
+        return ableToDecrease;
+    }
+
+    /**
+     * Indicates if the value can be increased.
+     * <p>
+     * This returns the flag kept updated by the controller, and so it is as
+     * cheap as possible. Inside a {@code ValueBoxBatch} it may not reflect
+     * the changes made without this controller, which
+     * {@link #isAbleToIncrease() isAbleToIncrease} does.
+     * 
+     * @return {@code true} if the value can be increased, {@code false}
+     *         otherwise
+     */
+    public final boolean canIncrease() {
+        return ableToIncrease;
+    }
+
+    @Override
+    public final void decreaseValue() {
+        if (isDecreasable()) {
+            setValue(handledValue.getInt() - changeStep);
+        }
+    }
+
+    /**
+     * Returns the history where the changes are recorded.
+     * 
+     * @return the history where the changes are recorded, or {@code null} if
+     *         they are not recorded
+     */
+    public final ValueHistory getHistory() {
+        return history;
+    }
+
+    @Override
+    public final Integer getLowerLimit() {
+        return readLowerLimit();
+    }
+
+    /**
+     * Returns the step for the value modifications.
+     * 
+     * @return the modification step
+     */
+    public final int getStep() {
+        return changeStep;
+    }
+
+    @Override
+    public final Integer getUpperLimit() {
+        return readUpperLimit();
+    }
+
+    @Override
+    public final void increaseValue() {
+        if (isIncreasable()) {
+            setValue(handledValue.getInt() + changeStep);
+        }
+    }
+
+    @Override
+    public final Boolean isAbleToDecrease() {
+        return isDecreasable();
+    }
+
+    @Override
+    public final Boolean isAbleToIncrease() {
+        return isIncreasable();
+    }
+
+    /**
+     * Indicates if the value is clamped when a limit changes.
+     * 
+     * @return {@code true} if the value is clamped, {@code false} otherwise
+     */
+    public final boolean isClamping() {
+        return clamping;
+    }
+
+    /**
+     * Removes a listener for the changes on the flags.
+     * 
+     * @param listener
+     *            the listener to remove
+     */
+    public final void removeCapabilityListener(
+            final CapabilityListener listener) {
+        capabilityListeners.remove(listener);
+    }
+
+    /**
+     * Sets if the value is clamped when a limit changes.
+     * <p>
+     * If enabled, when a limit changes and the value is left out of the
+     * interval, then it is set to the nearest limit. If the limits cross each
+     * other, the lower one is used.
+     * 
+     * @param clamping
+     *            {@code true} to clamp the value, {@code false} otherwise
+     */
+    public final void setClamping(final boolean clamping) {
+        this.clamping = clamping;
+    }
+
+    /**
+     * Sets the history where the changes will be recorded.
+     * <p>
+     * The same history may be shared by several controllers. If it is
+     * {@code null}, then the changes won't be recorded.
+     * 
+     * @param history
+     *            the history where the changes will be recorded
+     */
+    public final void setHistory(final ValueHistory history) {
+        this.history = history;
+    }
+
+    /**
+     * Sets constant limits, replacing any {@code ValueBox} used as limit.
+     * 
+     * @param lowerLimit
+     *            minimum allowed value
+     * @param upperLimit
+     *            maximum allowed value
+     */
+    @Override
+    public final void setInterval(final Integer lowerLimit,
+            final Integer upperLimit) {
+        checkNotNull(lowerLimit, "Received a null pointer as lower limit");
+        checkNotNull(upperLimit, "Received a null pointer as upper limit");
+
+        checkArgument(lowerLimit <= upperLimit,
+                "The lower limit should be lower or equal to the upper limit");
+
+        unlinkLimits();
+
+        limitLower = lowerLimit;
+        limitUpper = upperLimit;
+
+        applyLimits();
+    }
+
+    /**
+     * Sets the {@code ValueBox} instances whose values are the limits.
+     * <p>
+     * The limits will follow any change on them.
+     * 
+     * @param lowerLimit
+     *            {@code ValueBox} with the minimum allowed value
+     * @param upperLimit
+     *            {@code ValueBox} with the maximum allowed value
+     */
+    public final void setInterval(final ValueBox lowerLimit,
+            final ValueBox upperLimit) {
+        checkNotNull(lowerLimit, "Received a null pointer as lower limit");
+        checkNotNull(upperLimit, "Received a null pointer as upper limit");
+
+        unlinkLimits();
+
+        lowerBox = lowerLimit;
+        upperBox = upperLimit;
+        link(lowerBox, listenerLimit);
+        link(upperBox, listenerLimit);
+
+        updateLimits();
+    }
+
+    /**
+     * Sets the step for the value modifications.
+     * 
+     * @param step
+     *            the modification step, which should be positive
+     */
+    public final void setStep(final int step) {
+        checkArgument(step > 0, "The step should be positive");
+
+        changeStep = step;
+
+        updateFlags();
+    }
+
+    @Override
+    public final void setValueBox(final ValueBox value) {
+        checkNotNull(value, "Received a null pointer as value");
+
+        if (handledValue != null) {
+            handledValue.removeIntValueChangeListener(listenerValue);
+        }
+
+        handledValue = value;
+        link(handledValue, listenerValue);
+
+        updateFlags();
+    }
+
+    @Override
+    public final String toString() {
+        return MoreObjects.toStringHelper(this).add("value", handledValue)
+                .add("lower", limitLower).add("upper", limitUpper)
+                .toString();
+    }
+
+    /**
+     * Clamps the value into the limits, if needed, and updates the flags.
+     */
+    private final void applyLimits() {
+        final int value;
+
+        if ((clamping) && (handledValue != null)) {
+            value = Math.max(limitLower,
+                    Math.min(limitUpper, handledValue.getInt()));
+            if (value != handledValue.getInt()) {
+                setValue(value);
+            }
+        }
+
+        updateFlags();
+    }
+
+    /**
+     * Indicates if the current value can be decreased, checking it against
+     * the current lower limit.
+     * <p>
+     * The step is subtracted as a {@code long}, so it never overflows.
+     * 
+     * @return {@code true} if the value can be decreased, {@code false}
+     *         otherwise
+     */
+    private final boolean isDecreasable() {
+        final boolean result;
+
+        if (handledValue == null) {
+            result = false;
+        } else {
+            result = ((long) handledValue.getInt() - changeStep)
+                    >= readLowerLimit();
+        }
+
+        return result;
+    }
+
+    /**
+     * Indicates if the current value can be increased, checking it against
+     * the current upper limit.
+     * <p>
+     * The step is added as a {@code long}, so it never overflows.
+     * 
+     * @return {@code true} if the value can be increased, {@code false}
+     *         otherwise
+     */
+    private final boolean isIncreasable() {
+        final boolean result;
+
+        if (handledValue == null) {
+            result = false;
+        } else {
+            result = ((long) handledValue.getInt() + changeStep)
+                    <= readUpperLimit();
+        }
+
+        return result;
+    }
+
+    /**
+     * Adds the listener to the received {@code ValueBox}, weakly if
+     * possible.
+     * 
+     * @param box
+     *            the {@code ValueBox} to listen to
+     * @param listener
+     *            the listener to add
+     */
+    private final void link(final ValueBox box,
+            final IntValueChangeListener listener) {
+        if (box instanceof AbstractValueBoxEventFirer) {
+            ((AbstractValueBoxEventFirer) box)
+                    .addWeakIntValueChangeListener(listener);
+        } else {
+            box.addIntValueChangeListener(listener);
+        }
+    }
+
+    /**
+     * Returns the current minimum allowed value.
+     * <p>
+     * If the limit is a {@code ValueBox}, it is read from it, as its events
+     * may be held back.
+     * 
+     * @return the current minimum allowed value
+     */
+    private final int readLowerLimit() {
+        final int result;
+
+        if (lowerBox == null) {
+            result = limitLower;
+        } else {
+            result = lowerBox.getInt();
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the current maximum allowed value.
+     * <p>
+     * If the limit is a {@code ValueBox}, it is read from it, as its events
+     * may be held back.
+     * 
+     * @return the current maximum allowed value
+     */
+    private final int readUpperLimit() {
+        final int result;
+
+        if (upperBox == null) {
+            result = limitUpper;
+        } else {
+            result = upperBox.getInt();
+        }
+
+        return result;
+    }
+
+    /**
+     * Sets the value into the handled {@code ValueBox}, recording the change
+     * if there is a history.
+     * <p>
+     * The flags are updated at once, as the events may be held back.
+     * 
+     * @param value
+     *            the new value
+     */
+    private final void setValue(final int value) {
+        final ValueBox box;
+        final int old;
+
+        box = handledValue;
+        old = box.getInt();
+        box.setInt(value);
+
+        if ((history != null) && (old != value)) {
+            history.record(box, value - old);
+        }
+
+        updateFlags();
+    }
+
+    /**
+     * Removes the listener from the {@code ValueBox} instances used as limits.
+     */
+    private final void unlinkLimits() {
+        if (lowerBox != null) {
+            lowerBox.removeIntValueChangeListener(listenerLimit);
+        }
+        if (upperBox != null) {
+            upperBox.removeIntValueChangeListener(listenerLimit);
+        }
+
+        lowerBox = null;
+        upperBox = null;
+    }
+
+    /**
+     * Updates the flags indicating if the value can be increased or
+     * decreased.
+     * <p>
+     * The listeners are called only if any of the flags changes. Those
+     * added or removed while calling them won't be taken into account until
+     * the next change.
+     */
+    private final void updateFlags() {
+        final boolean increase;
+        final boolean decrease;
+
+        increase = ableToIncrease;
+        decrease = ableToDecrease;
+
+        ableToIncrease = isIncreasable();
+        ableToDecrease = isDecreasable();
+
+        if ((increase != ableToIncrease) || (decrease != ableToDecrease)) {
+            for (final CapabilityListener listener : capabilityListeners) {
+                listener.capabilityChanged(this, ableToIncrease,
+                        ableToDecrease);
+            }
+        }
+    }
+
+    /**
+     * Reads the limits from their {@code ValueBox} instances.
+     */
+    private final void updateLimits() {
+        limitLower = lowerBox.getInt();
+        limitUpper = upperBox.getInt();
+
+        applyLimits();
+    }
+
+}
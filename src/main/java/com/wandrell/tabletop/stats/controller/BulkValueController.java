@@ -0,0 +1,452 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.stats.controller;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import com.google.common.base.MoreObjects;
+import com.wandrell.tabletop.stats.valuebox.ValueBox;
+import com.wandrell.tabletop.stats.valuebox.ValueBoxBatch;
+
+/**
+ * Controller applying the same change to many values in a single call.
+ * <p>
+ * It works like the {@link DefaultValueController}, increasing or decreasing
+ * the values by a step while keeping them inside an interval, but over a whole
+ * array of {@code ValueBox} instances, or over values stored directly in an
+ * {@code int} array. So there is no need for a controller for each value.
+ * <p>
+ * The limits are checked in a loop over the primitive values, which does
+ * nothing else, and then only the values which can be changed are modified.
+ * Each call returns a {@code BitSet} with the positions of the values which
+ * were, or could be, changed.
+ * <p>
+ * A value is changed only if the result stays inside the limits, without
+ * overflowing. The changes to {@code ValueBox} instances are made inside a
+ * {@link ValueBoxBatch}, and recorded as a single group if there is a
+ * {@link ValueHistory}.
+ * <p>
+ * The same {@code ValueBox} can't be received twice in a call, as it would be
+ * changed once but recorded twice, and so an {@code IllegalArgumentException}
+ * is thrown in that case.
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class BulkValueController {
+
+    /**
+     * The step marking the change to be applied on the values.
+     */
+    private int          changeStep = 1;
+    /**
+     * History where the changes to {@code ValueBox} instances are recorded.
+     * <p>
+     * If it is {@code null} then no change is recorded.
+     */
+    private ValueHistory history    = null;
+    /**
+     * Minimum allowed value.
+     */
+    private int          limitLower = Integer.MIN_VALUE;
+    /**
+     * Maximum allowed value.
+     */
+    private int          limitUpper = Integer.MAX_VALUE;
+
+    /**
+     * Constructs a {@code BulkValueController} with no limits.
+     */
+    public BulkValueController() {
+        super();
+    }
+
+    /**
+     * Constructs a {@code BulkValueController} with the specified limits.
+     * 
+     * @param lowerLimit
+     *            minimum allowed value
+     * @param upperLimit
+     *            maximum allowed value
+     */
+    public BulkValueController(final int lowerLimit, final int upperLimit) {
+        this();
+
+        setInterval(lowerLimit, upperLimit);
+    }
+
+    /**
+     * Decreases all the values which can be decreased.
+     * 
+     * @param values
+     *            the values to decrease
+     * @return the positions of the values decreased
+     */
+    public final BitSet decreaseValues(final int[] values) {
+        return apply(values, findDecreasable(values), -getStep());
+    }
+
+    /**
+     * Decreases all the {@code ValueBox} instances which can be decreased.
+     * 
+     * @param boxes
+     *            the {@code ValueBox} instances to decrease
+     * @return the positions of the {@code ValueBox} instances decreased
+     */
+    public final BitSet decreaseValues(final ValueBox... boxes) {
+        final int[] values;
+
+        values = getValues(boxes);
+
+        return apply(boxes, values, findDecreasable(values), -getStep());
+    }
+
+    /**
+     * Returns the history where the changes to {@code ValueBox} instances are
+     * recorded.
+     * 
+     * @return the history where the changes are recorded, or {@code null} if
+     *         they are not recorded
+     */
+    public final ValueHistory getHistory() {
+        return history;
+    }
+
+    /**
+     * Returns the minimum allowed value.
+     * 
+     * @return the minimum allowed value
+     */
+    public final int getLowerLimit() {
+        return limitLower;
+    }
+
+    /**
+     * Returns the step for the value modifications.
+     * 
+     * @return the modification step
+     */
+    public final int getStep() {
+        return changeStep;
+    }
+
+    /**
+     * Returns the maximum allowed value.
+     * 
+     * @return the maximum allowed value
+     */
+    public final int getUpperLimit() {
+        return limitUpper;
+    }
+
+    /**
+     * Increases all the values which can be increased.
+     * 
+     * @param values
+     *            the values to increase
+     * @return the positions of the values increased
+     */
+    public final BitSet increaseValues(final int[] values) {
+        return apply(values, findIncreasable(values), getStep());
+    }
+
+    /**
+     * Increases all the {@code ValueBox} instances which can be increased.
+     * 
+     * @param boxes
+     *            the {@code ValueBox} instances to increase
+     * @return the positions of the {@code ValueBox} instances increased
+     */
+    public final BitSet increaseValues(final ValueBox... boxes) {
+        final int[] values;
+
+        values = getValues(boxes);
+
+        return apply(boxes, values, findIncreasable(values), getStep());
+    }
+
+    /**
+     * Returns the positions of the values which can be decreased.
+     * 
+     * @param values
+     *            the values to check
+     * @return the positions of the values which can be decreased
+     */
+    public final BitSet isAbleToDecrease(final int[] values) {
+        return findDecreasable(values);
+    }
+
+    /**
+     * Returns the positions of the {@code ValueBox} instances which can be
+     * decreased.
+     * 
+     * @param boxes
+     *            the {@code ValueBox} instances to check
+     * @return the positions of the {@code ValueBox} instances which can be
+     *         decreased
+     */
+    public final BitSet isAbleToDecrease(final ValueBox... boxes) {
+        return findDecreasable(getValues(boxes));
+    }
+
+    /**
+     * Returns the positions of the values which can be increased.
+     * 
+     * @param values
+     *            the values to check
+     * @return the positions of the values which can be increased
+     */
+    public final BitSet isAbleToIncrease(final int[] values) {
+        return findIncreasable(values);
+    }
+
+    /**
+     * Returns the positions of the {@code ValueBox} instances which can be
+     * increased.
+     * 
+     * @param boxes
+     *            the {@code ValueBox} instances to check
+     * @return the positions of the {@code ValueBox} instances which can be
+     *         increased
+     */
+    public final BitSet isAbleToIncrease(final ValueBox... boxes) {
+        return findIncreasable(getValues(boxes));
+    }
+
+    /**
+     * Sets the history where the changes to {@code ValueBox} instances will be
+     * recorded.
+     * <p>
+     * The same history may be shared with other controllers. If it is
+     * {@code null}, then the changes won't be recorded.
+     * 
+     * @param history
+     *            the history where the changes will be recorded
+     */
+    public final void setHistory(final ValueHistory history) {
+        this.history = history;
+    }
+
+    /**
+     * Sets the interval in which the values can move.
+     * 
+     * @param lowerLimit
+     *            minimum allowed value
+     * @param upperLimit
+     *            maximum allowed value
+     */
+    public final void setInterval(final int lowerLimit, final int upperLimit) {
+        checkArgument(lowerLimit <= upperLimit,
+                "The lower limit should be lower or equal to the upper limit");
+
+        limitLower = lowerLimit;
+        limitUpper = upperLimit;
+    }
+
+    /**
+     * Sets the step for the value modifications.
+     * 
+     * @param step
+     *            the modification step, which should be positive
+     */
+    public final void setStep(final int step) {
+        checkArgument(step > 0, "The step should be positive");
+
+        changeStep = step;
+    }
+
+    @Override
+    public final String toString() {
+        return MoreObjects.toStringHelper(this).add("lower", limitLower)
+                .add("upper", limitUpper).add("step", changeStep)
+                .toString();
+    }
+
+    /**
+     * Adds the delta to the values in the received positions.
+     * 
+     * @param values
+     *            the values to modify
+     * @param positions
+     *            the positions to modify
+     * @param delta
+     *            the amount to add
+     * @return the modified positions
+     */
+    private final BitSet apply(final int[] values, final BitSet positions,
+            final int delta) {
+        for (int i = positions.nextSetBit(0); i >= 0; i = positions
+                .nextSetBit(i + 1)) {
+            values[i] += delta;
+        }
+
+        return positions;
+    }
+
+    /**
+     * Sets the values, plus the delta, into the {@code ValueBox} instances in
+     * the received positions.
+     * <p>
+     * This is done inside a {@code ValueBoxBatch}, and the changes are
+     * recorded as a single group if there is a history.
+     * 
+     * @param boxes
+     *            the {@code ValueBox} instances to modify
+     * @param values
+     *            the current values of the {@code ValueBox} instances
+     * @param positions
+     *            the positions to modify
+     * @param delta
+     *            the amount to add
+     * @return the modified positions
+     */
+    private final BitSet apply(final ValueBox[] boxes, final int[] values,
+            final BitSet positions, final int delta) {
+        final ValueHistory recorded;
+
+        recorded = history;
+        if ((recorded != null) && (!positions.isEmpty())) {
+            recorded.beginGroup();
+        }
+        try (ValueBoxBatch batch = ValueBoxBatch.open()) {
+            for (int i = positions.nextSetBit(0); i >= 0; i = positions
+                    .nextSetBit(i + 1)) {
+                boxes[i].setInt(values[i] + delta);
+                if (recorded != null) {
+                    recorded.record(boxes[i], delta);
+                }
+            }
+        } finally {
+            if ((recorded != null) && (!positions.isEmpty())) {
+                recorded.endGroup();
+            }
+        }
+
+        return positions;
+    }
+
+    /**
+     * Returns the positions of the values which can be decreased.
+     * 
+     * @param values
+     *            the values to check
+     * @return the positions of the values which can be decreased
+     */
+    private final BitSet findDecreasable(final int[] values) {
+        final BitSet result;
+
+        checkNotNull(values, "Received a null pointer as values");
+
+        // Decreasing is allowed from the lower limit plus the step
+        if ((long) limitLower + getStep() > Integer.MAX_VALUE) {
+            result = new BitSet();
+        } else {
+            result = findInside(values, limitLower + getStep(),
+                    Integer.MAX_VALUE);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the positions of the values which can be increased.
+     * 
+     * @param values
+     *            the values to check
+     * @return the positions of the values which can be increased
+     */
+    private final BitSet findIncreasable(final int[] values) {
+        final BitSet result;
+
+        checkNotNull(values, "Received a null pointer as values");
+
+        // Increasing is allowed up to the upper limit minus the step
+        if ((long) limitUpper - getStep() < Integer.MIN_VALUE) {
+            result = new BitSet();
+        } else {
+            result = findInside(values, Integer.MIN_VALUE, limitUpper
+                    - getStep());
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the positions of the values inside the received interval.
+     * <p>
+     * This is the loop checking the limits, and so it just compares the
+     * primitive values, building the result a word at a time.
+     * 
+     * @param values
+     *            the values to check
+     * @param lowest
+     *            the lowest value accepted
+     * @param highest
+     *            the highest value accepted
+     * @return the positions of the values inside the interval
+     */
+    private final BitSet findInside(final int[] values, final int lowest,
+            final int highest) {
+        final long[] words;
+        int value;
+
+        words = new long[(values.length + 63) >>> 6];
+        for (int i = 0; i < values.length; i++) {
+            value = values[i];
+            if ((value >= lowest) && (value <= highest)) {
+                words[i >>> 6] |= 1L << i;
+            }
+        }
+
+        return BitSet.valueOf(words);
+    }
+
+    /**
+     * Reads the current values of the received {@code ValueBox} instances.
+     * <p>
+     * Each instance should be received only once.
+     * 
+     * @param boxes
+     *            the {@code ValueBox} instances to read
+     * @return the values of the {@code ValueBox} instances
+     */
+    private final int[] getValues(final ValueBox[] boxes) {
+        final int[] values;
+        final Set<ValueBox> received;
+
+        checkNotNull(boxes, "Received a null pointer as values");
+
+        values = new int[boxes.length];
+        received = Collections
+                .newSetFromMap(new IdentityHashMap<ValueBox, Boolean>());
+        for (int i = 0; i < boxes.length; i++) {
+            checkNotNull(boxes[i],
+                    "Received a null pointer as one of the values");
+            checkArgument(received.add(boxes[i]),
+                    "The same value was received more than once");
+
+            values[i] = boxes[i].getInt();
+        }
+
+        return values;
+    }
+
+}
@@ -0,0 +1,45 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.stats.controller;
+
+import java.util.EventListener;
+
+/**
+ * Listener reacting when a controller becomes able or unable to increase or
+ * decrease its value.
+ * <p>
+ * It is called only when one of the flags changes, so a view can enable or
+ * disable its buttons without polling the controller.
+ * 
+ * @author Bernardo Martínez Garrido
+ * @see BoundValueController
+ */
+public interface CapabilityListener extends EventListener {
+
+    /**
+     * One of the flags of the controller has changed.
+     * 
+     * @param source
+     *            the controller whose flags changed
+     * @param ableToIncrease
+     *            if the value can now be increased
+     * @param ableToDecrease
+     *            if the value can now be decreased
+     */
+    public void capabilityChanged(final ValueController source,
+            final boolean ableToIncrease, final boolean ableToDecrease);
+
+}
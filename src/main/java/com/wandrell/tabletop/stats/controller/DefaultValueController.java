@@ -18,7 +18,7 @@ package com.wandrell.tabletop.stats.controller;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
-import com.google.common.math.IntMath;
+import com.wandrell.tabletop.stats.valuebox.SaturatedMath;
 import com.wandrell.tabletop.stats.valuebox.ValueBox;
 
 /**
@@ -26,6 +26,14 @@ import com.wandrell.tabletop.stats.valuebox.ValueBox;
  * <p>
  * If the default constructor is used, all the boolean query methods will return
  * false, and the modifier methods will do nothing.
+ * <p>
+ * The value is increased and decreased by a step, which is one by default, or
+ * by any amount with {@link #increaseBy(int) increaseBy} and
+ * {@link #decreaseBy(int) decreaseBy}. Each change is applied with a single
+ * modification of the {@code ValueBox}, and so fires a single event.
+ * <p>
+ * Results beyond the integer limits are saturated to them, and then checked
+ * against the interval, so no operation overflows.
  * 
  * @author Bernardo Martínez Garrido
  */
@@ -34,19 +42,25 @@ public final class DefaultValueController implements ValueController {
     /**
      * The step marking the change to be applied on the value.
      */
-    private final Integer changeStep = 1;
+    private int          changeStep = 1;
     /**
      * The {@code ValueBox} to be handled.
      */
-    private ValueBox      handledValue;
+    private ValueBox     handledValue;
+    /**
+     * History where the changes are recorded.
+     * <p>
+     * If it is {@code null} then no change is recorded.
+     */
+    private ValueHistory history    = null;
     /**
      * Minimum allowed value.
      */
-    private Integer       limitLower = Integer.MIN_VALUE;
+    private int          limitLower = Integer.MIN_VALUE;
     /**
      * Maximum allowed value.
      */
-    private Integer       limitUpper = Integer.MAX_VALUE;
+    private int          limitUpper = Integer.MAX_VALUE;
 
     /**
      * Constructs a {@code DefaultValueController} with no {@code ValueBox}.
@@ -68,22 +82,24 @@ public final class DefaultValueController implements ValueController {
         handledValue = value;
     }
 
+    /**
+     * Decreases the value by the specified amount, if the result is not below
+     * the lower limit.
+     * 
+     * @param amount
+     *            the amount to subtract, which can't be negative
+     */
+    public final void decreaseBy(final int amount) {
+        checkArgument(amount >= 0, "The amount can't be negative");
+
+        if ((getValue() != null) && (isAbleToDecreaseBy(amount))) {
+            setValue(SaturatedMath.subtract(getValue().getInt(), amount));
+        }
+    }
+
     @Override
     public final void decreaseValue() {
-        Integer value;
-
-        if (getValue() != null) {
-            try {
-                value = IntMath.checkedSubtract(getValue().getValue(),
-                        getStep());
-            } catch (final ArithmeticException exception) {
-                value = Integer.MIN_VALUE;
-            }
-
-            if (value >= getLowerLimit()) {
-                getValue().setValue(value);
-            }
-        }
+        decreaseBy(getStep());
     }
 
     @Override
@@ -91,65 +107,71 @@ public final class DefaultValueController implements ValueController {
         return limitLower;
     }
 
+    /**
+     * Returns the history where the changes are recorded.
+     * 
+     * @return the history where the changes are recorded, or {@code null} if
+     *         they are not recorded
+     */
+    public final ValueHistory getHistory() {
+        return history;
+    }
+
     @Override
     public final Integer getUpperLimit() {
         return limitUpper;
     }
 
+    /**
+     * Returns the step for the value modifications.
+     * 
+     * @return the modification step
+     */
+    public final int getStep() {
+        return changeStep;
+    }
+
+    /**
+     * Increases the value by the specified amount, if the result is not above
+     * the upper limit.
+     * 
+     * @param amount
+     *            the amount to add, which can't be negative
+     */
+    public final void increaseBy(final int amount) {
+        checkArgument(amount >= 0, "The amount can't be negative");
+
+        if ((getValue() != null) && (isAbleToIncreaseBy(amount))) {
+            setValue(SaturatedMath.add(getValue().getInt(), amount));
+        }
+    }
+
     @Override
     public final void increaseValue() {
-        Integer value;
-
-        if (getValue() != null) {
-            try {
-                value = IntMath.checkedAdd(getValue().getValue(), getStep());
-            } catch (final ArithmeticException exception) {
-                value = Integer.MAX_VALUE;
-            }
-
-            if (value <= getUpperLimit()) {
-                getValue().setValue(value);
-            }
-        }
+        increaseBy(getStep());
     }
 
     @Override
     public final Boolean isAbleToDecrease() {
-        final Boolean result;
-        Integer value;
-
-        if (getValue() == null) {
-            result = false;
-        } else {
-            try {
-                value = IntMath.checkedSubtract(getValue().getValue(),
-                        getStep());
-            } catch (final ArithmeticException exception) {
-                value = Integer.MIN_VALUE;
-            }
-            result = (value >= getLowerLimit());
-        }
-
-        return result;
+        return (getValue() != null) && (isAbleToDecreaseBy(getStep()));
     }
 
     @Override
     public final Boolean isAbleToIncrease() {
-        final Boolean result;
-        Integer value;
-
-        if (getValue() == null) {
-            result = false;
-        } else {
-            try {
-                value = IntMath.checkedAdd(getValue().getValue(), getStep());
-            } catch (final ArithmeticException exception) {
-                value = Integer.MAX_VALUE;
-            }
-            result = (value <= getUpperLimit());
-        }
+        return (getValue() != null) && (isAbleToIncreaseBy(getStep()));
+    }
 
-        return result;
+    /**
+     * Sets the history where the changes will be recorded.
+     * <p>
+     * The same history may be shared by several controllers. If it is
+     * {@code null}, then the changes won't be recorded.
+     * 
+     * @param history
+     *            the history where the changes will be recorded
+     */
+    public final void setHistory(final ValueHistory history) {
+        this.history = history;
     }
 
     @Override
@@ -165,6 +187,18 @@ public final class DefaultValueController implements ValueController {
         limitUpper = upperLimit;
     }
 
+    /**
+     * Sets the step for the value modifications.
+     * 
+     * @param step
+     *            the modification step, which should be positive
+     */
+    public final void setStep(final int step) {
+        checkArgument(step > 0, "The step should be positive");
+
+        changeStep = step;
+    }
+
     @Override
     public final void setValueBox(final ValueBox value) {
         checkNotNull(value, "Received a null pointer as value");
@@ -173,12 +207,49 @@ public final class DefaultValueController implements ValueController {
     }
 
     /**
-     * Returns the step for the value modifications.
+     * Indicates if the value can be decreased by the specified amount.
+     * <p>
+     * The {@code ValueBox} should not be {@code null}.
      * 
-     * @return the modification step
+     * @param amount
+     *            the amount to subtract
+     * @return {@code true} if the result is not below the lower limit,
+     *         {@code false} otherwise
      */
-    private final Integer getStep() {
-        return changeStep;
+    private final boolean isAbleToDecreaseBy(final int amount) {
+        return SaturatedMath.subtract(getValue().getInt(), amount) >= limitLower;
+    }
+
+    /**
+     * Indicates if the value can be increased by the specified amount.
+     * <p>
+     * The {@code ValueBox} should not be {@code null}.
+     * 
+     * @param amount
+     *            the amount to add
+     * @return {@code true} if the result is not above the upper limit,
+     *         {@code false} otherwise
+     */
+    private final boolean isAbleToIncreaseBy(final int amount) {
+        return SaturatedMath.add(getValue().getInt(), amount) <= limitUpper;
+    }
+
+    /**
+     * Sets the value into the handled {@code ValueBox}, recording the change
+     * if there is a history.
+     * 
+     * @param value
+     *            the new value
+     */
+    private final void setValue(final int value) {
+        final int old;
+
+        old = getValue().getInt();
+        getValue().setInt(value);
+
+        if ((history != null) && (old != value)) {
+            history.record(getValue(), value - old);
+        }
     }
 
     /**
@@ -0,0 +1,352 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.stats.controller;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.MoreObjects;
+import com.wandrell.tabletop.stats.event.IntValueChangeListener;
+import com.wandrell.tabletop.stats.valuebox.ValueBox;
+
+/**
+ * Group of controllers spending points from a shared budget, as in the
+ * point-buy systems used for creating characters.
+ * <p>
+ * Each value is added to the group along a {@link PointCostTable}, and the
+ * group returns a {@link ValueController} for it. Increasing the value
+ * spends the cost of the new level, and decreasing it gives the points back.
+ * A value can be increased only if the remaining points cover the cost of the
+ * next level.
+ * <p>
+ * The points spent are kept up to date with each change, by listening to the
+ * values, so they are never added up again. This includes changes made
+ * without the controllers, such as undoing them. So answering if any of the
+ * values can be increased or decreased takes constant time, whatever the size
+ * of the group.
+ * <p>
+ * The controllers also charge their own changes as soon as they make them,
+ * and check the current level of their value. So the budget is respected
+ * inside a {@link com.wandrell.tabletop.stats.valuebox.ValueBoxBatch
+ * ValueBoxBatch}, where the listeners are called only once it is closed.
+ * <p>
+ * Changes made without the controllers are not limited by the budget, and so
+ * the remaining points may become negative. In that case no value can be
+ * increased until enough points are given back.
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class PointBuyGroup {
+
+    /**
+     * Controller for a single value of the group.
+     * 
+     * @author Bernardo Martínez Garrido
+     */
+    private final class Member implements ValueController,
+            IntValueChangeListener {
+
+        /**
+         * Level whose cost is counted in the points spent.
+         * <p>
+         * This is the level of the value after the last change charged, by
+         * this controller or by its listener.
+         */
+        private int                  charged;
+        /**
+         * The costs of each level.
+         */
+        private final PointCostTable costs;
+        /**
+         * The {@code ValueBox} to be handled.
+         */
+        private ValueBox             handledValue;
+        /**
+         * Minimum allowed value.
+         */
+        private int                  limitLower;
+        /**
+         * Maximum allowed value.
+         */
+        private int                  limitUpper;
+
+        /**
+         * Constructs a controller for the specified value and costs.
+         * 
+         * @param value
+         *            the {@code ValueBox} to control
+         * @param costs
+         *            the costs of each level
+         */
+        public Member(final ValueBox value, final PointCostTable costs) {
+            super();
+
+            this.costs = costs;
+
+            limitLower = costs.getBaseLevel();
+            limitUpper = costs.getMaxLevel();
+
+            link(value);
+        }
+
+        @Override
+        public final void decreaseValue() {
+            if (isAbleToDecrease()) {
+                handledValue.setInt(handledValue.getInt() - 1);
+                charge(handledValue.getInt());
+            }
+        }
+
+        @Override
+        public final Integer getLowerLimit() {
+            return limitLower;
+        }
+
+        @Override
+        public final Integer getUpperLimit() {
+            return limitUpper;
+        }
+
+        @Override
+        public final void increaseValue() {
+            if (isAbleToIncrease()) {
+                handledValue.setInt(handledValue.getInt() + 1);
+                charge(handledValue.getInt());
+            }
+        }
+
+        @Override
+        public final Boolean isAbleToDecrease() {
+            final int level;
+
+            level = handledValue.getInt();
+
+            return (level > limitLower) && (level > costs.getBaseLevel());
+        }
+
+        @Override
+        public final Boolean isAbleToIncrease() {
+            final int level;
+
+            level = handledValue.getInt();
+
+            // Changes not yet notified are charged before checking the budget
+            charge(level);
+
+            return (level < limitUpper) && (level < costs.getMaxLevel())
+                    && (level >= costs.getBaseLevel())
+                    && (costs.getStepCost(level) <= getRemaining());
+        }
+
+        @Override
+        public final void setInterval(final Integer lowerLimit,
+                final Integer upperLimit) {
+            checkNotNull(lowerLimit, "Received a null pointer as lower limit");
+            checkNotNull(upperLimit, "Received a null pointer as upper limit");
+
+            checkArgument(lowerLimit <= upperLimit,
+                    "The lower limit should be lower or equal to the upper limit");
+
+            limitLower = lowerLimit;
+            limitUpper = upperLimit;
+        }
+
+        @Override
+        public final void setValueBox(final ValueBox value) {
+            checkNotNull(value, "Received a null pointer as value");
+
+            unlink();
+            link(value);
+        }
+
+        @Override
+        public final String toString() {
+            return MoreObjects.toStringHelper(this)
+                    .add("value", handledValue).add("costs", costs)
+                    .toString();
+        }
+
+        @Override
+        public final void valueChanged(final ValueBox source,
+                final int oldValue, final int newValue) {
+            charge(newValue);
+        }
+
+        /**
+         * Charges the cost of the received level, replacing that of the last
+         * level charged.
+         * <p>
+         * Charging the same level again changes nothing, so a change is not
+         * counted twice when the controller charges it and later its listener
+         * is notified.
+         * 
+         * @param level
+         *            the current level of the value
+         */
+        private final void charge(final int level) {
+            spent += costs.getCost(level) - costs.getCost(charged);
+            charged = level;
+        }
+
+        /**
+         * Indicates if this controller is a member of the received group.
+         * <p>
+         * Once removed, it is no longer a member of any group.
+         * 
+         * @param group
+         *            the group to check
+         * @return {@code true} if it is a member of the group, {@code false}
+         *         otherwise
+         */
+        private final boolean isMemberOf(final PointBuyGroup group) {
+            return (PointBuyGroup.this == group) && (handledValue != null);
+        }
+
+        /**
+         * Starts controlling the received value, spending the cost of its
+         * current level.
+         * 
+         * @param value
+         *            the {@code ValueBox} to control
+         */
+        private final void link(final ValueBox value) {
+            handledValue = value;
+
+            value.addIntValueChangeListener(this);
+            charged = value.getInt();
+            spent += costs.getCost(charged);
+        }
+
+        /**
+         * Stops controlling the current value, giving back the cost of its
+         * level.
+         */
+        private final void unlink() {
+            handledValue.removeIntValueChangeListener(this);
+            spent -= costs.getCost(charged);
+
+            handledValue = null;
+        }
+
+    }
+
+    /**
+     * Points which can be spent.
+     */
+    private int  budget;
+    /**
+     * Points spent by the values.
+     */
+    private long spent = 0;
+
+    /**
+     * Constructs a group with the specified budget.
+     * 
+     * @param budget
+     *            points which can be spent
+     */
+    public PointBuyGroup(final int budget) {
+        super();
+
+        setBudget(budget);
+    }
+
+    /**
+     * Adds a value to the group, spending the cost of its current level.
+     * <p>
+     * The returned controller is limited by default to the levels in the
+     * table.
+     * 
+     * @param value
+     *            the {@code ValueBox} to add
+     * @param costs
+     *            the costs of each level
+     * @return a controller for the value
+     */
+    public final ValueController addMember(final ValueBox value,
+            final PointCostTable costs) {
+        checkNotNull(value, "Received a null pointer as value");
+        checkNotNull(costs, "Received a null pointer as costs");
+
+        return new Member(value, costs);
+    }
+
+    /**
+     * Returns the points which can be spent.
+     * 
+     * @return the points which can be spent
+     */
+    public final int getBudget() {
+        return budget;
+    }
+
+    /**
+     * Returns the points not yet spent.
+     * <p>
+     * This may be negative, if the values were increased without the
+     * controllers or the budget was reduced.
+     * 
+     * @return the points not yet spent
+     */
+    public final long getRemaining() {
+        return budget - spent;
+    }
+
+    /**
+     * Returns the points spent by the values.
+     * 
+     * @return the points spent
+     */
+    public final long getSpent() {
+        return spent;
+    }
+
+    /**
+     * Removes a value from the group, giving back the cost of its level.
+     * <p>
+     * The controller should no longer be used.
+     * 
+     * @param member
+     *            the controller returned when adding the value
+     */
+    public final void removeMember(final ValueController member) {
+        checkNotNull(member, "Received a null pointer as controller");
+        checkArgument((member instanceof Member)
+                && (((Member) member).isMemberOf(this)),
+                "The controller is not a member of this group");
+
+        ((Member) member).unlink();
+    }
+
+    /**
+     * Sets the points which can be spent.
+     * 
+     * @param budget
+     *            points which can be spent, which can't be negative
+     */
+    public final void setBudget(final int budget) {
+        checkArgument(budget >= 0, "The budget can't be negative");
+
+        this.budget = budget;
+    }
+
+    @Override
+    public final String toString() {
+        return MoreObjects.toStringHelper(this).add("budget", budget)
+                .add("spent", spent).toString();
+    }
+
+}
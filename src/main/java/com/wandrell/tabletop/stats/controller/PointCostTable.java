@@ -0,0 +1,143 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.stats.controller;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * Table with the points each level of a value costs, for a point-buy system.
+ * <p>
+ * The table is created from the cost of each step, starting at a base level
+ * which costs nothing. So, for example, a table with base level 8 and the
+ * steps {@code [1, 1, 1, 2, 2, 3]} makes level 10 cost two points, and level
+ * 14 cost ten.
+ * <p>
+ * The total cost of each level is computed once, when creating the table, so
+ * any cost is then found in constant time, however the costs grow.
+ * 
+ * @author Bernardo Martínez Garrido
+ * @see PointBuyGroup
+ */
+public final class PointCostTable {
+
+    /**
+     * The lowest level, which costs nothing.
+     */
+    private final int   base;
+    /**
+     * Total cost of each level, starting at the base.
+     */
+    private final int[] costs;
+
+    /**
+     * Constructs a table with the specified base level and cost for each
+     * step.
+     * <p>
+     * The first step cost is the one for going from the base level to the
+     * next, and so on. The highest level is the base plus the number of
+     * steps.
+     * 
+     * @param baseLevel
+     *            the lowest level, which costs nothing
+     * @param stepCosts
+     *            the cost of each step, which can't be negative
+     */
+    public PointCostTable(final int baseLevel, final int... stepCosts) {
+        super();
+
+        checkNotNull(stepCosts, "Received a null pointer as costs");
+        checkArgument(baseLevel <= Integer.MAX_VALUE - stepCosts.length,
+                "The highest level is too big");
+
+        base = baseLevel;
+
+        costs = new int[stepCosts.length + 1];
+        for (int i = 0; i < stepCosts.length; i++) {
+            checkArgument(stepCosts[i] >= 0, "The costs can't be negative");
+            checkArgument(costs[i] <= Integer.MAX_VALUE - stepCosts[i],
+                    "The total cost is too big");
+
+            costs[i + 1] = costs[i] + stepCosts[i];
+        }
+    }
+
+    /**
+     * Returns the lowest level, which costs nothing.
+     * 
+     * @return the lowest level
+     */
+    public final int getBaseLevel() {
+        return base;
+    }
+
+    /**
+     * Returns the total cost of the specified level.
+     * <p>
+     * Levels below the base cost nothing, and those above the highest level
+     * cost the same as it.
+     * 
+     * @param level
+     *            the level to check
+     * @return the points spent to reach the level from the base
+     */
+    public final int getCost(final int level) {
+        final int result;
+
+        if (level <= base) {
+            result = 0;
+        } else if (level >= getMaxLevel()) {
+            result = costs[costs.length - 1];
+        } else {
+            result = costs[level - base];
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the highest level.
+     * 
+     * @return the highest level
+     */
+    public final int getMaxLevel() {
+        return base + costs.length - 1;
+    }
+
+    /**
+     * Returns the cost of going from the specified level to the next one.
+     * 
+     * @param level
+     *            the level to increase, which should be at least the base, and
+     *            below the highest level
+     * @return the cost of increasing the level
+     */
+    public final int getStepCost(final int level) {
+        checkArgument((level >= base) && (level < getMaxLevel()),
+                "The level is out of the table");
+
+        return costs[level - base + 1] - costs[level - base];
+    }
+
+    @Override
+    public final String toString() {
+        return MoreObjects.toStringHelper(this).add("base", base)
+                .add("max", getMaxLevel()).toString();
+    }
+
+}
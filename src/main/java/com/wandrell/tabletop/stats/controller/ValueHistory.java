@@ -0,0 +1,316 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.stats.controller;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.common.base.MoreObjects;
+import com.wandrell.tabletop.stats.valuebox.ValueBox;
+import com.wandrell.tabletop.stats.valuebox.ValueBoxBatch;
+
+/**
+ * History of the changes made through a set of controllers, allowing undoing
+ * and redoing them.
+ * <p>
+ * Each change is stored as the {@code ValueBox} which was modified and the
+ * amount it was modified by, and undoing it just subtracts that amount. So no
+ * copy of the values is ever made, and undoing or redoing a single change
+ * takes constant time.
+ * <p>
+ * Several changes can be grouped with {@link #beginGroup() beginGroup} and
+ * {@link #endGroup() endGroup}, so they are undone and redone as a single
+ * operation. Groups can be nested, in which case only the outermost one
+ * counts.
+ * <p>
+ * The history stores a limited number of changes, in arrays created along with
+ * it. Once full, recording a change discards the oldest operation. Recording
+ * a change after undoing discards the operations which could be redone.
+ * <p>
+ * The same history can be shared by several {@link DefaultValueController}
+ * instances, so the changes made to all of them are undone in order.
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class ValueHistory {
+
+    /**
+     * The modified {@code ValueBox} for each change.
+     */
+    private final ValueBox[] boxes;
+    /**
+     * The amount by which the value was modified in each change.
+     */
+    private final int[]      deltas;
+    /**
+     * Sequence following the last change stored.
+     * <p>
+     * The changes between the top and this one are those which can be redone.
+     */
+    private long             end        = 0;
+    /**
+     * Sequence of the oldest change stored.
+     */
+    private long             first      = 0;
+    /**
+     * Number of groups which have been begun and not ended.
+     */
+    private int              groupDepth = 0;
+    /**
+     * Operation to which each change belongs.
+     * <p>
+     * Consecutive changes with the same operation are undone together.
+     */
+    private final int[]      groups;
+    /**
+     * Id for the next operation.
+     */
+    private int              operation  = 0;
+    /**
+     * Sequence following the last change which can be undone.
+     */
+    private long             top        = 0;
+
+    /**
+     * Constructs a history which can store the specified number of changes.
+     * 
+     * @param capacity
+     *            the maximum number of changes stored
+     */
+    public ValueHistory(final int capacity) {
+        super();
+
+        checkArgument(capacity > 0, "The capacity should be positive");
+
+        boxes = new ValueBox[capacity];
+        deltas = new int[capacity];
+        groups = new int[capacity];
+    }
+
+    /**
+     * Begins a group of changes, which will be undone and redone as a single
+     * operation.
+     * <p>
+     * It should be ended with {@link #endGroup() endGroup}.
+     */
+    public final void beginGroup() {
+        if (groupDepth == 0) {
+            operation++;
+        }
+
+        groupDepth++;
+    }
+
+    /**
+     * Indicates if there is any operation which can be redone.
+     * 
+     * @return {@code true} if an operation can be redone, {@code false}
+     *         otherwise
+     */
+    public final boolean canRedo() {
+        return top < end;
+    }
+
+    /**
+     * Indicates if there is any operation which can be undone.
+     * 
+     * @return {@code true} if an operation can be undone, {@code false}
+     *         otherwise
+     */
+    public final boolean canUndo() {
+        return first < top;
+    }
+
+    /**
+     * Removes all the changes stored.
+     */
+    public final void clear() {
+        while (first < end) {
+            boxes[getIndex(first)] = null;
+            first++;
+        }
+
+        first = 0;
+        top = 0;
+        end = 0;
+    }
+
+    /**
+     * Ends the current group of changes.
+     */
+    public final void endGroup() {
+        checkState(groupDepth > 0, "No group has been begun");
+
+        groupDepth--;
+    }
+
+    /**
+     * Returns the maximum number of changes stored.
+     * 
+     * @return the maximum number of changes stored
+     */
+    public final int getCapacity() {
+        return deltas.length;
+    }
+
+    /**
+     * Returns the number of changes stored, including those which can be
+     * redone.
+     * 
+     * @return the number of changes stored
+     */
+    public final int getSize() {
+        return (int) (end - first);
+    }
+
+    /**
+     * Records a change to a {@code ValueBox}.
+     * <p>
+     * This is done by the controllers using the history, and there is no need
+     * to call it unless the value is modified some other way.
+     * 
+     * @param box
+     *            the modified {@code ValueBox}
+     * @param delta
+     *            the amount by which it was modified
+     */
+    public final void record(final ValueBox box, final int delta) {
+        final int index;
+
+        checkNotNull(box, "Received a null pointer as value");
+
+        // The operations which could be redone are discarded
+        while (end > top) {
+            end--;
+            boxes[getIndex(end)] = null;
+        }
+
+        if (end - first == deltas.length) {
+            discardOldest();
+        }
+
+        if (groupDepth == 0) {
+            operation++;
+        }
+
+        index = getIndex(end);
+        boxes[index] = box;
+        deltas[index] = delta;
+        groups[index] = operation;
+
+        end++;
+        top = end;
+    }
+
+    /**
+     * Redoes the last operation undone.
+     * <p>
+     * If it was a group, all its changes are redone inside a
+     * {@link ValueBoxBatch}.
+     * 
+     * @return {@code true} if an operation was redone, {@code false} if there
+     *         was nothing to redo
+     */
+    public final boolean redo() {
+        final boolean redone;
+        final int group;
+        int index;
+
+        redone = canRedo();
+        if (redone) {
+            index = getIndex(top);
+            group = groups[index];
+            try (ValueBoxBatch batch = ValueBoxBatch.open()) {
+                while ((top < end) && (groups[index] == group)) {
+                    boxes[index].setInt(boxes[index].getInt() + deltas[index]);
+
+                    top++;
+                    index = getIndex(top);
+                }
+            }
+        }
+
+        return redone;
+    }
+
+    @Override
+    public final String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("capacity", getCapacity()).add("size", getSize())
+                .toString();
+    }
+
+    /**
+     * Undoes the last operation.
+     * <p>
+     * If it was a group, all its changes are undone, from the newest to the
+     * oldest, inside a {@link ValueBoxBatch}.
+     * 
+     * @return {@code true} if an operation was undone, {@code false} if there
+     *         was nothing to undo
+     */
+    public final boolean undo() {
+        final boolean undone;
+        final int group;
+        int index;
+
+        undone = canUndo();
+        if (undone) {
+            index = getIndex(top - 1);
+            group = groups[index];
+            try (ValueBoxBatch batch = ValueBoxBatch.open()) {
+                while ((top > first) && (groups[index] == group)) {
+                    boxes[index].setInt(boxes[index].getInt() - deltas[index]);
+
+                    top--;
+                    index = getIndex(top - 1);
+                }
+            }
+        }
+
+        return undone;
+    }
+
+    /**
+     * Discards the oldest operation, to make room for a new change.
+     * <p>
+     * If the oldest operation is the group currently being recorded, then only
+     * its oldest change is discarded.
+     */
+    private final void discardOldest() {
+        final int group;
+
+        group = groups[getIndex(first)];
+        do {
+            boxes[getIndex(first)] = null;
+            first++;
+        } while ((first < top) && (groups[getIndex(first)] == group)
+                && ((groupDepth == 0) || (group != operation)));
+    }
+
+    /**
+     * Returns the position in the arrays for the specified sequence.
+     * 
+     * @param sequence
+     *            the sequence of the change
+     * @return the position of the change in the arrays
+     */
+    private final int getIndex(final long sequence) {
+        return (int) (sequence % deltas.length);
+    }
+
+}
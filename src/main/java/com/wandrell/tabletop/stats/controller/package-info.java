@@ -21,11 +21,33 @@
  * to be part of the controller layer of a desktop application, where the UI is
  * closely linked to the model.
  * <p>
- * The only class currently contained in the package, the
+ * The main class contained in the package, the
  * {@link com.wandrell.tabletop.stats.controller.ValueController
  * ValueController} , allows increasing and decreasing a {@code ValueBox} with
  * the use of buttons, and a series of constraints such as the interval in which
  * the value can move.
+ * <p>
+ * To apply the same change to many values at once, the
+ * {@link com.wandrell.tabletop.stats.controller.BulkValueController
+ * BulkValueController} works over arrays of {@code ValueBox} instances, or
+ * over arrays of primitive values.
+ * <p>
+ * When the limits are themselves values, such as an attribute capping a skill,
+ * the {@link com.wandrell.tabletop.stats.controller.BoundValueController
+ * BoundValueController} takes them from other {@code ValueBox} instances, and
+ * follows their changes. It also keeps its flags updated, and tells a
+ * {@link com.wandrell.tabletop.stats.controller.CapabilityListener
+ * CapabilityListener} when they change, so views don't need to poll it.
+ * <p>
+ * For point-buy systems, a
+ * {@link com.wandrell.tabletop.stats.controller.PointBuyGroup PointBuyGroup}
+ * gives controllers which spend points from a shared budget, following the
+ * costs from a {@link com.wandrell.tabletop.stats.controller.PointCostTable
+ * PointCostTable}.
+ * <p>
+ * The changes made through the controllers can be recorded into a
+ * {@link com.wandrell.tabletop.stats.controller.ValueHistory ValueHistory}, to
+ * undo and redo them.
  */
 package com.wandrell.tabletop.stats.controller;
 
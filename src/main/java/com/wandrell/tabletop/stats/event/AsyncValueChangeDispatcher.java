@@ -0,0 +1,404 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.stats.event;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.google.common.base.MoreObjects;
+import com.wandrell.tabletop.stats.valuebox.ValueBox;
+
+/**
+ * Dispatcher moving the work of slow listeners out of the thread which
+ * changes the values.
+ * <p>
+ * Listeners are wrapped by the dispatcher, and the wrappers are the ones
+ * registered into the {@link ValueBox}. When they receive a change, they just
+ * store it in a queue, and the actual listener is called later through the
+ * {@code Executor} received when creating the dispatcher. Any
+ * {@code Executor} can be used, such as a thread pool, or one which starts a
+ * virtual thread for each task on those JDKs supporting them.
+ * <p>
+ * Each wrapped listener has its own queue, which is processed in order and by
+ * a single task at a time. So a listener receives the changes in the same
+ * order they happened on each source, and is never called concurrently, while
+ * different listeners may run in parallel.
+ * <p>
+ * The queues are bounded, and what happens when a change arrives to a full
+ * queue is decided by the {@link OverflowPolicy}.
+ * <p>
+ * To stop listening, the wrapper returned when wrapping the listener should
+ * be the one removed from the {@code ValueBox}.
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class AsyncValueChangeDispatcher {
+
+    /**
+     * Listener storing the changes, to send them to a
+     * {@code IntValueChangeListener} later.
+     * 
+     * @author Bernardo Martínez Garrido
+     */
+    private final class AsyncIntValueChangeListener extends Lane implements
+            IntValueChangeListener {
+
+        /**
+         * The wrapped listener.
+         */
+        private final IntValueChangeListener listener;
+
+        /**
+         * Constructs a wrapper for the specified listener.
+         * 
+         * @param listener
+         *            the listener to wrap
+         */
+        public AsyncIntValueChangeListener(
+                final IntValueChangeListener listener) {
+            super();
+
+            this.listener = listener;
+        }
+
+        @Override
+        public final void valueChanged(final ValueBox source,
+                final int oldValue, final int newValue) {
+            offer(new Runnable() {
+
+                @Override
+                public final void run() {
+                    listener.valueChanged(source, oldValue, newValue);
+                }
+
+            });
+        }
+
+    }
+
+    /**
+     * Listener storing the events, to send them to a
+     * {@code ValueChangeListener} later.
+     * 
+     * @author Bernardo Martínez Garrido
+     */
+    private final class AsyncValueChangeListener extends Lane implements
+            ValueChangeListener {
+
+        /**
+         * The wrapped listener.
+         */
+        private final ValueChangeListener listener;
+
+        /**
+         * Constructs a wrapper for the specified listener.
+         * 
+         * @param listener
+         *            the listener to wrap
+         */
+        public AsyncValueChangeListener(final ValueChangeListener listener) {
+            super();
+
+            this.listener = listener;
+        }
+
+        @Override
+        public final void valueChanged(final ValueChangeEvent event) {
+            offer(new Runnable() {
+
+                @Override
+                public final void run() {
+                    listener.valueChanged(event);
+                }
+
+            });
+        }
+
+    }
+
+    /**
+     * Queue of pending notifications for a single listener.
+     * <p>
+     * It is run by the executor when it has notifications, and keeps running
+     * until the queue is empty. Only one instance of the task is scheduled at
+     * a time.
+     * 
+     * @author Bernardo Martínez Garrido
+     */
+    private abstract class Lane implements Runnable {
+
+        /**
+         * Flag indicating if the queue is scheduled to be processed.
+         */
+        private boolean               scheduled = false;
+        /**
+         * Pending notifications.
+         */
+        private final Queue<Runnable> tasks     = new ArrayDeque<Runnable>();
+
+        /**
+         * Default constructor.
+         */
+        public Lane() {
+            super();
+        }
+
+        @Override
+        public final void run() {
+            Runnable task;
+            boolean emptied;
+
+            emptied = false;
+            try {
+                task = next();
+                while (task != null) {
+                    task.run();
+                    task = next();
+                }
+                emptied = true;
+            } finally {
+                if (!emptied) {
+                    // A listener threw an exception or error
+                    // The remaining notifications are processed in a new task
+                    resubmit();
+                }
+            }
+        }
+
+        /**
+         * Adds a notification to the queue.
+         * 
+         * @param task
+         *            the notification to add
+         */
+        protected final void offer(final Runnable task) {
+            final boolean submit;
+
+            synchronized (this) {
+                if (makeRoom()) {
+                    tasks.add(task);
+
+                    submit = !scheduled;
+                    scheduled = true;
+                } else {
+                    submit = false;
+                }
+            }
+
+            if (submit) {
+                submit();
+            }
+        }
+
+        /**
+         * Applies the overflow policy until there is room for a new
+         * notification.
+         * 
+         * @return {@code true} if the notification can be added, {@code false}
+         *         if it should be discarded
+         */
+        private final boolean makeRoom() {
+            boolean room;
+
+            room = true;
+            while ((room) && (tasks.size() >= capacity)) {
+                switch (policy) {
+                    case BLOCK:
+                        try {
+                            wait();
+                        } catch (final InterruptedException exception) {
+                            Thread.currentThread().interrupt();
+                            throw new RejectedExecutionException(
+                                    "Interrupted while waiting for room in the queue");
+                        }
+                        break;
+                    case DISCARD_NEWEST:
+                        room = false;
+                        break;
+                    case DISCARD_OLDEST:
+                        tasks.poll();
+                        break;
+                    default:
+                        // FAIL policy
+                        throw new RejectedExecutionException(
+                                "The notifications queue is full");
+                }
+            }
+
+            return room;
+        }
+
+        /**
+         * Returns the next notification, or {@code null} if there are none,
+         * in which case the task is no longer scheduled.
+         * 
+         * @return the next notification, or {@code null} if there are none
+         */
+        private final synchronized Runnable next() {
+            final Runnable task;
+
+            task = tasks.poll();
+            if (task == null) {
+                scheduled = false;
+            } else {
+                // Wakes up writers waiting for room
+                notifyAll();
+            }
+
+            return task;
+        }
+
+        /**
+         * Schedules again the processing of the queue, if it is not empty.
+         */
+        private final void resubmit() {
+            final boolean submit;
+
+            synchronized (this) {
+                submit = !tasks.isEmpty();
+                scheduled = submit;
+            }
+
+            if (submit) {
+                submit();
+            }
+        }
+
+        /**
+         * Sends the task to the executor.
+         * <p>
+         * If the executor rejects it, the task is marked as not scheduled, so
+         * a later notification may try again.
+         */
+        private final void submit() {
+            try {
+                executor.execute(this);
+            } catch (final RejectedExecutionException exception) {
+                synchronized (this) {
+                    scheduled = false;
+                }
+                throw exception;
+            }
+        }
+
+    }
+
+    /**
+     * Action to take when a notification is received and the queue for the
+     * listener is full.
+     * 
+     * @author Bernardo Martínez Garrido
+     */
+    public static enum OverflowPolicy {
+        /**
+         * Waits until there is room in the queue.
+         * <p>
+         * This slows down the writer to the speed of the listener, and should
+         * not be used if the values are changed from the executor threads.
+         */
+        BLOCK,
+        /**
+         * Discards the new notification.
+         */
+        DISCARD_NEWEST,
+        /**
+         * Discards the oldest notification in the queue, to make room for the
+         * new one.
+         */
+        DISCARD_OLDEST,
+        /**
+         * Throws a {@code RejectedExecutionException} to the writer.
+         */
+        FAIL
+    }
+
+    /**
+     * Maximum number of pending notifications for each listener.
+     */
+    private final int            capacity;
+    /**
+     * Executor running the listeners.
+     */
+    private final Executor       executor;
+    /**
+     * Action to take when a queue is full.
+     */
+    private final OverflowPolicy policy;
+
+    /**
+     * Constructs a dispatcher with the specified executor, queue capacity and
+     * overflow policy.
+     * 
+     * @param executor
+     *            executor running the listeners
+     * @param capacity
+     *            maximum number of pending notifications for each listener
+     * @param policy
+     *            action to take when a queue is full
+     */
+    public AsyncValueChangeDispatcher(final Executor executor,
+            final int capacity, final OverflowPolicy policy) {
+        super();
+
+        this.executor = checkNotNull(executor,
+                "Received a null pointer as executor");
+        this.policy = checkNotNull(policy,
+                "Received a null pointer as overflow policy");
+
+        checkArgument(capacity > 0, "The capacity should be positive");
+
+        this.capacity = capacity;
+    }
+
+    @Override
+    public final String toString() {
+        return MoreObjects.toStringHelper(this).add("capacity", capacity)
+                .add("policy", policy).toString();
+    }
+
+    /**
+     * Wraps a primitive listener, so it is called through the executor.
+     * 
+     * @param listener
+     *            the listener to wrap
+     * @return a listener sending the changes to the received one
+     */
+    public final IntValueChangeListener wrap(
+            final IntValueChangeListener listener) {
+        checkNotNull(listener, "Received a null pointer as listener");
+
+        return new AsyncIntValueChangeListener(listener);
+    }
+
+    /**
+     * Wraps a listener, so it is called through the executor.
+     * 
+     * @param listener
+     *            the listener to wrap
+     * @return a listener sending the events to the received one
+     */
+    public final ValueChangeListener wrap(final ValueChangeListener listener) {
+        checkNotNull(listener, "Received a null pointer as listener");
+
+        return new AsyncValueChangeListener(listener);
+    }
+
+}
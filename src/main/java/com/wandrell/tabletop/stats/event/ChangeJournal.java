@@ -0,0 +1,476 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.stats.event;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.common.base.MoreObjects;
+import com.wandrell.tabletop.stats.valuebox.ValueBox;
+import com.wandrell.tabletop.stats.valuebox.ValueBoxBatch;
+
+/**
+ * Journal recording the changes of a set of values, so they can be replayed
+ * or inspected later.
+ * <p>
+ * Values are added to the journal with {@link #track(ValueBox) track}, which
+ * gives them an id and starts recording their changes. Each change is stored
+ * with the id of the value, the values before and after it, a sequence number
+ * and the time it was recorded.
+ * <p>
+ * The changes are stored in arrays of primitives which are created along with
+ * the journal, and reused as a ring buffer. So recording a change creates no
+ * object, and the memory used never grows. Once the journal is full, each new
+ * change overwrites the oldest one.
+ * <p>
+ * The changes can be read with a {@link Cursor}, which walks through them in
+ * order while new ones keep being recorded, or applied to another set of values
+ * with {@link #replay(ValueBox...) replay}.
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class ChangeJournal {
+
+    /**
+     * Reader walking through the changes stored in the journal.
+     * <p>
+     * Each call to {@link #next() next} moves it to the following change,
+     * which can then be read through its getters. A cursor can keep reading
+     * while new changes are being recorded, but if it falls behind so much
+     * that the changes it was going to read are overwritten, then it jumps to
+     * the oldest one stored, and keeps count of those it missed.
+     * <p>
+     * A cursor should be used by a single thread.
+     * 
+     * @author Bernardo Martínez Garrido
+     */
+    public final class Cursor {
+
+        /**
+         * Id of the value which changed.
+         */
+        private int  boxId;
+        /**
+         * Sequence number of the next change to read.
+         */
+        private long next;
+        /**
+         * Value after the change.
+         */
+        private int  newValue;
+        /**
+         * Value before the change.
+         */
+        private int  oldValue;
+        /**
+         * Sequence number of the change.
+         */
+        private long sequence = -1;
+        /**
+         * Number of changes overwritten before being read.
+         */
+        private long skipped  = 0;
+        /**
+         * Time at which the change was recorded.
+         */
+        private long timestamp;
+
+        /**
+         * Constructs a cursor which will read from the specified change.
+         * 
+         * @param next
+         *            sequence number of the first change to read
+         */
+        private Cursor(final long next) {
+            super();
+
+            this.next = next;
+        }
+
+        /**
+         * Returns the id of the value which changed.
+         * 
+         * @return the id of the value which changed
+         */
+        public final int getBoxId() {
+            checkRead();
+
+            return boxId;
+        }
+
+        /**
+         * Returns the value after the change.
+         * 
+         * @return the value after the change
+         */
+        public final int getNewValue() {
+            checkRead();
+
+            return newValue;
+        }
+
+        /**
+         * Returns the value before the change.
+         * 
+         * @return the value before the change
+         */
+        public final int getOldValue() {
+            checkRead();
+
+            return oldValue;
+        }
+
+        /**
+         * Returns the sequence number of the change.
+         * <p>
+         * Each change recorded by the journal has the sequence number
+         * following the one of the previous change, starting at zero.
+         * 
+         * @return the sequence number of the change
+         */
+        public final long getSequence() {
+            checkRead();
+
+            return sequence;
+        }
+
+        /**
+         * Returns the number of changes which were overwritten before this
+         * cursor could read them.
+         * 
+         * @return the number of changes skipped
+         */
+        public final long getSkipped() {
+            return skipped;
+        }
+
+        /**
+         * Returns the time at which the change was recorded, in milliseconds
+         * since the epoch.
+         * 
+         * @return the time at which the change was recorded
+         */
+        public final long getTimestamp() {
+            checkRead();
+
+            return timestamp;
+        }
+
+        /**
+         * Moves to the next change.
+         * <p>
+         * If there are no more changes it returns {@code false}, but it may be
+         * called again later, once new changes are recorded.
+         * 
+         * @return {@code true} if there was a next change, {@code false}
+         *         otherwise
+         */
+        public final boolean next() {
+            final boolean found;
+            final long oldest;
+            final int index;
+
+            synchronized (ChangeJournal.this) {
+                oldest = getOldestSequence();
+                if (next < oldest) {
+                    skipped += oldest - next;
+                    next = oldest;
+                }
+
+                found = next < sequenceNext;
+                if (found) {
+                    index = (int) (next % timestamps.length);
+
+                    boxId = entries[index * ENTRY_SIZE];
+                    oldValue = entries[index * ENTRY_SIZE + 1];
+                    newValue = entries[index * ENTRY_SIZE + 2];
+                    timestamp = timestamps[index];
+                    sequence = next;
+
+                    next++;
+                }
+            }
+
+            return found;
+        }
+
+        @Override
+        public final String toString() {
+            return MoreObjects.toStringHelper(this).add("sequence", sequence)
+                    .add("skipped", skipped).toString();
+        }
+
+        /**
+         * Checks that a change has been read.
+         */
+        private final void checkRead() {
+            checkState(sequence >= 0, "No change has been read");
+        }
+
+    }
+
+    /**
+     * Listener recording the changes of a single value.
+     * 
+     * @author Bernardo Martínez Garrido
+     */
+    private final class JournalListener implements IntValueChangeListener {
+
+        /**
+         * Id of the value.
+         */
+        private final int boxId;
+
+        /**
+         * Constructs a listener for the value with the specified id.
+         * 
+         * @param boxId
+         *            the id of the value
+         */
+        public JournalListener(final int boxId) {
+            super();
+
+            this.boxId = boxId;
+        }
+
+        @Override
+        public final void valueChanged(final ValueBox source,
+                final int oldValue, final int newValue) {
+            record(boxId, oldValue, newValue);
+        }
+
+    }
+
+    /**
+     * Number of ints stored for each change.
+     */
+    private static final int                   ENTRY_SIZE   = 3;
+
+    /**
+     * The values being tracked, in order of their ids.
+     * <p>
+     * Values which are no longer tracked are kept as {@code null}.
+     */
+    private final List<ValueBox>               boxes        = new ArrayList<ValueBox>();
+    /**
+     * Id, old value and new value of each change, one after the other.
+     */
+    private final int[]                        entries;
+    /**
+     * Listeners recording the changes for each value, in order of their ids.
+     */
+    private final List<IntValueChangeListener> listeners    = new ArrayList<IntValueChangeListener>();
+    /**
+     * Sequence number for the next change.
+     */
+    private long                               sequenceNext = 0;
+    /**
+     * Time at which each change was recorded.
+     */
+    private final long[]                       timestamps;
+
+    /**
+     * Constructs a journal which can store the specified number of changes.
+     * 
+     * @param capacity
+     *            the maximum number of changes stored
+     */
+    public ChangeJournal(final int capacity) {
+        super();
+
+        checkArgument(capacity > 0, "The capacity should be positive");
+        checkArgument(capacity <= Integer.MAX_VALUE / ENTRY_SIZE,
+                "The capacity is too big");
+
+        entries = new int[capacity * ENTRY_SIZE];
+        timestamps = new long[capacity];
+    }
+
+    /**
+     * Returns the maximum number of changes stored.
+     * 
+     * @return the maximum number of changes stored
+     */
+    public final int getCapacity() {
+        return timestamps.length;
+    }
+
+    /**
+     * Returns a cursor which will read all the changes stored, starting with
+     * the oldest one.
+     * 
+     * @return a cursor for reading the changes
+     */
+    public final synchronized Cursor getCursor() {
+        return new Cursor(getOldestSequence());
+    }
+
+    /**
+     * Returns the number of changes currently stored.
+     * 
+     * @return the number of changes stored
+     */
+    public final synchronized int getSize() {
+        return (int) (sequenceNext - getOldestSequence());
+    }
+
+    /**
+     * Records a change.
+     * <p>
+     * This is done automatically for the tracked values, but can be used to
+     * record changes for any other source, such as a cell of a
+     * {@code StatTable}.
+     * 
+     * @param boxId
+     *            the id of the value which changed
+     * @param oldValue
+     *            the value before the change
+     * @param newValue
+     *            the value after the change
+     */
+    public final synchronized void record(final int boxId, final int oldValue,
+            final int newValue) {
+        final int index;
+
+        index = (int) (sequenceNext % timestamps.length);
+
+        entries[index * ENTRY_SIZE] = boxId;
+        entries[index * ENTRY_SIZE + 1] = oldValue;
+        entries[index * ENTRY_SIZE + 2] = newValue;
+        timestamps[index] = System.currentTimeMillis();
+
+        sequenceNext++;
+    }
+
+    /**
+     * Applies the changes stored to the received values, from the oldest to
+     * the newest.
+     * <p>
+     * Each change is applied to the value in the position of its id, and
+     * changes for ids without a value are ignored. So, for example, the
+     * values could be a fresh copy of those tracked.
+     * <p>
+     * This is done inside a {@link ValueBoxBatch}, so each value notifies at
+     * most a single change.
+     * <p>
+     * Only the changes stored when the replay starts are applied. If the
+     * journal has overwritten any change, those won't be applied. But, as the
+     * newest changes are always kept, each value with any change still stored
+     * will end with its latest value.
+     * 
+     * @param targets
+     *            the values where the changes are applied, by their id
+     * @return the number of changes applied
+     */
+    public final int replay(final ValueBox... targets) {
+        final Cursor cursor;
+        final long end;
+        int applied;
+
+        checkNotNull(targets, "Received a null pointer as values");
+
+        synchronized (this) {
+            cursor = getCursor();
+            end = sequenceNext;
+        }
+
+        applied = 0;
+        try (ValueBoxBatch batch = ValueBoxBatch.open()) {
+            // Changes recorded after starting are not replayed
+            while ((cursor.next()) && (cursor.sequence < end)) {
+                if ((cursor.boxId >= 0) && (cursor.boxId < targets.length)
+                        && (targets[cursor.boxId] != null)) {
+                    targets[cursor.boxId].setInt(cursor.newValue);
+                    applied++;
+                }
+            }
+        }
+
+        return applied;
+    }
+
+    @Override
+    public final String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("capacity", getCapacity()).add("size", getSize())
+                .toString();
+    }
+
+    /**
+     * Starts recording the changes of a value.
+     * <p>
+     * The value receives an id, which is the number of values tracked before
+     * it, starting at zero.
+     * 
+     * @param box
+     *            the value to track
+     * @return the id of the value
+     */
+    public final synchronized int track(final ValueBox box) {
+        final IntValueChangeListener listener;
+        final int id;
+
+        checkNotNull(box, "Received a null pointer as value");
+
+        id = boxes.size();
+        listener = new JournalListener(id);
+
+        boxes.add(box);
+        listeners.add(listener);
+
+        box.addIntValueChangeListener(listener);
+
+        return id;
+    }
+
+    /**
+     * Stops recording the changes of a value.
+     * <p>
+     * The changes already recorded are kept, and its id won't be given to
+     * other values.
+     * 
+     * @param boxId
+     *            the id of the value
+     */
+    public final synchronized void untrack(final int boxId) {
+        final ValueBox box;
+
+        checkElementIndex(boxId, boxes.size(), "Value id");
+
+        box = boxes.get(boxId);
+        if (box != null) {
+            box.removeIntValueChangeListener(listeners.get(boxId));
+
+            boxes.set(boxId, null);
+            listeners.set(boxId, null);
+        }
+    }
+
+    /**
+     * Returns the sequence number of the oldest change stored.
+     * 
+     * @return the sequence number of the oldest change stored
+     */
+    private final long getOldestSequence() {
+        return Math.max(0, sequenceNext - timestamps.length);
+    }
+
+}
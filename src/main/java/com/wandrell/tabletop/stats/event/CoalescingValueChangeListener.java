@@ -0,0 +1,234 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.stats.event;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.MoreObjects;
+import com.wandrell.tabletop.stats.valuebox.ValueBox;
+
+/**
+ * Listener merging all the changes received between flushes, and sending them
+ * as a single event for each source.
+ * <p>
+ * This is meant for listeners which only care about the latest value, such as
+ * those updating a view or sending the values through the network. If a value
+ * changes many times in a row, the wrapped listener will receive a single
+ * {@link ValueChangeEvent}, with the value before the first change and the
+ * value after the last one.
+ * <p>
+ * The merged changes are sent when calling {@link #flush() flush}, which can
+ * be done periodically with {@link #schedule(ScheduledExecutorService, long,
+ * TimeUnit) schedule}. Sources which end up with the same value they had
+ * before the first change are ignored.
+ * <p>
+ * Sources are told apart by identity, and they are flushed in the order in
+ * which they first changed. The adapter can be registered both as a
+ * {@link ValueChangeListener} and as an {@link IntValueChangeListener}, and
+ * can be shared between several sources and threads.
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class CoalescingValueChangeListener implements
+        ValueChangeListener, IntValueChangeListener {
+
+    /**
+     * Changes merged for a single source.
+     * 
+     * @author Bernardo Martínez Garrido
+     */
+    private static final class Change {
+
+        /**
+         * The value after the last change.
+         */
+        private int          newValue;
+        /**
+         * The value before the first change.
+         */
+        private final int    oldValue;
+        /**
+         * The source which changed.
+         */
+        private final Object source;
+
+        /**
+         * Constructs a change for the specified source and values.
+         * 
+         * @param source
+         *            the source which changed
+         * @param oldValue
+         *            the value before the change
+         * @param newValue
+         *            the value after the change
+         */
+        public Change(final Object source, final int oldValue,
+                final int newValue) {
+            super();
+
+            this.source = source;
+            this.oldValue = oldValue;
+            this.newValue = newValue;
+        }
+
+    }
+
+    /**
+     * The changes received since the last flush, in order of arrival.
+     */
+    private final List<Change>        changes = new ArrayList<Change>();
+    /**
+     * The listener receiving the merged changes.
+     */
+    private final ValueChangeListener listener;
+    /**
+     * The changes received since the last flush, keyed by their source.
+     */
+    private final Map<Object, Change> sources = new IdentityHashMap<Object, Change>();
+
+    /**
+     * Constructs an adapter sending the merged changes to the specified
+     * listener.
+     * 
+     * @param listener
+     *            the listener receiving the merged changes
+     */
+    public CoalescingValueChangeListener(final ValueChangeListener listener) {
+        super();
+
+        this.listener = checkNotNull(listener,
+                "Received a null pointer as listener");
+    }
+
+    /**
+     * Sends the changes received since the last flush to the wrapped listener.
+     * <p>
+     * A single event is sent for each source, unless its value is the same as
+     * before the first change.
+     * <p>
+     * The listener is called on the thread calling this method, and while it
+     * is being notified new changes will be stored for the next flush.
+     */
+    public final void flush() {
+        final List<Change> flushed;
+
+        synchronized (this) {
+            flushed = new ArrayList<Change>(changes);
+            changes.clear();
+            sources.clear();
+        }
+
+        for (final Change change : flushed) {
+            if (change.oldValue != change.newValue) {
+                listener.valueChanged(new ValueChangeEvent(change.source,
+                        change.oldValue, change.newValue));
+            }
+        }
+    }
+
+    /**
+     * Returns the number of sources with changes waiting for the next flush.
+     * <p>
+     * This includes those sources whose changes cancel each other.
+     * 
+     * @return the number of sources with pending changes
+     */
+    public final synchronized int getPendingCount() {
+        return changes.size();
+    }
+
+    /**
+     * Periodically flushes the changes with the specified executor.
+     * <p>
+     * The flushes will go on until the returned {@code ScheduledFuture} is
+     * cancelled, or the executor shut down.
+     * 
+     * @param executor
+     *            the executor which will flush the changes
+     * @param period
+     *            the time between flushes
+     * @param unit
+     *            the unit of the period
+     * @return the task flushing the changes, to cancel it
+     */
+    public final ScheduledFuture<?> schedule(
+            final ScheduledExecutorService executor, final long period,
+            final TimeUnit unit) {
+        checkNotNull(executor, "Received a null pointer as executor");
+        checkNotNull(unit, "Received a null pointer as time unit");
+        checkArgument(period > 0, "The period should be positive");
+
+        return executor.scheduleAtFixedRate(new Runnable() {
+
+            @Override
+            public final void run() {
+                flush();
+            }
+
+        }, period, period, unit);
+    }
+
+    @Override
+    public final String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("pending", getPendingCount()).toString();
+    }
+
+    @Override
+    public final void valueChanged(final ValueBox source, final int oldValue,
+            final int newValue) {
+        merge(source, oldValue, newValue);
+    }
+
+    @Override
+    public final void valueChanged(final ValueChangeEvent event) {
+        merge(event.getSource(), event.getOldInt(), event.getNewInt());
+    }
+
+    /**
+     * Merges a change with the ones received before for the same source.
+     * 
+     * @param source
+     *            the source which changed
+     * @param oldValue
+     *            the value before the change
+     * @param newValue
+     *            the value after the change
+     */
+    private final synchronized void merge(final Object source,
+            final int oldValue, final int newValue) {
+        Change change;
+
+        change = sources.get(source);
+        if (change == null) {
+            change = new Change(source, oldValue, newValue);
+            sources.put(source, change);
+            changes.add(change);
+        } else {
+            change.newValue = newValue;
+        }
+    }
+
+}
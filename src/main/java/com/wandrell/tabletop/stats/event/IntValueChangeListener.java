@@ -0,0 +1,48 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.stats.event;
+
+import java.util.EventListener;
+
+import com.wandrell.tabletop.stats.valuebox.ValueBox;
+
+/**
+ * Listener for reacting to value changes, receiving the values as primitives.
+ * <p>
+ * This is the same as the {@link ValueChangeListener}, but instead of a
+ * {@link ValueChangeEvent} it receives the {@code ValueBox} which changed, and
+ * the values before and after the change. So no object has to be created each
+ * time the value changes, which makes it the one to be used in the hot paths.
+ * 
+ * @author Bernardo Martínez Garrido
+ * @see ValueChangeListener
+ */
+public interface IntValueChangeListener extends EventListener {
+
+    /**
+     * The value has changed.
+     * 
+     * @param source
+     *            the {@code ValueBox} which changed
+     * @param oldValue
+     *            the value before the change
+     * @param newValue
+     *            the value after the change
+     */
+    public void valueChanged(final ValueBox source, final int oldValue,
+            final int newValue);
+
+}
@@ -0,0 +1,57 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.stats.event;
+
+import java.util.EventListener;
+
+import com.wandrell.tabletop.stats.valuebox.ValueBox;
+
+/**
+ * Listener reacting only when a value crosses one of a series of thresholds.
+ * <p>
+ * The thresholds are received when registering the listener, and split the
+ * values into bands. The band of a value is the number of thresholds lower or
+ * equal to it, so with the thresholds {@code [1, 10]} the values below 1 are
+ * on band 0, those from 1 to 9 on band 1, and those from 10 upwards on band
+ * 2.
+ * <p>
+ * The listener is called only when a change moves the value into another
+ * band. Other changes are discarded after comparing the values with the
+ * thresholds, without creating any object.
+ * 
+ * @author Bernardo Martínez Garrido
+ * @see IntValueChangeListener
+ */
+public interface ThresholdListener extends EventListener {
+
+    /**
+     * The value has moved into another band.
+     * 
+     * @param source
+     *            the {@code ValueBox} which changed
+     * @param oldBand
+     *            the band before the change
+     * @param newBand
+     *            the band after the change
+     * @param oldValue
+     *            the value before the change
+     * @param newValue
+     *            the value after the change
+     */
+    public void thresholdCrossed(final ValueBox source, final int oldBand,
+            final int newBand, final int oldValue, final int newValue);
+
+}
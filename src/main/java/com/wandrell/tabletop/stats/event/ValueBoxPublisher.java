@@ -0,0 +1,367 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.stats.event;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.MoreObjects;
+import com.wandrell.tabletop.stats.valuebox.ValueBox;
+
+/**
+ * Publisher sending the changes of a {@link ValueBox} to subscribers which
+ * control how many changes they receive.
+ * <p>
+ * Each subscriber gets its own subscription, which registers a primitive
+ * listener into the {@code ValueBox}. The changes are sent to the subscriber
+ * as long as it has requested them, and otherwise are kept until it requests
+ * more, following the {@link BackpressureStrategy}.
+ * <p>
+ * When the subscription is cancelled, or fails, its listener is removed from
+ * the {@code ValueBox}. As the values never end, subscriptions are not
+ * completed otherwise.
+ * <p>
+ * Changes are sent on the thread which modified the value, or on the one
+ * requesting them if they were kept, but never concurrently to the same
+ * subscriber.
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class ValueBoxPublisher implements ValueChangePublisher {
+
+    /**
+     * What is done with the changes received when the subscriber has not
+     * requested them.
+     * 
+     * @author Bernardo Martínez Garrido
+     */
+    public static enum BackpressureStrategy {
+        /**
+         * Keeps the changes in order, up to the capacity of the publisher.
+         * <p>
+         * If more changes arrive, the subscription fails with an
+         * {@code IllegalStateException}.
+         */
+        BUFFER,
+        /**
+         * Merges the changes into a single one, from the value before the
+         * first change to the latest value.
+         * <p>
+         * If the merged change ends with the same value it started with, it
+         * is discarded.
+         */
+        LATEST
+    }
+
+    /**
+     * Subscription of a single subscriber, listening to the
+     * {@code ValueBox}.
+     * 
+     * @author Bernardo Martínez Garrido
+     */
+    private final class BoxSubscription implements ValueChangeSubscription,
+            IntValueChangeListener {
+
+        /**
+         * Old and new value of each kept change, one after the other.
+         */
+        private final int[]                 changes;
+        /**
+         * Number of changes kept.
+         */
+        private int                         count     = 0;
+        /**
+         * Flag indicating if the subscription has ended.
+         */
+        private boolean                     ended     = false;
+        /**
+         * Error to send to the subscriber.
+         */
+        private Throwable                   error     = null;
+        /**
+         * Position of the oldest change kept.
+         */
+        private int                         head      = 0;
+        /**
+         * Number of changes requested and not yet sent.
+         */
+        private long                        requested = 0;
+        /**
+         * Maximum number of changes kept.
+         */
+        private final int                   slots;
+        /**
+         * The subscriber.
+         */
+        private final ValueChangeSubscriber subscriber;
+        /**
+         * Number of pending calls to send the changes.
+         * <p>
+         * Only the thread increasing it from zero sends them, which keeps the
+         * subscriber from being called concurrently. It starts at one, so
+         * nothing is sent until the subscriber has been told about the
+         * subscription.
+         */
+        private final AtomicInteger         work      = new AtomicInteger(1);
+
+        /**
+         * Constructs a subscription for the specified subscriber.
+         * 
+         * @param subscriber
+         *            the subscriber
+         */
+        public BoxSubscription(final ValueChangeSubscriber subscriber) {
+            super();
+
+            this.subscriber = subscriber;
+
+            if (strategy == BackpressureStrategy.LATEST) {
+                slots = 1;
+            } else {
+                slots = capacity;
+            }
+            changes = new int[slots * 2];
+        }
+
+        @Override
+        public final void cancel() {
+            synchronized (this) {
+                ended = true;
+                count = 0;
+            }
+
+            box.removeIntValueChangeListener(this);
+        }
+
+        @Override
+        public final void request(final long requests) {
+            synchronized (this) {
+                if (requests <= 0) {
+                    fail(new IllegalArgumentException(
+                            "Requested a non-positive number of changes: "
+                                    + requests));
+                } else if (requested > Long.MAX_VALUE - requests) {
+                    requested = Long.MAX_VALUE;
+                } else {
+                    requested += requests;
+                }
+            }
+
+            drain();
+        }
+
+        @Override
+        public final void valueChanged(final ValueBox source,
+                final int oldValue, final int newValue) {
+            final int index;
+
+            synchronized (this) {
+                if ((strategy == BackpressureStrategy.LATEST) && (count > 0)) {
+                    // Merges with the kept change
+                    changes[1] = newValue;
+                    if (changes[0] == newValue) {
+                        count = 0;
+                    }
+                } else if (count == slots) {
+                    fail(new IllegalStateException(String.format(
+                            "The subscriber fell behind more than %d changes",
+                            count)));
+                } else if ((!ended) && (error == null)) {
+                    index = ((head + count) % slots) * 2;
+                    changes[index] = oldValue;
+                    changes[index + 1] = newValue;
+                    count++;
+                }
+            }
+
+            drain();
+        }
+
+        /**
+         * Sends the changes kept, if no other thread is already sending them.
+         */
+        private final void drain() {
+            if (work.getAndIncrement() == 0) {
+                emitAll();
+            }
+        }
+
+        /**
+         * Sends the next signal to the subscriber, which is either the error
+         * or the oldest change kept, if it was requested.
+         * 
+         * @return {@code true} if anything was sent, {@code false} otherwise
+         */
+        private final boolean emit() {
+            Throwable failure;
+            int oldValue;
+            int newValue;
+            boolean emitted;
+
+            failure = null;
+            oldValue = 0;
+            newValue = 0;
+            synchronized (this) {
+                if ((!ended) && (error != null)) {
+                    failure = error;
+                    ended = true;
+
+                    emitted = true;
+                } else if ((!ended) && (count > 0) && (requested > 0)) {
+                    oldValue = changes[head * 2];
+                    newValue = changes[head * 2 + 1];
+                    head = (head + 1) % slots;
+                    count--;
+                    if (requested != Long.MAX_VALUE) {
+                        requested--;
+                    }
+
+                    emitted = true;
+                } else {
+                    emitted = false;
+                }
+            }
+
+            if (failure != null) {
+                box.removeIntValueChangeListener(this);
+                subscriber.onError(failure);
+            } else if (emitted) {
+                subscriber.onNext(new ValueChangeEvent(box, oldValue,
+                        newValue));
+            }
+
+            return emitted;
+        }
+
+        /**
+         * Sends the changes kept for as long as there are pending calls to
+         * send them.
+         */
+        private final void emitAll() {
+            int missed;
+
+            missed = 1;
+            while (missed != 0) {
+                if (!emit()) {
+                    missed = work.addAndGet(-missed);
+                }
+            }
+        }
+
+        /**
+         * Marks the subscription as failed, if it had not ended already.
+         * <p>
+         * The error is sent to the subscriber on the next drain.
+         * 
+         * @param failure
+         *            the cause of the failure
+         */
+        private final void fail(final Throwable failure) {
+            if ((!ended) && (error == null)) {
+                error = failure;
+                count = 0;
+            }
+        }
+
+        /**
+         * Tells the subscriber about the subscription, and then sends any
+         * change which was requested meanwhile.
+         */
+        private final void start() {
+            subscriber.onSubscribe(this);
+
+            emitAll();
+        }
+
+    }
+
+    /**
+     * The {@code ValueBox} whose changes are published.
+     */
+    private final ValueBox             box;
+    /**
+     * Maximum number of changes kept for each subscriber, with the buffer
+     * strategy.
+     */
+    private final int                  capacity;
+    /**
+     * What is done with the changes which were not requested.
+     */
+    private final BackpressureStrategy strategy;
+
+    /**
+     * Constructs a publisher for the specified {@code ValueBox}, which keeps
+     * only the latest value for subscribers which fall behind.
+     * 
+     * @param box
+     *            the {@code ValueBox} whose changes are published
+     */
+    public ValueBoxPublisher(final ValueBox box) {
+        this(box, BackpressureStrategy.LATEST, 1);
+    }
+
+    /**
+     * Constructs a publisher for the specified {@code ValueBox}, strategy and
+     * capacity.
+     * 
+     * @param box
+     *            the {@code ValueBox} whose changes are published
+     * @param strategy
+     *            what is done with the changes which were not requested
+     * @param capacity
+     *            maximum number of changes kept for each subscriber, with the
+     *            buffer strategy
+     */
+    public ValueBoxPublisher(final ValueBox box,
+            final BackpressureStrategy strategy, final int capacity) {
+        super();
+
+        this.box = checkNotNull(box, "Received a null pointer as value");
+        this.strategy = checkNotNull(strategy,
+                "Received a null pointer as backpressure strategy");
+
+        checkArgument(capacity > 0, "The capacity should be positive");
+
+        this.capacity = capacity;
+    }
+
+    @Override
+    public final void subscribe(final ValueChangeSubscriber subscriber) {
+        final BoxSubscription subscription;
+
+        checkNotNull(subscriber, "Received a null pointer as subscriber");
+
+        subscription = new BoxSubscription(subscriber);
+        box.addIntValueChangeListener(subscription);
+
+        try {
+            subscription.start();
+        } catch (final RuntimeException exception) {
+            subscription.cancel();
+            throw exception;
+        }
+    }
+
+    @Override
+    public final String toString() {
+        return MoreObjects.toStringHelper(this).add("box", box)
+                .add("strategy", strategy).add("capacity", capacity)
+                .toString();
+    }
+
+}
@@ -49,11 +49,11 @@ public final class ValueChangeEvent extends EventObject {
     /**
      * The value after the event has happened.
      */
-    private final Integer     newValue;
+    private final int         newValue;
     /**
      * The value before the event has happened.
      */
-    private final Integer     oldValue;
+    private final int         oldValue;
 
     /**
      * Constructs an instance of the event with the specified source and values.
@@ -67,15 +67,41 @@ public final class ValueChangeEvent extends EventObject {
      */
     public ValueChangeEvent(final Object source, final Integer before,
             final Integer after) {
-        super(source);
+        this(source,
+                checkNotNull(before, "Received a null pointer as the old value")
+                        .intValue(),
+                checkNotNull(after, "Received a null pointer as the new value")
+                        .intValue());
+    }
 
-        checkNotNull(before, "Received a null pointer as the old value");
-        checkNotNull(after, "Received a null pointer as the new value");
+    /**
+     * Constructs an instance of the event with the specified source and
+     * primitive values.
+     * 
+     * @param source
+     *            the source which generated the event
+     * @param before
+     *            the value before the event
+     * @param after
+     *            the value after the event
+     */
+    public ValueChangeEvent(final Object source, final int before,
+            final int after) {
+        super(source);
 
         this.oldValue = before;
         this.newValue = after;
     }
 
+    /**
+     * Returns the value after the event as a primitive.
+     * 
+     * @return the value after the event
+     */
+    public final int getNewInt() {
+        return newValue;
+    }
+
     /**
      * Returns the value after the event.
      * 
@@ -85,6 +111,15 @@ public final class ValueChangeEvent extends EventObject {
         return newValue;
     }
 
+    /**
+     * Returns the value before the event as a primitive.
+     * 
+     * @return the value before the event
+     */
+    public final int getOldInt() {
+        return oldValue;
+    }
+
     /**
      * Returns the value before the event.
      * 
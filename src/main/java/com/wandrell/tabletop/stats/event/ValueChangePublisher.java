@@ -0,0 +1,45 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.stats.event;
+
+/**
+ * Source of value changes for subscribers which control how many they are
+ * ready to receive.
+ * <p>
+ * This follows the contract of the {@code Publisher} from the Reactive
+ * Streams specification, also found in {@code java.util.concurrent.Flow}, but
+ * without depending on any of them. So bridging to any reactive library just
+ * requires forwarding the calls.
+ * 
+ * @author Bernardo Martínez Garrido
+ * @see ValueChangeSubscriber
+ */
+public interface ValueChangePublisher {
+
+    /**
+     * Adds a subscriber.
+     * <p>
+     * The subscriber receives its {@link ValueChangeSubscription} through
+     * {@link ValueChangeSubscriber#onSubscribe(ValueChangeSubscription)
+     * onSubscribe}, and won't receive any change until it requests them with
+     * it.
+     * 
+     * @param subscriber
+     *            the subscriber to add
+     */
+    public void subscribe(final ValueChangeSubscriber subscriber);
+
+}
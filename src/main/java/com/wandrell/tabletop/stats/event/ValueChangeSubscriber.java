@@ -0,0 +1,58 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.stats.event;
+
+/**
+ * Receiver of the value changes sent by a {@link ValueChangePublisher}.
+ * <p>
+ * The methods are always called one at a time, never concurrently, and
+ * {@link #onSubscribe(ValueChangeSubscription) onSubscribe} is always the
+ * first one. After that, {@link #onNext(ValueChangeEvent) onNext} is called
+ * only as many times as changes have been requested through the
+ * subscription.
+ * 
+ * @author Bernardo Martínez Garrido
+ * @see ValueChangeSubscription
+ */
+public interface ValueChangeSubscriber {
+
+    /**
+     * The subscription has failed, and no more changes will be received.
+     * 
+     * @param error
+     *            the cause of the failure
+     */
+    public void onError(final Throwable error);
+
+    /**
+     * A value has changed.
+     * 
+     * @param event
+     *            the change
+     */
+    public void onNext(final ValueChangeEvent event);
+
+    /**
+     * The subscription has started.
+     * <p>
+     * This is the moment to request the first changes.
+     * 
+     * @param subscription
+     *            the subscription, to request changes and to cancel it
+     */
+    public void onSubscribe(final ValueChangeSubscription subscription);
+
+}
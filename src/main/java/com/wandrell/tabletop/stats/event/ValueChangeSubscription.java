@@ -0,0 +1,47 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.stats.event;
+
+/**
+ * Link between a {@link ValueChangePublisher} and one of its subscribers,
+ * through which the subscriber controls the changes it receives.
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public interface ValueChangeSubscription {
+
+    /**
+     * Stops sending changes to the subscriber.
+     * <p>
+     * Calling it more than once has no effect.
+     */
+    public void cancel();
+
+    /**
+     * Requests more changes.
+     * <p>
+     * The requests add up, and once the total reaches {@code Long.MAX_VALUE}
+     * the demand is considered unbounded.
+     * <p>
+     * Requesting zero or a negative number of changes fails the subscription
+     * with an {@code IllegalArgumentException}.
+     * 
+     * @param count
+     *            number of additional changes the subscriber can receive
+     */
+    public void request(final long count);
+
+}
@@ -20,7 +20,6 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import java.util.Objects;
 
 import com.google.common.base.MoreObjects;
-import com.wandrell.tabletop.stats.event.ValueChangeEvent;
 
 /**
  * Abstract implementation of
@@ -35,8 +34,11 @@ public abstract class AbstractValueBox extends AbstractValueBoxEventFirer {
 
     /**
      * The stored value.
+     * <p>
+     * It is kept as a primitive, so modifying it does not require allocating
+     * new objects.
      */
-    private Integer storedValue;
+    private int storedValue;
 
     /**
      * Constructs a {@code DefaultValueBox}.
@@ -92,14 +94,19 @@ public abstract class AbstractValueBox extends AbstractValueBoxEventFirer {
         final AbstractValueBox other;
         other = (AbstractValueBox) obj;
 
-        return Objects.equals(storedValue, other.storedValue);
+        return storedValue == other.storedValue;
     }
 
     @Override
-    public final Integer getValue() {
+    public final int getInt() {
         return storedValue;
     }
 
+    @Override
+    public final Integer getValue() {
+        return getInt();
+    }
+
     @Override
     public int hashCode() {
         return Objects.hash(storedValue);
@@ -112,14 +119,27 @@ public abstract class AbstractValueBox extends AbstractValueBoxEventFirer {
      *            the value to store
      */
     @Override
-    public final void setValue(final Integer value) {
-        final Integer old;
+    public final void setInt(final int value) {
+        final int old;
 
         old = storedValue;
 
         storedValue = value;
 
-        fireValueChangedEvent(new ValueChangeEvent(this, old, storedValue));
+        fireValueChanged(old, storedValue);
+    }
+
+    /**
+     * Sets the value stored.
+     * 
+     * @param value
+     *            the value to store
+     */
+    @Override
+    public final void setValue(final Integer value) {
+        checkNotNull(value, "Received a null pointer as value");
+
+        setInt(value);
     }
 
     @Override
@@ -15,11 +15,13 @@
  */
 package com.wandrell.tabletop.stats.valuebox;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.Collection;
-import java.util.LinkedHashSet;
 
+import com.wandrell.tabletop.stats.event.IntValueChangeListener;
+import com.wandrell.tabletop.stats.event.ThresholdListener;
 import com.wandrell.tabletop.stats.event.ValueChangeEvent;
 import com.wandrell.tabletop.stats.event.ValueChangeListener;
 
@@ -28,15 +30,114 @@ import com.wandrell.tabletop.stats.event.ValueChangeListener;
  * process.
  * <p>
  * This is just meant to ease creating new implementations of the interface.
+ * <p>
+ * Changes should be notified through {@link #fireValueChanged(int, int)
+ * fireValueChanged}, which sends the values as they are to any
+ * {@link IntValueChangeListener}, and creates a {@link ValueChangeEvent} only
+ * if there is any {@link ValueChangeListener}. So when nothing is listening no
+ * object is created.
+ * <p>
+ * Listeners may be added or removed at any moment, even by other listeners
+ * while a change is being notified. In that case the change is still sent to
+ * the listeners registered when the notification started.
+ * <p>
+ * Listeners can also be registered weakly, in which case the
+ * {@code ValueBox} won't keep them from being garbage collected. Once they are
+ * gone they are removed, the next time a change is notified or a listener is
+ * added.
+ * <p>
+ * A {@link MetricsRecorder} can be set to watch the notifications. Without
+ * one, no metrics are gathered.
  * 
  * @author Bernardo Martínez Garrido
  */
 public abstract class AbstractValueBoxEventFirer implements ValueBox {
 
     /**
-     * The collection of listeners keeping watch on this {@code ValueBox}.
+     * Primitive listener referencing another weakly.
+     * 
+     * @author Bernardo Martínez Garrido
+     */
+    private final class WeakIntValueChangeListener extends
+            ListenerRegistry.WeakEntry implements IntValueChangeListener {
+
+        /**
+         * Constructs a weak reference to the specified listener.
+         * 
+         * @param listener
+         *            the referenced listener
+         */
+        public WeakIntValueChangeListener(
+                final IntValueChangeListener listener) {
+            super(listener);
+        }
+
+        @Override
+        public final void valueChanged(final ValueBox source,
+                final int oldValue, final int newValue) {
+            final IntValueChangeListener listener;
+
+            listener = (IntValueChangeListener) get();
+            if (listener == null) {
+                stale = true;
+            } else {
+                listener.valueChanged(source, oldValue, newValue);
+            }
+        }
+
+    }
+
+    /**
+     * Listener referencing another weakly.
+     * 
+     * @author Bernardo Martínez Garrido
+     */
+    private final class WeakValueChangeListener extends
+            ListenerRegistry.WeakEntry implements ValueChangeListener {
+
+        /**
+         * Constructs a weak reference to the specified listener.
+         * 
+         * @param listener
+         *            the referenced listener
+         */
+        public WeakValueChangeListener(final ValueChangeListener listener) {
+            super(listener);
+        }
+
+        @Override
+        public final void valueChanged(final ValueChangeEvent event) {
+            final ValueChangeListener listener;
+
+            listener = (ValueChangeListener) get();
+            if (listener == null) {
+                stale = true;
+            } else {
+                listener.valueChanged(event);
+            }
+        }
+
+    }
+
+    /**
+     * The primitive listeners keeping watch on this {@code ValueBox}.
+     */
+    private volatile ListenerRegistry<IntValueChangeListener> intListeners = ListenerRegistry.empty();
+    /**
+     * The listeners keeping watch on this {@code ValueBox}.
+     */
+    private volatile ListenerRegistry<ValueChangeListener>    listeners    = ListenerRegistry.empty();
+    /**
+     * Recorder for the metrics of the notifications.
+     * <p>
+     * If it is {@code null}, then no metrics are gathered.
+     */
+    private volatile MetricsRecorder                          recorder     = null;
+    /**
+     * Flag indicating that a weakly registered listener has been garbage
+     * collected.
      */
-    private final Collection<ValueChangeListener> listeners = new LinkedHashSet<ValueChangeListener>();
+    private boolean                                           stale        = false;
 
     /**
      * Constructs a default instance.
@@ -45,18 +146,153 @@ public abstract class AbstractValueBoxEventFirer implements ValueBox {
         super();
     }
 
+    @Override
+    public final void addIntValueChangeListener(
+            final IntValueChangeListener listener) {
+        checkNotNull(listener, "Received a null pointer as listener");
+
+        synchronized (this) {
+            intListeners = intListeners.with(listener);
+        }
+    }
+
+    @Override
+    public final void addThresholdListener(final int[] thresholds,
+            final ThresholdListener listener) {
+        final ThresholdListenerAdapter adapter;
+
+        adapter = new ThresholdListenerAdapter(listener, thresholds);
+
+        synchronized (this) {
+            checkArgument(intListeners.indexOf(adapter) < 0,
+                    "The threshold listener has already been added");
+
+            intListeners = intListeners.with(adapter);
+        }
+    }
+
     @Override
     public final void
             addValueChangeListener(final ValueChangeListener listener) {
         checkNotNull(listener, "Received a null pointer as listener");
 
-        getListeners().add(listener);
+        synchronized (this) {
+            listeners = listeners.with(listener);
+        }
+    }
+
+    /**
+     * Adds a primitive listener which won't be kept from being garbage
+     * collected.
+     * <p>
+     * The listener should be referenced from somewhere else, usually the
+     * object it updates, for as long as it is needed. Once it is collected, it
+     * is removed from this {@code ValueBox}.
+     * <p>
+     * It can be removed as any other listener.
+     * 
+     * @param listener
+     *            the listener to add
+     */
+    public final void addWeakIntValueChangeListener(
+            final IntValueChangeListener listener) {
+        checkNotNull(listener, "Received a null pointer as listener");
+
+        synchronized (this) {
+            intListeners = intListeners.with(new WeakIntValueChangeListener(
+                    listener));
+        }
+    }
+
+    /**
+     * Adds a listener which won't be kept from being garbage collected.
+     * <p>
+     * The listener should be referenced from somewhere else, usually the
+     * object it updates, for as long as it is needed. Once it is collected, it
+     * is removed from this {@code ValueBox}.
+     * <p>
+     * It can be removed as any other listener.
+     * 
+     * @param listener
+     *            the listener to add
+     */
+    public final void addWeakValueChangeListener(
+            final ValueChangeListener listener) {
+        checkNotNull(listener, "Received a null pointer as listener");
+
+        synchronized (this) {
+            listeners = listeners
+                    .with(new WeakValueChangeListener(listener));
+        }
+    }
+
+    /**
+     * Returns the recorder for the metrics of the notifications.
+     * 
+     * @return the recorder for the metrics, or {@code null} if there is none
+     */
+    public final MetricsRecorder getMetricsRecorder() {
+        return recorder;
+    }
+
+    @Override
+    public final void removeIntValueChangeListener(
+            final IntValueChangeListener listener) {
+        synchronized (this) {
+            intListeners = intListeners.without(listener);
+        }
+    }
+
+    @Override
+    public final void
+            removeThresholdListener(final ThresholdListener listener) {
+        removeIntValueChangeListener(new ThresholdListenerAdapter(listener));
     }
 
     @Override
     public final void removeValueChangeListener(
             final ValueChangeListener listener) {
-        getListeners().remove(listener);
+        synchronized (this) {
+            listeners = listeners.without(listener);
+        }
+    }
+
+    /**
+     * Sets the recorder for the metrics of the notifications.
+     * <p>
+     * The same recorder may be shared by several values. If it is
+     * {@code null}, then no metrics are gathered.
+     * 
+     * @param recorder
+     *            the recorder for the metrics
+     */
+    public final void setMetricsRecorder(final MetricsRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Notifies a change of the value.
+     * <p>
+     * This is to be called when the value is modified, and so it's state
+     * changes.
+     * <p>
+     * If there are no listeners, and no {@link ValueBoxBatch} is open, nothing
+     * is done. Otherwise the values are sent to the listeners, and a
+     * {@link ValueChangeEvent} is created only for those which require it.
+     * <p>
+     * If a {@code ValueBoxBatch} is open on the current thread the change is
+     * held back by it, and sent when the batch is committed.
+     * 
+     * @param oldValue
+     *            the value before the change
+     * @param newValue
+     *            the value after the change
+     */
+    protected final void fireValueChanged(final int oldValue,
+            final int newValue) {
+        if (!ValueBoxBatch.defer(this, oldValue, newValue)) {
+            dispatchValueChanged(oldValue, newValue, null);
+        }
     }
 
     /**
@@ -64,6 +300,9 @@ public abstract class AbstractValueBoxEventFirer implements ValueBox {
      * <p>
      * This is to be fired when the value is modified, and so it's state
      * changes.
+     * <p>
+     * If a {@link ValueBoxBatch} is open on the current thread the event is
+     * held back by it, and sent when the batch is committed.
      * 
      * @param event
      *            the event to be sent
@@ -71,13 +310,110 @@ public abstract class AbstractValueBoxEventFirer implements ValueBox {
     protected final void fireValueChangedEvent(final ValueChangeEvent event) {
         checkNotNull(event, "Received a null pointer as event");
 
-        for (final ValueChangeListener l : getListeners()) {
-            l.valueChanged(event);
+        if (!ValueBoxBatch.defer(this, event.getOldInt(), event.getNewInt())) {
+            dispatchValueChanged(event.getOldInt(), event.getNewInt(), event);
         }
     }
 
+    /**
+     * Sends the change to all the registered listeners.
+     * <p>
+     * This is done inside a {@link Propagation} scope. The listeners of any
+     * {@link AggregatedValueBox} affected by the change are called first, and
+     * the rest are held back by the scope, until all those
+     * {@code AggregatedValueBox} instances have been updated. So no listener
+     * will read an outdated derived value.
+     * <p>
+     * If there is a {@link MetricsRecorder}, the change is recorded, and the
+     * listener calls are timed if it samples the change.
+     * 
+     * @param oldValue
+     *            the value before the change
+     * @param newValue
+     *            the value after the change
+     * @param event
+     *            the event to send, or {@code null} if it should be created
+     *            when needed
+     */
+    final void dispatchValueChanged(final int oldValue, final int newValue,
+            final ValueChangeEvent event) {
+        final ListenerRegistry<IntValueChangeListener> intRegistry;
+        final ListenerRegistry<ValueChangeListener> registry;
+        final MetricsRecorder metrics;
+        final boolean timed;
+        final Propagation propagation;
+        IntValueChangeListener listener;
+        boolean others;
+        long start;
+
+        // The listeners are read once, so changes made while sending the
+        // event only affect the following ones
+        intRegistry = intListeners;
+        registry = listeners;
+
+        metrics = recorder;
+        if (metrics == null) {
+            timed = false;
+        } else {
+            timed = metrics.eventFired(this,
+                    intRegistry.size() + registry.size());
+        }
+
+        if (!intRegistry.isEmpty() || !registry.isEmpty()) {
+            propagation = Propagation.enter();
+            try {
+                // The aggregates are scheduled, and the rest held back
+                others = !registry.isEmpty();
+                for (int i = 0; i < intRegistry.size(); i++) {
+                    listener = intRegistry.get(i);
+                    if (!Propagation.isScheduler(listener)) {
+                        others = true;
+                    } else if (timed) {
+                        start = System.nanoTime();
+                        listener.valueChanged(this, oldValue, newValue);
+                        metrics.listenerCalled(this, listener,
+                                System.nanoTime() - start);
+                    } else {
+                        listener.valueChanged(this, oldValue, newValue);
+                    }
+                }
+
+                if (others) {
+                    if (timed) {
+                        propagation.defer(this, oldValue, newValue, event,
+                                intRegistry, registry, metrics);
+                    } else {
+                        propagation.defer(this, oldValue, newValue, event,
+                                intRegistry, registry, null);
+                    }
+                }
+            } finally {
+                if (stale) {
+                    purge();
+                }
+
+                propagation.exit();
+            }
+        }
+    }
+
+    /**
+     * Returns the list of registered primitive listeners.
+     * <p>
+     * This is a snapshot which can't be modified, and which won't reflect
+     * later changes.
+     * 
+     * @return the list of registered primitive listeners
+     */
+    protected final Collection<IntValueChangeListener> getIntListeners() {
+        return intListeners;
+    }
+
     /**
      * Returns the list of registered listeners.
+     * <p>
+     * This is a snapshot which can't be modified, and which won't reflect
+     * later changes.
      * 
      * @return the list of registered listeners
      */
@@ -85,4 +421,24 @@ public abstract class AbstractValueBoxEventFirer implements ValueBox {
         return listeners;
     }
 
+    /**
+     * Indicates if there is any listener of any kind registered.
+     * 
+     * @return {@code true} if there is any listener, {@code false} otherwise
+     */
+    protected final boolean hasListeners() {
+        return !getIntListeners().isEmpty() || !getListeners().isEmpty();
+    }
+
+    /**
+     * Removes all the weakly registered listeners which have been garbage
+     * collected.
+     */
+    private final synchronized void purge() {
+        stale = false;
+
+        intListeners = intListeners.purged();
+        listeners = listeners.purged();
+    }
+
 }
@@ -18,66 +18,181 @@ package com.wandrell.tabletop.stats.valuebox;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
 
 import com.google.common.base.MoreObjects;
-import com.google.common.math.IntMath;
-import com.wandrell.tabletop.stats.event.ValueChangeEvent;
-import com.wandrell.tabletop.stats.event.ValueChangeListener;
+import com.wandrell.tabletop.stats.aggregator.Aggregator;
+import com.wandrell.tabletop.stats.aggregator.SumAggregator;
+import com.wandrell.tabletop.stats.event.IntValueChangeListener;
 
 /**
  * Implementation of {@link ValueBox} which stores a collection of other
  * {@code ValueBox} instances, and generated a value which is the addition of
  * the values from all those {@code ValueBox} instances.
  * <p>
+ * Other ways of combining the values, such as taking the highest or the
+ * average of them, can be used by giving an {@link Aggregator} to the
+ * constructor. This will be told about each change, so it can update the
+ * value without going through all the {@code ValueBox} instances.
+ * <p>
  * This is a type of derived value, and so the {@link #setValue(Integer)
  * setValue} method is disabled. Trying to use it will cause an
  * {@code UnsupportedOperationException} to be thrown.
  * <p>
  * The logic behind this class is simple: a series of {@code ValueBox} instances
- * are added, and all of them receive a {@link ValueChangeListener} which will
- * update the value contained in the {@code AggregateValueBox}.
+ * are added, and all of them receive a {@link IntValueChangeListener} which
+ * will update the value contained in the {@code AggregateValueBox}.
  * <p>
  * Which means that the value is not generate when queried, and so acquiring it
  * is always done in linear time.
+ * <p>
+ * The listener can also be registered weakly, by enabling
+ * {@link #setWeakLinking(boolean) weak linking}, so the {@code ValueBox}
+ * instances being aggregated don't keep the {@code AggregatedValueBox} from
+ * being garbage collected. So, for example, an {@code AggregatedValueBox} no
+ * longer referenced won't be kept in memory by the long-lived values it
+ * aggregated, but neither will it keep notifying its own listeners. This
+ * works for any {@link AbstractValueBoxEventFirer} and for the cells of a
+ * {@link StatTable}, while other values always keep it.
+ * <p>
+ * When one of the {@code ValueBox} instances changes, the
+ * {@code AggregatedValueBox} is not updated right away. Instead all the
+ * {@code AggregatedValueBox} instances affected by the change are updated
+ * together, in order of their level, before any other listener of that
+ * {@code ValueBox} is notified. This way, when they are nested, each of them is
+ * updated, and fires an event, only once for each change, and always after the
+ * values it depends on, while the listeners of the changed value can already
+ * read the updated aggregates.
+ * <p>
+ * The levels are also used to reject cycles. Adding an
+ * {@code AggregatedValueBox} which, directly or not, aggregates this one
+ * fails, and checking it only visits those values above this one's level.
+ * <p>
+ * It can also be set to be lazy, in which case, while no listener is watching
+ * it, changes on the {@code ValueBox} instances just mark the value as
+ * outdated. This is then generated again, from all the {@code ValueBox}
+ * instances, the next time it is queried. This suits those cases where the
+ * values change a lot but the aggregated value is rarely needed, as each
+ * change is done in constant time.
  * 
  * @author Bernardo Martínez Garrido
  */
 public final class AggregatedValueBox extends AbstractValueBoxEventFirer {
 
+    /**
+     * Minimum number of parents at which those garbage collected are removed.
+     */
+    private static final int                              PARENTS_PURGE = 16;
+
+    /**
+     * Number of {@code AggregatedValueBox} instances being aggregated.
+     */
+    private int                                           aggregates    = 0;
     /**
      * The aggregated value.
      * <p>
-     * This stored the summation of the values from all the {@code ValueBox}
-     * instances added to the {@code AggregatedValueBox}.
+     * This stored the result of combining the values from all the
+     * {@code ValueBox} instances added to the {@code AggregatedValueBox}.
      * <p>
      * Each time one of these {@code ValueBox}'s value changes, this aggregated
      * value is updated.
      */
-    private Integer                    aggregated = 0;
+    private int                                           aggregated    = 0;
+    /**
+     * The operation combining the values.
+     */
+    private final Aggregator                              aggregator;
+    /**
+     * Depth in the cascade of the scheduled update.
+     * <p>
+     * If the update was scheduled through several paths, this is the deepest
+     * of them.
+     */
+    private int                                           cascade       = 0;
+    /**
+     * Flag indicating if the aggregator is outdated, and should be generated
+     * again from all the {@code ValueBox} instances.
+     */
+    private boolean                                       dirty         = false;
+    /**
+     * Flag indicating if the lazy mode is enabled.
+     */
+    private boolean                                       lazy          = false;
+    /**
+     * Level of the {@code AggregatedValueBox} in the dependency graph.
+     * <p>
+     * This is always greater than the level of any {@code AggregatedValueBox}
+     * it aggregates, and lower than the level of those aggregating it. As it
+     * is only used for comparing them, it may even be negative, and it is not
+     * changed when values are removed.
+     */
+    private int                                           level         = 1;
     /**
      * The listener to be added into any inserted {@code ValueBox}.
      */
-    private ValueChangeListener        listenerValues;
+    private IntValueChangeListener                        listenerValues;
+    /**
+     * {@code AggregatedValueBox} instances aggregating this one.
+     * <p>
+     * They are referenced weakly, so they can be garbage collected while this
+     * one is still in use.
+     */
+    private final List<WeakReference<AggregatedValueBox>> parents       = new ArrayList<WeakReference<AggregatedValueBox>>();
+    /**
+     * Number of parents at which those garbage collected will be removed.
+     */
+    private int                                           parentsPurge  = PARENTS_PURGE;
+    /**
+     * Flag indicating if the {@code AggregatedValueBox} is waiting to be
+     * updated.
+     */
+    private boolean                                       scheduled     = false;
     /**
      * Collection with all the {@code ValueBox} classes being aggregated.
      * <p>
-     * All of these have received the same {@code ValueChangeListener}, which
+     * All of these have received the same {@code IntValueChangeListener}, which
      * will be used to react when the value they store changes.
+     * <p>
+     * The {@code ValueBox} instances are compared by identity, and kept in the
+     * order they were added, while adding, removing or finding any of them is
+     * done in constant time.
+     */
+    private final Collection<ValueBox>                    valueBoxes    = new LinkedIdentitySet<ValueBox>();
+    /**
+     * Flag indicating if the listener is registered weakly on the
+     * {@code ValueBox} instances.
      */
-    private final Collection<ValueBox> valueBoxes = new LinkedList<ValueBox>();
+    private boolean                                       weakLinking   = false;
 
     {
-        // The ValueChangeListener is initialized
+        // The IntValueChangeListener is initialized
         // It will update the aggregated value with the value change
-        listenerValues = new ValueChangeListener() {
+        listenerValues = new Propagation.Scheduler() {
 
             @Override
-            public void valueChanged(final ValueChangeEvent evt) {
-                updateValue(evt.getNewValue() - evt.getOldValue());
+            public void valueChanged(final ValueBox source, final int oldValue,
+                    final int newValue) {
+                if (isNotifying()) {
+                    if (dirty) {
+                        // The value before the change is resolved first
+                        regenerate();
+                        getAggregator().replace(newValue, oldValue);
+                        aggregated = getAggregator().getResult();
+                    }
+                    getAggregator().replace(oldValue, newValue);
+                    Propagation.schedule(AggregatedValueBox.this);
+                } else {
+                    dirty = true;
+                }
             }
 
         };
@@ -87,7 +202,7 @@ public final class AggregatedValueBox extends AbstractValueBoxEventFirer {
      * Constructs an {@code AggregatedValueBox}.
      */
     public AggregatedValueBox() {
-        super();
+        this(new SumAggregator());
     }
 
     /**
@@ -105,37 +220,70 @@ public final class AggregatedValueBox extends AbstractValueBoxEventFirer {
 
         checkNotNull(box, "Received a null pointer as value box");
 
-        valueBoxes.addAll(box.valueBoxes);
+        aggregator = box.aggregator.newInstance();
+        lazy = box.lazy;
+        weakLinking = box.weakLinking;
+
+        for (final ValueBox value : box.valueBoxes) {
+            valueBoxes.add(value);
+            link(value);
+        }
 
         generateValue();
     }
 
     /**
-     * Constructs an {@code AggregatedValueBox} with the specified value boxes.
+     * Constructs an {@code AggregatedValueBox} with the specified aggregator
+     * and value boxes.
+     * <p>
+     * The aggregator should be empty, and not used by any other
+     * {@code AggregatedValueBox}.
      * 
+     * @param aggregator
+     *            the operation combining the values
      * @param boxes
      *            the boxes to be aggregated
      */
-    public AggregatedValueBox(final ValueBox... boxes) {
+    public AggregatedValueBox(final Aggregator aggregator,
+            final ValueBox... boxes) {
         super();
 
+        this.aggregator = checkNotNull(aggregator,
+                "Received a null pointer as aggregator");
+
         checkNotNull(boxes, "Received a null pointer as value boxes");
 
         for (final ValueBox box : boxes) {
             checkNotNull(box, "Received a null pointer as one of the values");
 
-            valueBoxes.add(box);
-
-            box.addValueChangeListener(getValueListener());
+            if (valueBoxes.add(box)) {
+                link(box);
+            }
         }
 
         generateValue();
     }
 
+    /**
+     * Constructs an {@code AggregatedValueBox} with the specified value boxes.
+     * <p>
+     * The values will be added together.
+     * 
+     * @param boxes
+     *            the boxes to be aggregated
+     */
+    public AggregatedValueBox(final ValueBox... boxes) {
+        this(new SumAggregator(), boxes);
+    }
+
     /**
      * Adds a value box to the aggregation collection.
      * <p>
      * If it is already on the collection, then it is not added.
+     * <p>
+     * An {@code AggregatedValueBox} can't be added if it aggregates this one,
+     * directly or through other {@code AggregatedValueBox} instances, as that
+     * would create a cycle.
      * 
      * @param box
      *            the {@code ValueBox} to add
@@ -144,29 +292,38 @@ public final class AggregatedValueBox extends AbstractValueBoxEventFirer {
         checkNotNull(box, "Received a null pointer as value box");
 
         checkArgument(box != this, "Tried to recursively add the value box");
+        if (box instanceof AggregatedValueBox) {
+            checkArgument(!((AggregatedValueBox) box).isAggregating(this),
+                    "Adding the value box would create a cycle");
+        }
 
-        final Iterator<ValueBox> itr;
-        Boolean found;
-
-        box.addValueChangeListener(getValueListener());
-
-        itr = getValueBoxesModifiable().iterator();
-        found = false;
-        while ((itr.hasNext()) && (!found)) {
-            found = (itr.next() == box);
+        if (isNotifying()) {
+            resolve();
         }
 
-        if (!found) {
-            getValueBoxesModifiable().add(box);
-            updateValue(box.getValue());
+        if (getValueBoxesModifiable().add(box)) {
+            link(box);
+            if (isNotifying()) {
+                getAggregator().add(box.getInt());
+                updateValue();
+            } else {
+                dirty = true;
+            }
         }
     }
 
     @Override
-    public final Integer getValue() {
+    public final int getInt() {
+        resolve();
+
         return aggregated;
     }
 
+    @Override
+    public final Integer getValue() {
+        return getInt();
+    }
+
     /**
      * Returns all the {@code ValueBox} instances being aggregated.
      * 
@@ -176,6 +333,27 @@ public final class AggregatedValueBox extends AbstractValueBoxEventFirer {
         return Collections.unmodifiableCollection(getValueBoxesModifiable());
     }
 
+    /**
+     * Indicates if the lazy mode is enabled.
+     * 
+     * @return {@code true} if the lazy mode is enabled, {@code false}
+     *         otherwise
+     */
+    public final boolean isLazy() {
+        return lazy;
+    }
+
+    /**
+     * Indicates if the listener is registered weakly on the {@code ValueBox}
+     * instances.
+     * 
+     * @return {@code true} if the {@code ValueBox} instances don't keep this
+     *         one from being garbage collected, {@code false} otherwise
+     */
+    public final boolean isWeakLinking() {
+        return weakLinking;
+    }
+
     /**
      * Removes a value box.
      * 
@@ -185,19 +363,35 @@ public final class AggregatedValueBox extends AbstractValueBoxEventFirer {
     public final void removeValueBox(final ValueBox box) {
         checkNotNull(box, "Received a null pointer as value");
 
-        final Integer size;
-
-        size = getValueBoxesModifiable().size();
-
-        getValueBoxesModifiable().remove(box);
-
-        box.removeValueChangeListener(getValueListener());
+        if (isNotifying()) {
+            resolve();
+        }
 
-        if (size != getValueBoxesModifiable().size()) {
-            updateValue(0 - box.getValue());
+        if (getValueBoxesModifiable().remove(box)) {
+            unlink(box);
+            if (isNotifying()) {
+                getAggregator().remove(box.getInt());
+                updateValue();
+            } else {
+                dirty = true;
+            }
         }
     }
 
+    /**
+     * Disabled setter.
+     * <p>
+     * This is a derived value, so the setter will throw an
+     * {@link UnsupportedOperationException} if it is called.
+     * 
+     * @param value
+     *            the value to store
+     */
+    @Override
+    public final void setInt(final int value) {
+        throw new UnsupportedOperationException("Setting the value is disabled");
+    }
+
     /**
      * Disabled setter.
      * <p>
@@ -212,6 +406,21 @@ public final class AggregatedValueBox extends AbstractValueBoxEventFirer {
         throw new UnsupportedOperationException("Setting the value is disabled");
     }
 
+    /**
+     * Enables or disables the lazy mode.
+     * <p>
+     * When enabled, and while there are no listeners, changes on the
+     * {@code ValueBox} instances won't update the aggregated value, which will
+     * be generated again when queried.
+     * 
+     * @param lazy
+     *            {@code true} to enable the lazy mode, {@code false} to disable
+     *            it
+     */
+    public final void setLazy(final boolean lazy) {
+        this.lazy = lazy;
+    }
+
     /**
      * Sets the {@code ValueBox} instances being aggregated.
      * <p>
@@ -224,6 +433,9 @@ public final class AggregatedValueBox extends AbstractValueBoxEventFirer {
     public final void setValueBoxes(final Collection<ValueBox> boxes) {
         checkNotNull(boxes, "Received a null pointer as the value boxes");
 
+        for (final ValueBox value : getValueBoxesModifiable()) {
+            unlink(value);
+        }
         getValueBoxesModifiable().clear();
         for (final ValueBox value : boxes) {
             addValueBox(value);
@@ -232,48 +444,159 @@ public final class AggregatedValueBox extends AbstractValueBoxEventFirer {
         generateValue();
     }
 
+    /**
+     * Enables or disables registering the listener weakly on the
+     * {@code ValueBox} instances.
+     * <p>
+     * When enabled, the {@code ValueBox} instances being aggregated won't keep
+     * this one from being garbage collected. Then it should be referenced
+     * from somewhere else for as long as it is needed, as otherwise it may
+     * stop being updated and notifying its listeners at any moment.
+     * <p>
+     * It is disabled by default. The {@code ValueBox} instances already
+     * aggregated are registered again.
+     * 
+     * @param weak
+     *            {@code true} to register the listener weakly, {@code false}
+     *            to register it normally
+     */
+    public final void setWeakLinking(final boolean weak) {
+        if (weak != weakLinking) {
+            for (final ValueBox value : getValueBoxesModifiable()) {
+                value.removeIntValueChangeListener(getValueListener());
+            }
+
+            weakLinking = weak;
+
+            for (final ValueBox value : getValueBoxesModifiable()) {
+                listen(value);
+            }
+        }
+    }
+
+    /**
+     * Returns the depth in the cascade of the scheduled update.
+     * 
+     * @return the depth in the cascade of the scheduled update
+     */
+    final int getCascade() {
+        return cascade;
+    }
+
+    /**
+     * Returns the level of the {@code AggregatedValueBox} in the dependency
+     * graph.
+     * 
+     * @return the level in the dependency graph
+     */
+    final int getLevel() {
+        return level;
+    }
+
+    /**
+     * Removes the scheduled flag, and marks the value as outdated, along those
+     * of all the {@code AggregatedValueBox} instances aggregating it.
+     * <p>
+     * This is used when the update fails, or is cancelled, as then the values
+     * depending on it may not be updated. They will be generated again, from
+     * all their {@code ValueBox} instances, when queried.
+     */
+    final void invalidate() {
+        final Deque<AggregatedValueBox> pending;
+        final Set<AggregatedValueBox> visited;
+        AggregatedValueBox current;
+        AggregatedValueBox parent;
+
+        scheduled = false;
+
+        pending = new ArrayDeque<AggregatedValueBox>();
+        visited = Collections
+                .newSetFromMap(new IdentityHashMap<AggregatedValueBox, Boolean>());
+
+        pending.push(this);
+        visited.add(this);
+        while (!pending.isEmpty()) {
+            current = pending.pop();
+            current.dirty = true;
+
+            for (final WeakReference<AggregatedValueBox> reference : current.parents) {
+                parent = reference.get();
+                if ((parent != null) && (visited.add(parent))) {
+                    pending.push(parent);
+                }
+            }
+        }
+    }
+
+    /**
+     * Marks the {@code AggregatedValueBox} as scheduled for update.
+     * 
+     * @param depth
+     *            the depth of the update in the cascade
+     * @return {@code true} if it was not already scheduled, {@code false}
+     *         otherwise
+     */
+    final boolean markScheduled(final int depth) {
+        final boolean marked;
+
+        marked = !scheduled;
+        if ((marked) || (depth > cascade)) {
+            cascade = depth;
+        }
+        scheduled = true;
+
+        return marked;
+    }
+
+    /**
+     * Updates the value after it was scheduled.
+     * <p>
+     * If there is a {@link MetricsRecorder}, the update is recorded along its
+     * depth in the cascade.
+     */
+    final void propagate() {
+        final MetricsRecorder metrics;
+
+        scheduled = false;
+
+        updateValue();
+
+        metrics = getMetricsRecorder();
+        if (metrics != null) {
+            metrics.aggregateUpdated(this, cascade);
+        }
+    }
+
     @Override
     public final String toString() {
-        return MoreObjects.toStringHelper(this).add("values", valueBoxes)
-                .toString();
+        return MoreObjects.toStringHelper(this).add("aggregator", aggregator)
+                .add("values", valueBoxes).toString();
     }
 
     /**
-     * adds together all the {@code ValueBox} values and stores the resulting
-     * value as the aggregated value.
+     * Marks the aggregator as outdated, so it is generated again from all the
+     * {@code ValueBox} values, and updates the aggregated value unless it can
+     * wait until being queried.
      * <p>
      * This is to be used only when there is no other way to update the value,
      * as it will iterate over all {@code ValueBox} instances being kept on the
      * {@code AggregatedValueBox}.
      */
     private final void generateValue() {
-        final Integer old;       // Old value, for the value change event
-        ValueBox vhValue = null; // Iterated ValueBox
+        dirty = true;
 
-        old = aggregated;
-        aggregated = 0;
-        try {
-            for (final ValueBox vh : getValueBoxesModifiable()) {
-                vhValue = vh;
-                // Tries to add the value
-                aggregated = IntMath.checkedAdd(aggregated, vh.getValue());
-            }
-        } catch (final ArithmeticException exception) {
-            // Overflow
-            if (vhValue == null) {
-                aggregated = 0;
-            } else if (vhValue.getValue() < 0) {
-                // It was a substraction
-                // The aggregated value is set to the minimum
-                aggregated = Integer.MIN_VALUE;
-            } else {
-                // It was an addition
-                // The aggregated value is set to the maximum
-                aggregated = Integer.MAX_VALUE;
-            }
+        if (isNotifying()) {
+            updateValue();
         }
+    }
 
-        fireValueChangedEvent(new ValueChangeEvent(this, old, aggregated));
+    /**
+     * Returns the operation combining the values.
+     * 
+     * @return the operation combining the values
+     */
+    private final Aggregator getAggregator() {
+        return aggregator;
     }
 
     /**
@@ -293,40 +616,246 @@ public final class AggregatedValueBox extends AbstractValueBoxEventFirer {
      * 
      * @return the listener to apply to the {@code ValueBox} instances
      */
-    private final ValueChangeListener getValueListener() {
+    private final IntValueChangeListener getValueListener() {
         return listenerValues;
     }
 
     /**
-     * Updates the value stored with the value received.
+     * Indicates if the received {@code AggregatedValueBox} is aggregated by
+     * this one, directly or through other {@code AggregatedValueBox}
+     * instances.
      * <p>
-     * The value received will be added to the aggregated value.
+     * The levels are used to prune the search. As an
+     * {@code AggregatedValueBox} is always above the ones it aggregates, only
+     * those above the searched one need to be visited, and if this one is not
+     * above it, then nothing is visited at all.
      * 
-     * @param value
-     *            value to add to the aggregated value
+     * @param box
+     *            the {@code AggregatedValueBox} to search for
+     * @return {@code true} if it is aggregated by this one, {@code false}
+     *         otherwise
      */
-    private final void updateValue(final Integer value) {
-        final Integer old;      // Old value, for the value change event
+    private final boolean isAggregating(final AggregatedValueBox box) {
+        final Deque<AggregatedValueBox> pending;
+        final Set<AggregatedValueBox> visited;
+        AggregatedValueBox current;
+        AggregatedValueBox child;
+        boolean found;
 
-        old = aggregated;
+        found = false;
+        if (level > box.level) {
+            pending = new ArrayDeque<AggregatedValueBox>();
+            visited = Collections
+                    .newSetFromMap(new IdentityHashMap<AggregatedValueBox, Boolean>());
+
+            pending.push(this);
+            while ((!found) && (!pending.isEmpty())) {
+                current = pending.pop();
+                for (final ValueBox value : current.valueBoxes) {
+                    if (value == box) {
+                        found = true;
+                    } else if (value instanceof AggregatedValueBox) {
+                        child = (AggregatedValueBox) value;
+                        if ((child.level > box.level) && (visited.add(child))) {
+                            pending.push(child);
+                        }
+                    }
+                }
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * Checks if the changes should be applied, and notified, right away.
+     * <p>
+     * This is always the case, unless the lazy mode is enabled and there are
+     * no listeners.
+     * 
+     * @return {@code true} if the changes should be applied right away,
+     *         {@code false} if they can wait until the value is queried
+     */
+    private final boolean isNotifying() {
+        return !lazy || hasListeners();
+    }
 
-        try {
-            // Tries to add the value
-            aggregated = IntMath.checkedAdd(aggregated, value);
-        } catch (final ArithmeticException exception) {
-            // Overflow
-            if (value < 0) {
-                // It was a substraction
-                // The aggregated value is set to the minimum
-                aggregated = Integer.MIN_VALUE;
+    /**
+     * Links the received {@code ValueBox} as a dependency.
+     * <p>
+     * The listener is added to it and, if it is an
+     * {@code AggregatedValueBox}, then the level is raised above its own.
+     * <p>
+     * If that {@code AggregatedValueBox} doesn't aggregate any other, then its
+     * level is lowered below this one's instead, as nothing depends on it
+     * being higher. This way, building a chain from the top down doesn't need
+     * raising the whole chain each time a value is added at the bottom.
+     * 
+     * @param box
+     *            the {@code ValueBox} being aggregated
+     */
+    private final void link(final ValueBox box) {
+        final AggregatedValueBox child;
+
+        listen(box);
+
+        if (box instanceof AggregatedValueBox) {
+            child = (AggregatedValueBox) box;
+            if (child.parents.size() >= child.parentsPurge) {
+                // Collected parents are removed each time the list doubles
+                child.removeParent(null);
+                child.parentsPurge = Math.max(PARENTS_PURGE,
+                        child.parents.size() * 2);
+            }
+            child.parents.add(new WeakReference<AggregatedValueBox>(this));
+            if ((child.level >= level) && (child.aggregates == 0)) {
+                child.level = level - 1;
             } else {
-                // It was an addition
-                // The aggregated value is set to the maximum
-                aggregated = Integer.MAX_VALUE;
+                raiseLevel(child.level + 1);
+            }
+            aggregates++;
+        }
+    }
+
+    /**
+     * Adds the listener to the received {@code ValueBox}.
+     * <p>
+     * If weak linking is enabled, it is registered weakly when possible, so
+     * the {@code ValueBox} won't keep this {@code AggregatedValueBox} from
+     * being garbage collected.
+     * 
+     * @param box
+     *            the {@code ValueBox} being aggregated
+     */
+    private final void listen(final ValueBox box) {
+        if ((weakLinking) && (box instanceof AbstractValueBoxEventFirer)) {
+            ((AbstractValueBoxEventFirer) box)
+                    .addWeakIntValueChangeListener(getValueListener());
+        } else if ((weakLinking) && (box instanceof StatTable.CellValueBox)) {
+            ((StatTable.CellValueBox) box)
+                    .addWeakIntValueChangeListener(getValueListener());
+        } else {
+            box.addIntValueChangeListener(getValueListener());
+        }
+    }
+
+    /**
+     * Raises the level to the received one, if it is higher, and then does
+     * the same for all the {@code AggregatedValueBox} instances aggregating
+     * this one.
+     * <p>
+     * The instances to raise are kept in a deque, instead of raising them
+     * recursively, so long chains won't overflow the stack.
+     * 
+     * @param minimum
+     *            the minimum level
+     */
+    private final void raiseLevel(final int minimum) {
+        final Deque<AggregatedValueBox> pending;
+        Iterator<WeakReference<AggregatedValueBox>> itr;
+        AggregatedValueBox current;
+        AggregatedValueBox parent;
+
+        if (minimum > level) {
+            level = minimum;
+
+            pending = new ArrayDeque<AggregatedValueBox>();
+            pending.push(this);
+            while (!pending.isEmpty()) {
+                current = pending.pop();
+
+                itr = current.parents.iterator();
+                while (itr.hasNext()) {
+                    parent = itr.next().get();
+                    if (parent == null) {
+                        itr.remove();
+                    } else if (parent.level <= current.level) {
+                        parent.level = current.level + 1;
+                        pending.push(parent);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Gives all the {@code ValueBox} values to an empty aggregator.
+     */
+    private final void regenerate() {
+        getAggregator().clear();
+        for (final ValueBox vh : getValueBoxesModifiable()) {
+            getAggregator().add(vh.getInt());
+        }
+
+        dirty = false;
+    }
+
+    /**
+     * Removes the received {@code AggregatedValueBox} from the parents, along
+     * with any parent which has been garbage collected.
+     * 
+     * @param removed
+     *            the parent to remove
+     */
+    private final void removeParent(final AggregatedValueBox removed) {
+        AggregatedValueBox parent;
+        int kept;
+
+        // The parents kept are moved to the front, and the rest cut at once
+        kept = 0;
+        for (final WeakReference<AggregatedValueBox> reference : parents) {
+            parent = reference.get();
+            if ((parent != null) && (parent != removed)) {
+                parents.set(kept, reference);
+                kept++;
             }
         }
+        parents.subList(kept, parents.size()).clear();
+    }
+
+    /**
+     * Generates the aggregated value again if it is outdated.
+     * <p>
+     * This is done before applying a change while notifying, so the value
+     * before it is the actual one, and not the one stored before the value
+     * became outdated.
+     */
+    private final void resolve() {
+        if (dirty) {
+            regenerate();
+            aggregated = getAggregator().getResult();
+        }
+    }
+
+    /**
+     * Unlinks the received {@code ValueBox} as a dependency.
+     * 
+     * @param box
+     *            the {@code ValueBox} no longer aggregated
+     */
+    private final void unlink(final ValueBox box) {
+        box.removeIntValueChangeListener(getValueListener());
+
+        if (box instanceof AggregatedValueBox) {
+            ((AggregatedValueBox) box).removeParent(this);
+            aggregates--;
+        }
+    }
+
+    /**
+     * Updates the value stored with the result from the aggregator.
+     */
+    private final void updateValue() {
+        final int old;          // Old value, for the value change event
+
+        old = aggregated;
+
+        if (dirty) {
+            regenerate();
+        }
+        aggregated = getAggregator().getResult();
 
-        fireValueChangedEvent(new ValueChangeEvent(this, old, aggregated));
+        fireValueChanged(old, aggregated);
     }
 
 }
@@ -0,0 +1,192 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.stats.valuebox;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * Implementation of {@link ValueBox} which can be shared between threads.
+ * <p>
+ * The value is stored in an {@code AtomicInteger}, and all the modifications
+ * are done with compare-and-set operations, so no change is lost when several
+ * threads write at the same time. The listeners can be added and removed while
+ * events are being fired, as the events are sent to a copy of them.
+ * <p>
+ * Each modification notifies the listeners with the exact values replaced
+ * and stored by that modification. Events are fired on the thread which made
+ * the change, so when there is contention they may reach the listeners in a
+ * different order than the one in which the changes happened, but the old and
+ * new values on each of them will always be consistent.
+ * <p>
+ * Because of this, the listeners added to this {@code ValueBox} should be
+ * thread safe.
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class AtomicValueBox extends AbstractValueBoxEventFirer {
+
+    /**
+     * The stored value.
+     */
+    private final AtomicInteger storedValue;
+
+    /**
+     * Constructs an {@code AtomicValueBox}.
+     */
+    public AtomicValueBox() {
+        this(0);
+    }
+
+    /**
+     * Constructs an {@code AtomicValueBox} with the specified value.
+     * 
+     * @param value
+     *            the stored value
+     */
+    public AtomicValueBox(final Integer value) {
+        super();
+
+        checkNotNull(value, "Received a null pointer as value");
+
+        storedValue = new AtomicInteger(value);
+    }
+
+    /**
+     * Sets the value to the updated one if the current value is the expected
+     * one.
+     * <p>
+     * An event is fired only if the value is set.
+     * 
+     * @param expected
+     *            the expected value
+     * @param update
+     *            the new value
+     * @return {@code true} if the value was set, {@code false} if the current
+     *         value was not the expected one
+     */
+    public final boolean compareAndSet(final int expected, final int update) {
+        final boolean set;
+
+        set = storedValue.compareAndSet(expected, update);
+
+        if (set) {
+            fireValueChanged(expected, update);
+        }
+
+        return set;
+    }
+
+    /**
+     * Adds the received value to the stored one, returning the previous value.
+     * <p>
+     * If the addition overflows, the value is set to the maximum or minimum
+     * integer, in the same way as the {@link AggregatedValueBox} does.
+     * 
+     * @param delta
+     *            the value to add
+     * @return the value before the addition
+     */
+    public final int getAndAdd(final int delta) {
+        int old;
+        int updated;
+
+        do {
+            old = storedValue.get();
+            updated = SaturatedMath.add(old, delta);
+        } while (!storedValue.compareAndSet(old, updated));
+
+        fireValueChanged(old, updated);
+
+        return old;
+    }
+
+    @Override
+    public final int getInt() {
+        return storedValue.get();
+    }
+
+    @Override
+    public final Integer getValue() {
+        return getInt();
+    }
+
+    /**
+     * Sets the stored value.
+     * 
+     * @param value
+     *            the value to store
+     */
+    @Override
+    public final void setInt(final int value) {
+        final int old;
+
+        old = storedValue.getAndSet(value);
+
+        fireValueChanged(old, value);
+    }
+
+    /**
+     * Sets the stored value.
+     * 
+     * @param value
+     *            the value to store
+     */
+    @Override
+    public final void setValue(final Integer value) {
+        checkNotNull(value, "Received a null pointer as value");
+
+        setInt(value);
+    }
+
+    @Override
+    public final String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("storedValue", storedValue.get()).toString();
+    }
+
+    /**
+     * Applies the received operation to the stored value, returning the
+     * updated value.
+     * <p>
+     * If another thread modifies the value while the operation is being
+     * applied, it will be applied again over the new value. So it should not
+     * have side effects.
+     * 
+     * @param operator
+     *            the operation to apply
+     * @return the updated value
+     */
+    public final int updateAndGet(final ValueOperator operator) {
+        int old;
+        int updated;
+
+        checkNotNull(operator, "Received a null pointer as operator");
+
+        do {
+            old = storedValue.get();
+            updated = operator.apply(old);
+        } while (!storedValue.compareAndSet(old, updated));
+
+        fireValueChanged(old, updated);
+
+        return updated;
+    }
+
+}
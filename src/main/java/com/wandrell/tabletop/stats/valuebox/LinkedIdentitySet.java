@@ -0,0 +1,227 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.stats.valuebox;
+
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Set comparing its elements by identity, and keeping the order in which they
+ * were inserted.
+ * <p>
+ * The elements are indexed by an {@code IdentityHashMap}, and linked in a
+ * list, so adding, removing and checking an element are all done in constant
+ * time, while the iteration follows the insertion order.
+ * <p>
+ * This is used by the {@link AggregatedValueBox}, as the {@code ValueBox}
+ * implementations may be equal by value while being different instances.
+ * 
+ * @author Bernardo Martínez Garrido
+ * @param <E>
+ *            the type of the elements
+ */
+final class LinkedIdentitySet<E> extends AbstractSet<E> {
+
+    /**
+     * Node linking an element with the ones around it.
+     * 
+     * @author Bernardo Martínez Garrido
+     * @param <E>
+     *            the type of the element
+     */
+    private static final class Node<E> {
+
+        /**
+         * The element stored.
+         */
+        private final E element;
+        /**
+         * The next node.
+         */
+        private Node<E> next;
+        /**
+         * The previous node.
+         */
+        private Node<E> previous;
+
+        /**
+         * Constructs a node for the specified element.
+         * 
+         * @param element
+         *            the element to store
+         */
+        public Node(final E element) {
+            super();
+
+            this.element = element;
+        }
+
+    }
+
+    /**
+     * First node in the list.
+     */
+    private Node<E>               first    = null;
+    /**
+     * Last node in the list.
+     */
+    private Node<E>               last     = null;
+    /**
+     * Number of structural modifications, to detect them while iterating.
+     */
+    private int                   modCount = 0;
+    /**
+     * Nodes for each element.
+     */
+    private final Map<E, Node<E>> nodes    = new IdentityHashMap<E, Node<E>>();
+
+    /**
+     * Constructs a {@code LinkedIdentitySet}.
+     */
+    public LinkedIdentitySet() {
+        super();
+    }
+
+    @Override
+    public final boolean add(final E element) {
+        final Node<E> node;
+        final boolean added;
+
+        if (nodes.containsKey(element)) {
+            added = false;
+        } else {
+            node = new Node<E>(element);
+            nodes.put(element, node);
+
+            if (last == null) {
+                first = node;
+            } else {
+                last.next = node;
+                node.previous = last;
+            }
+            last = node;
+
+            modCount++;
+            added = true;
+        }
+
+        return added;
+    }
+
+    @Override
+    public final void clear() {
+        nodes.clear();
+        first = null;
+        last = null;
+        modCount++;
+    }
+
+    @Override
+    public final boolean contains(final Object element) {
+        return nodes.containsKey(element);
+    }
+
+    @Override
+    public final Iterator<E> iterator() {
+        return new Iterator<E>() {
+
+            /**
+             * Modifications count expected by the iterator.
+             */
+            private int     expected = modCount;
+            /**
+             * Node returned by the last call to next.
+             */
+            private Node<E> lastReturned;
+            /**
+             * Next node to return.
+             */
+            private Node<E> nextNode = first;
+
+            @Override
+            public final boolean hasNext() {
+                return nextNode != null;
+            }
+
+            @Override
+            public final E next() {
+                if (expected != modCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (nextNode == null) {
+                    throw new NoSuchElementException();
+                }
+
+                lastReturned = nextNode;
+                nextNode = nextNode.next;
+
+                return lastReturned.element;
+            }
+
+            @Override
+            public final void remove() {
+                if (lastReturned == null) {
+                    throw new IllegalStateException();
+                }
+                if (expected != modCount) {
+                    throw new ConcurrentModificationException();
+                }
+
+                LinkedIdentitySet.this.remove(lastReturned.element);
+                lastReturned = null;
+                expected = modCount;
+            }
+
+        };
+    }
+
+    @Override
+    public final boolean remove(final Object element) {
+        final Node<E> node;
+        final boolean removed;
+
+        node = nodes.remove(element);
+        if (node == null) {
+            removed = false;
+        } else {
+            if (node.previous == null) {
+                first = node.next;
+            } else {
+                node.previous.next = node.next;
+            }
+            if (node.next == null) {
+                last = node.previous;
+            } else {
+                node.next.previous = node.previous;
+            }
+
+            modCount++;
+            removed = true;
+        }
+
+        return removed;
+    }
+
+    @Override
+    public final int size() {
+        return nodes.size();
+    }
+
+}
@@ -0,0 +1,295 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.stats.valuebox;
+
+import java.lang.ref.WeakReference;
+import java.util.AbstractList;
+import java.util.Arrays;
+
+/**
+ * Immutable array of listeners, which is replaced by a copy each time a
+ * listener is added or removed.
+ * <p>
+ * Firing an event just walks the array, without creating an iterator. And as
+ * the array never changes, listeners may be added or removed while an event
+ * is being sent, for example by the listeners themselves. Such changes affect
+ * only the following events, as the event being sent keeps using the array it
+ * read.
+ * <p>
+ * Listeners are kept in the order they were added, and each of them is stored
+ * only once, following their {@code equals} method.
+ * <p>
+ * All the empty registries are the same instance, so the many values which
+ * are never listened share it, instead of having each an empty collection.
+ * <p>
+ * Listeners may be stored through a {@link WeakEntry}, which is treated as
+ * the listener it references. When adding a listener, any such entry whose
+ * listener has been garbage collected is dropped from the copy, and they can
+ * also be dropped all at once with {@link #purged() purged}.
+ * 
+ * @author Bernardo Martínez Garrido
+ * @param <L>
+ *            the type of listener stored
+ */
+final class ListenerRegistry<L> extends AbstractList<L> {
+
+    /**
+     * Entry referencing a listener weakly.
+     * <p>
+     * It should be a listener itself, which sends the events to the
+     * referenced one while it exists.
+     * 
+     * @author Bernardo Martínez Garrido
+     */
+    abstract static class WeakEntry extends WeakReference<Object> {
+
+        /**
+         * Constructs an entry referencing the specified listener.
+         * 
+         * @param listener
+         *            the referenced listener
+         */
+        public WeakEntry(final Object listener) {
+            super(listener);
+        }
+
+    }
+
+    /**
+     * The empty registry, shared by all the values without listeners.
+     */
+    private static final ListenerRegistry<Object> EMPTY = new ListenerRegistry<Object>(
+            new Object[0]);
+
+    /**
+     * Returns the empty registry.
+     * 
+     * @param <L>
+     *            the type of listener stored
+     * @return the empty registry
+     */
+    @SuppressWarnings("unchecked")
+    public static final <L> ListenerRegistry<L> empty() {
+        return (ListenerRegistry<L>) EMPTY;
+    }
+
+    /**
+     * The registered listeners.
+     */
+    private final Object[] listeners;
+
+    /**
+     * Constructs a registry with the specified listeners.
+     * 
+     * @param listeners
+     *            the registered listeners
+     */
+    private ListenerRegistry(final Object[] listeners) {
+        super();
+
+        this.listeners = listeners;
+    }
+
+    /**
+     * Returns the listener referenced by an entry.
+     * <p>
+     * This is the entry itself, unless it is a {@link WeakEntry}.
+     * 
+     * @param entry
+     *            the entry to dereference
+     * @return the listener referenced by the entry, or {@code null} if it has
+     *         been garbage collected
+     */
+    private static final Object dereference(final Object entry) {
+        final Object listener;
+
+        if (entry instanceof WeakEntry) {
+            listener = ((WeakEntry) entry).get();
+        } else {
+            listener = entry;
+        }
+
+        return listener;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public final L get(final int index) {
+        return (L) listeners[index];
+    }
+
+    /**
+     * Returns the position of the received listener.
+     * <p>
+     * An entry matches if it is the received object, or if the listeners they
+     * reference are equal.
+     * 
+     * @param listener
+     *            the listener to find
+     * @return the position of the listener, or {@code -1} if it is not stored
+     */
+    @Override
+    public final int indexOf(final Object listener) {
+        final Object target;
+        Object stored;
+        boolean found;
+        int index;
+
+        target = dereference(listener);
+
+        index = 0;
+        found = false;
+        while ((index < listeners.length) && (!found)) {
+            stored = dereference(listeners[index]);
+            found = (listeners[index] == listener)
+                    || ((target != null) && (target.equals(stored)));
+            if (!found) {
+                index++;
+            }
+        }
+
+        if (!found) {
+            index = -1;
+        }
+
+        return index;
+    }
+
+    @Override
+    public final int size() {
+        return listeners.length;
+    }
+
+    /**
+     * Returns a registry without the {@link WeakEntry} instances whose
+     * listener has been garbage collected.
+     * <p>
+     * If there are none, then this same registry is returned.
+     * 
+     * @return a registry without collected listeners
+     */
+    public final ListenerRegistry<L> purged() {
+        final ListenerRegistry<L> result;
+        Object[] kept;
+        int size;
+
+        kept = new Object[listeners.length];
+        size = 0;
+        for (final Object entry : listeners) {
+            if (dereference(entry) != null) {
+                kept[size] = entry;
+                size++;
+            }
+        }
+
+        if (size == listeners.length) {
+            result = this;
+        } else if (size == 0) {
+            result = empty();
+        } else {
+            kept = Arrays.copyOf(kept, size);
+            result = new ListenerRegistry<L>(kept);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns a registry with the received listener added at the end.
+     * <p>
+     * If the listener is already registered, then this same registry is
+     * returned. Otherwise the {@link WeakEntry} instances whose listener has
+     * been garbage collected are not copied into the new registry.
+     * 
+     * @param listener
+     *            the listener to add
+     * @return a registry containing the listener
+     */
+    public final ListenerRegistry<L> with(final L listener) {
+        final ListenerRegistry<L> result;
+        final Object target;
+        Object[] added;
+        Object stored;
+        boolean found;
+        int index;
+        int size;
+
+        target = dereference(listener);
+
+        // Looks for the listener while copying the live ones
+        added = new Object[listeners.length + 1];
+        size = 0;
+        index = 0;
+        found = false;
+        while ((index < listeners.length) && (!found)) {
+            stored = dereference(listeners[index]);
+            if (stored != null) {
+                found = target.equals(stored);
+                added[size] = listeners[index];
+                size++;
+            }
+            index++;
+        }
+
+        if (found) {
+            result = this;
+        } else {
+            added[size] = listener;
+            size++;
+
+            if (size < added.length) {
+                added = Arrays.copyOf(added, size);
+            }
+
+            result = new ListenerRegistry<L>(added);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns a registry without the received listener.
+     * <p>
+     * If the listener is not registered, then this same registry is returned.
+     * If it was the only one, then the empty registry is returned.
+     * 
+     * @param listener
+     *            the listener to remove
+     * @return a registry not containing the listener
+     */
+    public final ListenerRegistry<L> without(final Object listener) {
+        final ListenerRegistry<L> result;
+        final Object[] removed;
+        final int index;
+
+        index = indexOf(listener);
+        if (index < 0) {
+            result = this;
+        } else if (listeners.length == 1) {
+            result = empty();
+        } else {
+            removed = new Object[listeners.length - 1];
+            System.arraycopy(listeners, 0, removed, 0, index);
+            System.arraycopy(listeners, index + 1, removed, index,
+                    removed.length - index);
+
+            result = new ListenerRegistry<L>(removed);
+        }
+
+        return result;
+    }
+
+}
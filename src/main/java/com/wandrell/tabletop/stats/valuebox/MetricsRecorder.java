@@ -0,0 +1,83 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.stats.valuebox;
+
+import java.util.EventListener;
+
+/**
+ * Receiver of the metrics gathered while the changes of a {@link ValueBox}
+ * are sent to its listeners.
+ * <p>
+ * Recorders are set into each {@link AbstractValueBoxEventFirer} which should
+ * be watched, and may be shared between any number of them. Values without a
+ * recorder, which is the default, just check that there is none, and gather
+ * nothing.
+ * <p>
+ * The recorder is called on the thread which sent the change, so it should be
+ * thread safe if the values are modified from several threads, and it should
+ * be fast, as it slows down the notifications. To keep the cost low in
+ * production, listener calls are timed only for the events the recorder
+ * chooses to sample.
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public interface MetricsRecorder {
+
+    /**
+     * An {@code AggregatedValueBox} has been updated while propagating a
+     * change.
+     * <p>
+     * The depth is the number of {@code AggregatedValueBox} updates which led
+     * to this one, counting it. So an {@code AggregatedValueBox} updated by
+     * the change of a plain value is on depth one, one aggregating it is on
+     * depth two, and so on.
+     * 
+     * @param source
+     *            the updated {@code AggregatedValueBox}
+     * @param depth
+     *            the depth of the update in the cascade
+     */
+    public void aggregateUpdated(final ValueBox source, final int depth);
+
+    /**
+     * A change is being sent to the listeners of a value.
+     * <p>
+     * The returned flag tells if the listener calls for this change should be
+     * timed, which allows sampling them.
+     * 
+     * @param source
+     *            the value which changed
+     * @param listeners
+     *            the number of listeners which will be called
+     * @return {@code true} if the listener calls should be timed,
+     *         {@code false} otherwise
+     */
+    public boolean eventFired(final ValueBox source, final int listeners);
+
+    /**
+     * A listener has been called, for a change which was sampled.
+     * 
+     * @param source
+     *            the value which changed
+     * @param listener
+     *            the called listener
+     * @param nanos
+     *            the time spent on the listener, in nanoseconds
+     */
+    public void listenerCalled(final ValueBox source,
+            final EventListener listener, final long nanos);
+
+}
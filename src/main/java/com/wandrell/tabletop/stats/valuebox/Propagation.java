@@ -0,0 +1,492 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.stats.valuebox;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.google.common.base.Throwables;
+import com.wandrell.tabletop.stats.event.IntValueChangeListener;
+import com.wandrell.tabletop.stats.event.ValueChangeEvent;
+import com.wandrell.tabletop.stats.event.ValueChangeListener;
+
+/**
+ * Scope in which the changes to derived values are propagated.
+ * <p>
+ * When a {@code ValueBox} changes, any {@link AggregatedValueBox} affected by
+ * it is scheduled, instead of updating itself right away, and the rest of the
+ * listeners are held back. When the outermost scope is exited, the scheduled
+ * {@code AggregatedValueBox} instances are updated in order of their level,
+ * so each of them is updated after all the values it depends on, and only
+ * then the listeners held back are notified, in the order the changes
+ * happened.
+ * <p>
+ * This way, when a change reaches a derived value through several paths, such
+ * as when a value is aggregated into two {@code AggregatedValueBox} instances
+ * which are aggregated into a third one, each derived value is updated only
+ * once and fires a single event. And no listener will ever see a derived
+ * value which has not been updated yet, or which has been updated only
+ * partially, even when it is listening to one of the values it depends on.
+ * <p>
+ * The listeners held back may change other values too. When they do, the
+ * {@code AggregatedValueBox} instances affected are updated as soon as that
+ * change is done, so the listener can read them right after it, while the
+ * rest of the listeners are still held back.
+ * <p>
+ * If a listener, or an update, fails, then the rest of the changes are still
+ * updated and notified, and the first failure is thrown afterwards. Any
+ * {@code AggregatedValueBox} whose update failed is marked as outdated, along
+ * all those depending on it, so they are generated again when queried.
+ * <p>
+ * The scope also keeps track of the depth of each update in the cascade, which
+ * is the number of {@code AggregatedValueBox} updates leading to it, so it can
+ * be sent to the {@link MetricsRecorder}.
+ * <p>
+ * Each thread has its own scope, which is reused. Scopes can be entered
+ * several times, and the scheduled values are updated only when the outermost
+ * one is exited.
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+final class Propagation {
+
+    /**
+     * Change held back until the derived values are updated.
+     * <p>
+     * Instances are reused by the scope, so holding back a change doesn't
+     * create any object once the scope has grown enough.
+     * 
+     * @author Bernardo Martínez Garrido
+     */
+    private static final class Notification {
+
+        /**
+         * The event to send, or {@code null} if it should be created when
+         * needed.
+         */
+        private ValueChangeEvent                         event;
+        /**
+         * The primitive listeners to notify.
+         */
+        private ListenerRegistry<IntValueChangeListener> intListeners;
+        /**
+         * The listeners to notify.
+         */
+        private ListenerRegistry<ValueChangeListener>    listeners;
+        /**
+         * Recorder timing the listener calls, or {@code null} if they are not
+         * timed.
+         */
+        private MetricsRecorder                          metrics;
+        /**
+         * The value after the change.
+         */
+        private int                                      newValue;
+        /**
+         * The value before the change.
+         */
+        private int                                      oldValue;
+        /**
+         * The value which changed.
+         */
+        private ValueBox                                 source;
+
+        /**
+         * Constructs a {@code Notification}.
+         */
+        public Notification() {
+            super();
+        }
+
+        /**
+         * Removes all the references, so they can be garbage collected.
+         */
+        public final void clear() {
+            source = null;
+            event = null;
+            intListeners = null;
+            listeners = null;
+            metrics = null;
+        }
+
+        /**
+         * Sends the change to all the listeners which are not a
+         * {@link Scheduler}.
+         */
+        public final void notifyListeners() {
+            final ValueChangeEvent sent;
+            IntValueChangeListener intListener;
+            long start;
+
+            for (int i = 0; i < intListeners.size(); i++) {
+                intListener = intListeners.get(i);
+                if (!isScheduler(intListener)) {
+                    if (metrics == null) {
+                        intListener.valueChanged(source, oldValue, newValue);
+                    } else {
+                        start = System.nanoTime();
+                        intListener.valueChanged(source, oldValue, newValue);
+                        metrics.listenerCalled(source, intListener,
+                                System.nanoTime() - start);
+                    }
+                }
+            }
+
+            if (!listeners.isEmpty()) {
+                if (event == null) {
+                    sent = new ValueChangeEvent(source, oldValue, newValue);
+                } else {
+                    sent = event;
+                }
+
+                for (int i = 0; i < listeners.size(); i++) {
+                    if (metrics == null) {
+                        listeners.get(i).valueChanged(sent);
+                    } else {
+                        start = System.nanoTime();
+                        listeners.get(i).valueChanged(sent);
+                        metrics.listenerCalled(source, listeners.get(i),
+                                System.nanoTime() - start);
+                    }
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Listener scheduling an {@code AggregatedValueBox} for update.
+     * <p>
+     * These are called as soon as the value they listen to changes, while the
+     * rest of the listeners are held back until the derived values are
+     * updated.
+     * 
+     * @author Bernardo Martínez Garrido
+     */
+    interface Scheduler extends IntValueChangeListener {}
+
+    /**
+     * Scope for each thread.
+     */
+    private static final ThreadLocal<Propagation> CURRENT = new ThreadLocal<Propagation>() {
+
+        @Override
+        protected final Propagation initialValue() {
+            return new Propagation();
+        }
+
+    };
+
+    /**
+     * Depth in the cascade of the {@code AggregatedValueBox} being updated.
+     * <p>
+     * It is zero while no {@code AggregatedValueBox} is being updated.
+     */
+    private int                                     cascade       = 0;
+    /**
+     * Number of times the scope has been entered and not exited.
+     */
+    private int                                     depth         = 0;
+    /**
+     * Flag indicating if a listener held back is being notified.
+     */
+    private boolean                                 listening     = false;
+    /**
+     * Position of the next change held back to be notified.
+     */
+    private int                                     next          = 0;
+    /**
+     * Changes held back until the derived values are updated.
+     * <p>
+     * Only those before {@link #size} are in use, the rest are kept to be
+     * reused.
+     */
+    private final List<Notification>                notifications = new ArrayList<Notification>();
+    /**
+     * {@code AggregatedValueBox} instances waiting to be updated, sorted by
+     * their level.
+     */
+    private final PriorityQueue<AggregatedValueBox> pending       = new PriorityQueue<AggregatedValueBox>(
+            11, new Comparator<AggregatedValueBox>() {
+
+                @Override
+                public final int compare(final AggregatedValueBox first,
+                        final AggregatedValueBox second) {
+                    return Integer.compare(first.getLevel(),
+                            second.getLevel());
+                }
+
+            });
+    /**
+     * Number of changes held back.
+     */
+    private int                                     size          = 0;
+
+    /**
+     * Enters the scope for the current thread.
+     * <p>
+     * It should be exited afterwards, even if there is an error.
+     * 
+     * @return the scope for the current thread
+     */
+    public static final Propagation enter() {
+        final Propagation propagation;
+
+        propagation = CURRENT.get();
+        propagation.depth++;
+
+        return propagation;
+    }
+
+    /**
+     * Indicates if the received listener schedules an
+     * {@code AggregatedValueBox}.
+     * <p>
+     * Weakly registered listeners are checked through the listener they
+     * reference.
+     * 
+     * @param listener
+     *            the listener to check
+     * @return {@code true} if it is a {@link Scheduler}, {@code false}
+     *         otherwise
+     */
+    public static final boolean isScheduler(final Object listener) {
+        final Object target;
+
+        if (listener instanceof ListenerRegistry.WeakEntry) {
+            target = ((ListenerRegistry.WeakEntry) listener).get();
+        } else {
+            target = listener;
+        }
+
+        return target instanceof Scheduler;
+    }
+
+    /**
+     * Schedules an {@code AggregatedValueBox} to be updated.
+     * <p>
+     * If the scope is not entered, then it will be updated right away.
+     * 
+     * @param box
+     *            the {@code AggregatedValueBox} to update
+     */
+    public static final void schedule(final AggregatedValueBox box) {
+        final Propagation propagation;
+
+        propagation = enter();
+        try {
+            if (box.markScheduled(propagation.cascade + 1)) {
+                propagation.pending.add(box);
+            }
+        } finally {
+            propagation.exit();
+        }
+    }
+
+    /**
+     * Constructs a {@code Propagation}.
+     * <p>
+     * Each thread creates its own instance when needed.
+     */
+    private Propagation() {
+        super();
+    }
+
+    /**
+     * Holds back a change, to be sent to the listeners which are not a
+     * {@link Scheduler} once the derived values are updated.
+     * <p>
+     * The listeners received are those registered when the change happened.
+     * 
+     * @param source
+     *            the value which changed
+     * @param oldValue
+     *            the value before the change
+     * @param newValue
+     *            the value after the change
+     * @param event
+     *            the event to send, or {@code null} if it should be created
+     *            when needed
+     * @param intListeners
+     *            the primitive listeners to notify
+     * @param listeners
+     *            the listeners to notify
+     * @param metrics
+     *            recorder timing the listener calls, or {@code null} if they
+     *            are not timed
+     */
+    public final void defer(final ValueBox source, final int oldValue,
+            final int newValue, final ValueChangeEvent event,
+            final ListenerRegistry<IntValueChangeListener> intListeners,
+            final ListenerRegistry<ValueChangeListener> listeners,
+            final MetricsRecorder metrics) {
+        final Notification notification;
+
+        if (size == notifications.size()) {
+            notifications.add(new Notification());
+        }
+
+        notification = notifications.get(size);
+        notification.source = source;
+        notification.oldValue = oldValue;
+        notification.newValue = newValue;
+        notification.event = event;
+        notification.intListeners = intListeners;
+        notification.listeners = listeners;
+        notification.metrics = metrics;
+
+        size++;
+    }
+
+    /**
+     * Exits the scope.
+     * <p>
+     * If this is the outermost scope, then all the scheduled
+     * {@code AggregatedValueBox} instances are updated, and then the changes
+     * held back are notified. If any of this fails the rest is still done,
+     * and the first failure is thrown at the end.
+     * <p>
+     * If instead this is the scope of a change made by one of those
+     * listeners, then the {@code AggregatedValueBox} instances scheduled by it
+     * are updated, so the listener reads them updated.
+     */
+    public final void exit() {
+        AggregatedValueBox box;
+        Throwable failure;
+
+        if (depth == 1) {
+            // The depth is kept until all the changes are notified
+            // So the events fired meanwhile just schedule other values, and
+            // are held back
+            failure = null;
+            try {
+                // The derived values are always updated before notifying
+                failure = update(failure);
+                while (next < size) {
+                    next++;
+                    listening = true;
+                    try {
+                        notifications.get(next - 1).notifyListeners();
+                    } catch (final RuntimeException | Error exception) {
+                        // The rest of the changes are still notified
+                        failure = suppress(failure, exception);
+                    }
+                    listening = false;
+                    failure = update(failure);
+                }
+            } finally {
+                depth = 0;
+                cascade = 0;
+                listening = false;
+
+                box = pending.poll();
+                while (box != null) {
+                    box.invalidate();
+                    box = pending.poll();
+                }
+
+                for (int i = 0; i < size; i++) {
+                    notifications.get(i).clear();
+                }
+                next = 0;
+                size = 0;
+            }
+
+            Throwables.propagateIfPossible(failure);
+        } else {
+            depth--;
+
+            if ((depth == 1) && (listening)) {
+                // A listener changed a value
+                // The derived values are updated before it goes on
+                listening = false;
+                try {
+                    failure = update(null);
+                } finally {
+                    listening = true;
+                }
+
+                Throwables.propagateIfPossible(failure);
+            }
+        }
+    }
+
+    /**
+     * Updates all the scheduled {@code AggregatedValueBox} instances, in order
+     * of their level.
+     * <p>
+     * If any of them fails, then it is marked as outdated, along all those
+     * depending on it, and the rest are still updated.
+     * 
+     * @param failure
+     *            the failure to throw afterwards, or {@code null} if there is
+     *            none
+     * @return the failure to throw afterwards, or {@code null} if there is
+     *         none
+     */
+    private final Throwable update(final Throwable failure) {
+        AggregatedValueBox box;
+        Throwable result;
+
+        result = failure;
+
+        box = pending.poll();
+        while (box != null) {
+            cascade = box.getCascade();
+            try {
+                box.propagate();
+            } catch (final RuntimeException | Error exception) {
+                box.invalidate();
+                result = suppress(result, exception);
+            }
+            box = pending.poll();
+        }
+        cascade = 0;
+
+        return result;
+    }
+
+    /**
+     * Adds a failure to the one to throw.
+     * <p>
+     * The first failure is the one thrown, with the rest added to it as
+     * suppressed.
+     * 
+     * @param failure
+     *            the failure to throw, or {@code null} if there is none yet
+     * @param thrown
+     *            the failure to add
+     * @return the failure to throw
+     */
+    private static final Throwable suppress(final Throwable failure,
+            final Throwable thrown) {
+        final Throwable result;
+
+        if (failure == null) {
+            result = thrown;
+        } else {
+            if (failure != thrown) {
+                failure.addSuppressed(thrown);
+            }
+            result = failure;
+        }
+
+        return result;
+    }
+
+}
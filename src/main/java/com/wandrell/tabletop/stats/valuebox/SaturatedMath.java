@@ -0,0 +1,84 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.stats.valuebox;
+
+/**
+ * Integer arithmetic which saturates at the integer limits instead of
+ * overflowing.
+ * <p>
+ * Values are usually bounded, so reaching the limit of the integers is
+ * preferred to wrapping around to the opposite sign.
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class SaturatedMath {
+
+    /**
+     * Adds two values, saturating at the integer limits.
+     * 
+     * @param value
+     *            the value to increase
+     * @param delta
+     *            the value to add
+     * @return the addition of both values, or the integer limit it overflows
+     */
+    public static final int add(final int value, final int delta) {
+        return saturate((long) value + delta);
+    }
+
+    /**
+     * Fits the received value into the range of the integers.
+     * 
+     * @param value
+     *            the value to fit
+     * @return the value, or the integer limit it overflows
+     */
+    public static final int saturate(final long value) {
+        final int result;
+
+        if (value > Integer.MAX_VALUE) {
+            result = Integer.MAX_VALUE;
+        } else if (value < Integer.MIN_VALUE) {
+            result = Integer.MIN_VALUE;
+        } else {
+            result = (int) value;
+        }
+
+        return result;
+    }
+
+    /**
+     * Subtracts a value from another, saturating at the integer limits.
+     * 
+     * @param value
+     *            the value to decrease
+     * @param delta
+     *            the value to subtract
+     * @return the subtraction of both values, or the integer limit it
+     *         overflows
+     */
+    public static final int subtract(final int value, final int delta) {
+        return saturate((long) value - delta);
+    }
+
+    /**
+     * Private constructor, as this class is not to be instantiated.
+     */
+    private SaturatedMath() {
+        super();
+    }
+
+}
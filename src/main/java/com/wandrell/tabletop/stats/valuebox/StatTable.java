@@ -0,0 +1,990 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.stats.valuebox;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.MapMaker;
+import com.wandrell.tabletop.stats.event.IntValueChangeListener;
+import com.wandrell.tabletop.stats.event.ThresholdListener;
+import com.wandrell.tabletop.stats.event.ValueChangeEvent;
+import com.wandrell.tabletop.stats.event.ValueChangeListener;
+
+/**
+ * Table storing a large number of stats in primitive columns.
+ * <p>
+ * Each row represents an entity, such as a character, and each column one of
+ * its stats. The values are kept in an {@code int} array for each column, so
+ * storing a stat just takes the space of a primitive, instead of a full
+ * {@link ValueBox} with its own listeners.
+ * <p>
+ * Any cell can still be handled as a {@code ValueBox} through the views
+ * returned by {@link #getValueBox(int, int) getValueBox}. These are just a
+ * reference to the table and the cell, and they work as any other
+ * {@code ValueBox}, for example when being added to an
+ * {@link AggregatedValueBox}. While a view is referenced, the same instance is
+ * returned for its cell, so views can be compared by identity, but once
+ * discarded it is garbage collected.
+ * <p>
+ * The listeners are stored by the table, and only for those cells which have
+ * any. So all the views for the same cell share their listeners, and
+ * modifying a cell with no listeners won't create any event. Events are
+ * created only for the {@link ValueChangeListener} instances, while the
+ * {@link IntValueChangeListener} instances just receive the values.
+ * <p>
+ * Primitive listeners can also be registered weakly, in which case the table
+ * won't keep them from being garbage collected.
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class StatTable {
+
+    /**
+     * Cell with listeners.
+     * <p>
+     * Besides the listeners, it keeps the view used as source of the changes,
+     * which is created the first time one is sent.
+     * 
+     * @author Bernardo Martínez Garrido
+     */
+    private static final class Cell {
+
+        /**
+         * Key for the cell's position.
+         */
+        private final long                               key;
+        /**
+         * Listeners for the cell.
+         */
+        private ListenerRegistry<IntValueChangeListener> listeners;
+        /**
+         * View of the cell used as source of the changes.
+         * <p>
+         * It is {@code null} until the first change is sent.
+         */
+        private CellValueBox                             view = null;
+
+        /**
+         * Constructs a cell with the specified key.
+         * 
+         * @param key
+         *            key for the cell's position
+         */
+        public Cell(final long key) {
+            super();
+
+            this.key = key;
+        }
+
+    }
+
+    /**
+     * Hash table for the cells with listeners, keyed by their position.
+     * <p>
+     * The keys are primitives, so finding a cell doesn't box them. The cells
+     * are stored directly in the slots, with linear probing, and removing one
+     * shifts back those which follow it, so no tombstones are left.
+     * 
+     * @author Bernardo Martínez Garrido
+     */
+    private static final class CellMap {
+
+        /**
+         * Initial number of slots. It should be a power of two.
+         */
+        private static final int INITIAL_SLOTS = 16;
+
+        /**
+         * Number of cells stored.
+         */
+        private int              size          = 0;
+        /**
+         * Slots for the cells.
+         * <p>
+         * The size is always a power of two, and at most three quarters of
+         * them are used.
+         */
+        private Cell[]           slots         = new Cell[INITIAL_SLOTS];
+
+        /**
+         * Constructs an empty {@code CellMap}.
+         */
+        public CellMap() {
+            super();
+        }
+
+        /**
+         * Returns the cell with the specified key.
+         * 
+         * @param key
+         *            the key to find
+         * @return the cell with the key, or {@code null} if there is none
+         */
+        public final Cell get(final long key) {
+            final int mask;
+            int index;
+
+            mask = slots.length - 1;
+            index = hash(key) & mask;
+            while ((slots[index] != null) && (slots[index].key != key)) {
+                index = (index + 1) & mask;
+            }
+
+            return slots[index];
+        }
+
+        /**
+         * Stores a cell, whose key should not be in use.
+         * 
+         * @param cell
+         *            the cell to store
+         */
+        public final void put(final Cell cell) {
+            final Cell[] old;
+
+            if ((size + 1) * 4 > slots.length * 3) {
+                old = slots;
+                slots = new Cell[old.length * 2];
+                for (final Cell stored : old) {
+                    if (stored != null) {
+                        insert(stored);
+                    }
+                }
+            }
+
+            insert(cell);
+            size++;
+        }
+
+        /**
+         * Removes the cell with the specified key, if there is any.
+         * 
+         * @param key
+         *            the key to remove
+         */
+        public final void remove(final long key) {
+            final int mask;
+            int empty;
+            int index;
+            int home;
+
+            mask = slots.length - 1;
+            empty = hash(key) & mask;
+            while ((slots[empty] != null) && (slots[empty].key != key)) {
+                empty = (empty + 1) & mask;
+            }
+
+            if (slots[empty] != null) {
+                slots[empty] = null;
+                size--;
+
+                // Moves back the following cells which can't be found
+                // anymore, as their probing would stop at the empty slot
+                index = (empty + 1) & mask;
+                while (slots[index] != null) {
+                    home = hash(slots[index].key) & mask;
+                    if (((index - home) & mask) >= ((index - empty) & mask)) {
+                        slots[empty] = slots[index];
+                        slots[index] = null;
+                        empty = index;
+                    }
+                    index = (index + 1) & mask;
+                }
+            }
+        }
+
+        /**
+         * Returns the hash for the received key.
+         * 
+         * @param key
+         *            the key to hash
+         * @return the hash for the key
+         */
+        private final int hash(final long key) {
+            final int mixed;
+
+            // Mixes the bits, as the keys are consecutive positions
+            mixed = (int) (key ^ (key >>> 32)) * 0x9E3779B9;
+
+            return mixed ^ (mixed >>> 16);
+        }
+
+        /**
+         * Stores the cell in the first free slot from its hash.
+         * 
+         * @param cell
+         *            the cell to store
+         */
+        private final void insert(final Cell cell) {
+            final int mask;
+            int index;
+
+            mask = slots.length - 1;
+            index = hash(cell.key) & mask;
+            while (slots[index] != null) {
+                index = (index + 1) & mask;
+            }
+
+            slots[index] = cell;
+        }
+
+    }
+
+    /**
+     * View of a single cell as a {@code ValueBox}.
+     * <p>
+     * It just stores the position of the cell, delegating everything else into
+     * the table.
+     * <p>
+     * It is visible in the package, so an {@link AggregatedValueBox} can
+     * register its listener weakly.
+     * 
+     * @author Bernardo Martínez Garrido
+     */
+    static final class CellValueBox implements ValueBox {
+
+        /**
+         * The cell's column.
+         */
+        private final int       column;
+        /**
+         * The cell's row.
+         */
+        private final int       row;
+        /**
+         * The table containing the cell.
+         */
+        private final StatTable table;
+
+        /**
+         * Constructs a view for the specified cell.
+         * 
+         * @param table
+         *            the table containing the cell
+         * @param row
+         *            the cell's row
+         * @param column
+         *            the cell's column
+         */
+        public CellValueBox(final StatTable table, final int row,
+                final int column) {
+            super();
+
+            this.table = table;
+            this.row = row;
+            this.column = column;
+        }
+
+        @Override
+        public final void addIntValueChangeListener(
+                final IntValueChangeListener listener) {
+            table.addIntValueChangeListener(row, column, listener);
+        }
+
+        @Override
+        public final void addThresholdListener(final int[] thresholds,
+                final ThresholdListener listener) {
+            table.addThresholdListener(row, column, thresholds, listener);
+        }
+
+        @Override
+        public final void addValueChangeListener(
+                final ValueChangeListener listener) {
+            table.addValueChangeListener(row, column, listener);
+        }
+
+        /**
+         * Adds a primitive listener which won't be kept from being garbage
+         * collected.
+         * 
+         * @param listener
+         *            the listener to add
+         */
+        public final void addWeakIntValueChangeListener(
+                final IntValueChangeListener listener) {
+            table.addWeakIntValueChangeListener(row, column, listener);
+        }
+
+        @Override
+        public final boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+
+            if (obj == null) {
+                return false;
+            }
+
+            if (getClass() != obj.getClass()) {
+                return false;
+            }
+
+            final CellValueBox other;
+            other = (CellValueBox) obj;
+
+            return (table == other.table) && (row == other.row)
+                    && (column == other.column);
+        }
+
+        @Override
+        public final int getInt() {
+            return table.getInt(row, column);
+        }
+
+        @Override
+        public final Integer getValue() {
+            return getInt();
+        }
+
+        @Override
+        public final int hashCode() {
+            return (31 * (31 * System.identityHashCode(table) + row))
+                    + column;
+        }
+
+        @Override
+        public final void removeIntValueChangeListener(
+                final IntValueChangeListener listener) {
+            table.removeIntValueChangeListener(row, column, listener);
+        }
+
+        @Override
+        public final void removeThresholdListener(
+                final ThresholdListener listener) {
+            table.removeIntValueChangeListener(row, column,
+                    new ThresholdListenerAdapter(listener));
+        }
+
+        @Override
+        public final void removeValueChangeListener(
+                final ValueChangeListener listener) {
+            table.removeValueChangeListener(row, column, listener);
+        }
+
+        @Override
+        public final void setInt(final int value) {
+            table.setInt(row, column, value);
+        }
+
+        @Override
+        public final void setValue(final Integer value) {
+            checkNotNull(value, "Received a null pointer as value");
+
+            setInt(value);
+        }
+
+        @Override
+        public final String toString() {
+            return MoreObjects.toStringHelper(this).add("row", row)
+                    .add("column", column).add("value", getInt())
+                    .toString();
+        }
+
+    }
+
+    /**
+     * Adapter sending the changes to a {@code ValueChangeListener}, as an
+     * event.
+     * <p>
+     * Adapters are equal when they wrap the same listener, so they can be
+     * found when removing it.
+     * 
+     * @author Bernardo Martínez Garrido
+     */
+    private static final class EventListenerAdapter implements
+            IntValueChangeListener {
+
+        /**
+         * The wrapped listener.
+         */
+        private final ValueChangeListener listener;
+
+        /**
+         * Constructs an adapter for the specified listener.
+         * 
+         * @param listener
+         *            the listener to wrap
+         */
+        public EventListenerAdapter(final ValueChangeListener listener) {
+            super();
+
+            this.listener = listener;
+        }
+
+        @Override
+        public final boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+
+            if (obj == null) {
+                return false;
+            }
+
+            if (getClass() != obj.getClass()) {
+                return false;
+            }
+
+            return listener.equals(((EventListenerAdapter) obj).listener);
+        }
+
+        @Override
+        public final int hashCode() {
+            return listener.hashCode();
+        }
+
+        @Override
+        public final void valueChanged(final ValueBox source,
+                final int oldValue, final int newValue) {
+            listener.valueChanged(new ValueChangeEvent(source, oldValue,
+                    newValue));
+        }
+
+    }
+
+    /**
+     * Primitive listener referencing another weakly.
+     * <p>
+     * It knows the cell it was added to, so once the referenced listener is
+     * collected only the listeners of that cell are purged.
+     * 
+     * @author Bernardo Martínez Garrido
+     */
+    private final class WeakIntValueChangeListener extends
+            ListenerRegistry.WeakEntry implements IntValueChangeListener {
+
+        /**
+         * Column of the listened cell.
+         */
+        private final int column;
+        /**
+         * Row of the listened cell.
+         */
+        private final int row;
+
+        /**
+         * Constructs a weak reference to the specified listener, added to the
+         * specified cell.
+         * 
+         * @param listener
+         *            the referenced listener
+         * @param row
+         *            the cell's row
+         * @param column
+         *            the cell's column
+         */
+        public WeakIntValueChangeListener(
+                final IntValueChangeListener listener, final int row,
+                final int column) {
+            super(listener);
+
+            this.row = row;
+            this.column = column;
+        }
+
+        @Override
+        public final void valueChanged(final ValueBox source,
+                final int oldValue, final int newValue) {
+            final IntValueChangeListener listener;
+
+            listener = (IntValueChangeListener) get();
+            if (listener == null) {
+                purge(row, column);
+            } else {
+                listener.valueChanged(source, oldValue, newValue);
+            }
+        }
+
+    }
+
+    /**
+     * Default number of rows for which space is reserved.
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * Cells with listeners, keyed by their position.
+     * <p>
+     * Only the cells with listeners have an entry.
+     */
+    private final CellMap                 cells = new CellMap();
+    /**
+     * The columns storing the values.
+     * <p>
+     * Each array is a column, and each position on them a row.
+     */
+    private final int[][]                 columns;
+    /**
+     * Cells with listeners, for each column.
+     * <p>
+     * This allows checking if a cell has listeners without searching for them.
+     */
+    private final BitSet[]                listened;
+    /**
+     * Number of rows in use.
+     */
+    private int                           rows  = 0;
+    /**
+     * Views for the cells, keyed by the cell position.
+     * <p>
+     * They are referenced weakly, so only the views in use are kept.
+     */
+    private final Map<Long, CellValueBox> views;
+
+    /**
+     * Constructs a {@code StatTable} with the specified number of columns.
+     * 
+     * @param columnCount
+     *            the number of stats for each row
+     */
+    public StatTable(final int columnCount) {
+        this(columnCount, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a {@code StatTable} with the specified number of columns, and
+     * reserving space for the specified number of rows.
+     * 
+     * @param columnCount
+     *            the number of stats for each row
+     * @param capacity
+     *            the number of rows for which space is reserved
+     */
+    public StatTable(final int columnCount, final int capacity) {
+        super();
+
+        checkArgument(columnCount >= 0,
+                "The number of columns can't be negative");
+        checkArgument(capacity >= 0, "The capacity can't be negative");
+
+        columns = new int[columnCount][capacity];
+        views = new MapMaker().weakValues().makeMap();
+        listened = new BitSet[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            listened[i] = new BitSet();
+        }
+    }
+
+    /**
+     * Adds a new row, with all its values set to zero.
+     * 
+     * @return the index of the new row
+     */
+    public final int addRow() {
+        final int capacity;
+
+        if ((columns.length > 0) && (rows == columns[0].length)) {
+            capacity = Math.max(DEFAULT_CAPACITY, rows + (rows >> 1));
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = Arrays.copyOf(columns[i], capacity);
+            }
+        }
+
+        return rows++;
+    }
+
+    /**
+     * Adds a primitive listener to the specified cell.
+     * 
+     * @param row
+     *            the cell's row
+     * @param column
+     *            the cell's column
+     * @param listener
+     *            the listener to add
+     */
+    public final void addIntValueChangeListener(final int row,
+            final int column, final IntValueChangeListener listener) {
+        checkCell(row, column);
+        checkNotNull(listener, "Received a null pointer as listener");
+
+        setListeners(row, column, getListeners(row, column).with(listener));
+    }
+
+    /**
+     * Adds a listener to the specified cell.
+     * 
+     * @param row
+     *            the cell's row
+     * @param column
+     *            the cell's column
+     * @param listener
+     *            the listener to add
+     */
+    public final void addValueChangeListener(final int row, final int column,
+            final ValueChangeListener listener) {
+        checkNotNull(listener, "Received a null pointer as listener");
+
+        addIntValueChangeListener(row, column,
+                new EventListenerAdapter(listener));
+    }
+
+    /**
+     * Adds a primitive listener to the specified cell, which won't be kept
+     * from being garbage collected.
+     * <p>
+     * The listener should be referenced from somewhere else for as long as it
+     * is needed. Once it is collected, it is removed from the cell.
+     * <p>
+     * It can be removed as any other listener.
+     * 
+     * @param row
+     *            the cell's row
+     * @param column
+     *            the cell's column
+     * @param listener
+     *            the listener to add
+     */
+    public final void addWeakIntValueChangeListener(final int row,
+            final int column, final IntValueChangeListener listener) {
+        checkNotNull(listener, "Received a null pointer as listener");
+
+        addIntValueChangeListener(row, column, new WeakIntValueChangeListener(
+                listener, row, column));
+    }
+
+    /**
+     * Returns the number of columns.
+     * 
+     * @return the number of columns
+     */
+    public final int getColumnCount() {
+        return columns.length;
+    }
+
+    /**
+     * Returns the value stored in the specified cell.
+     * 
+     * @param row
+     *            the cell's row
+     * @param column
+     *            the cell's column
+     * @return the value stored in the cell
+     */
+    public final int getInt(final int row, final int column) {
+        checkCell(row, column);
+
+        return columns[column][row];
+    }
+
+    /**
+     * Returns the number of rows.
+     * 
+     * @return the number of rows
+     */
+    public final int getRowCount() {
+        return rows;
+    }
+
+    /**
+     * Returns a {@code ValueBox} view of the specified cell.
+     * <p>
+     * While the view for a cell is referenced, the same instance is returned
+     * for it. Otherwise a new one is created, which will be equal to any
+     * previous view for the cell.
+     * 
+     * @param row
+     *            the cell's row
+     * @param column
+     *            the cell's column
+     * @return a {@code ValueBox} view of the cell
+     */
+    public final ValueBox getValueBox(final int row, final int column) {
+        checkCell(row, column);
+
+        return getView(row, column);
+    }
+
+    /**
+     * Removes a primitive listener from the specified cell.
+     * 
+     * @param row
+     *            the cell's row
+     * @param column
+     *            the cell's column
+     * @param listener
+     *            the listener to remove
+     */
+    public final void removeIntValueChangeListener(final int row,
+            final int column, final IntValueChangeListener listener) {
+        checkCell(row, column);
+
+        setListeners(row, column, getListeners(row, column).without(listener));
+    }
+
+    /**
+     * Removes a listener from the specified cell.
+     * 
+     * @param row
+     *            the cell's row
+     * @param column
+     *            the cell's column
+     * @param listener
+     *            the listener to remove
+     */
+    public final void removeValueChangeListener(final int row,
+            final int column, final ValueChangeListener listener) {
+        if (listener != null) {
+            removeIntValueChangeListener(row, column,
+                    new EventListenerAdapter(listener));
+        }
+    }
+
+    /**
+     * Sets the value stored in the specified cell.
+     * <p>
+     * If the cell has any listener, the change will be sent to them, having a
+     * view of the cell as source.
+     * 
+     * @param row
+     *            the cell's row
+     * @param column
+     *            the cell's column
+     * @param value
+     *            the value to store
+     */
+    public final void setInt(final int row, final int column, final int value) {
+        final int[] values;
+        final int old;
+
+        checkCell(row, column);
+
+        values = columns[column];
+        old = values[row];
+        values[row] = value;
+
+        if (listened[column].get(row)) {
+            fireValueChangedEvent(row, column, old, value);
+        }
+    }
+
+    @Override
+    public final String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("columns", getColumnCount()).add("rows", rows).toString();
+    }
+
+    /**
+     * Adds a threshold listener to the specified cell.
+     * <p>
+     * A listener can be added only once to each cell.
+     * 
+     * @param row
+     *            the cell's row
+     * @param column
+     *            the cell's column
+     * @param thresholds
+     *            the thresholds, in strictly ascending order
+     * @param listener
+     *            the listener to add
+     */
+    private final void addThresholdListener(final int row, final int column,
+            final int[] thresholds, final ThresholdListener listener) {
+        final ThresholdListenerAdapter adapter;
+
+        checkCell(row, column);
+
+        adapter = new ThresholdListenerAdapter(listener, thresholds);
+
+        checkArgument(getListeners(row, column).indexOf(adapter) < 0,
+                "The threshold listener has already been added");
+
+        addIntValueChangeListener(row, column, adapter);
+    }
+
+    /**
+     * Checks that the specified cell exists.
+     * 
+     * @param row
+     *            the cell's row
+     * @param column
+     *            the cell's column
+     */
+    private final void checkCell(final int row, final int column) {
+        checkElementIndex(row, rows, "Row");
+        checkElementIndex(column, columns.length, "Column");
+    }
+
+    /**
+     * Sends the change to the listeners of the specified cell.
+     * 
+     * @param row
+     *            the cell's row
+     * @param column
+     *            the cell's column
+     * @param old
+     *            the value before the change
+     * @param value
+     *            the value after the change
+     */
+    private final void fireValueChangedEvent(final int row, final int column,
+            final int old, final int value) {
+        final Cell cell;
+        final ListenerRegistry<IntValueChangeListener> cellListeners;
+        final ValueBox source;
+        final Propagation propagation;
+        IntValueChangeListener listener;
+        boolean others;
+
+        cell = cells.get(getKey(row, column));
+        cellListeners = cell.listeners;
+
+        // The view is kept by the cell, so it is created only once
+        if (cell.view == null) {
+            cell.view = getView(row, column);
+        }
+        source = cell.view;
+
+        propagation = Propagation.enter();
+        try {
+            // The aggregates are scheduled, and the rest held back
+            others = false;
+            for (int i = 0; i < cellListeners.size(); i++) {
+                listener = cellListeners.get(i);
+                if (Propagation.isScheduler(listener)) {
+                    listener.valueChanged(source, old, value);
+                } else {
+                    others = true;
+                }
+            }
+
+            if (others) {
+                propagation.defer(source, old, value, null, cellListeners,
+                        ListenerRegistry.<ValueChangeListener> empty(), null);
+            }
+        } finally {
+            propagation.exit();
+        }
+    }
+
+    /**
+     * Returns the listeners of the specified cell.
+     * 
+     * @param row
+     *            the cell's row
+     * @param column
+     *            the cell's column
+     * @return the listeners of the cell, which may be empty
+     */
+    private final ListenerRegistry<IntValueChangeListener> getListeners(
+            final int row, final int column) {
+        final Cell cell;
+        final ListenerRegistry<IntValueChangeListener> result;
+
+        cell = cells.get(getKey(row, column));
+        if (cell == null) {
+            result = ListenerRegistry.empty();
+        } else {
+            result = cell.listeners;
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the key for the specified cell on the cells map.
+     * 
+     * @param row
+     *            the cell's row
+     * @param column
+     *            the cell's column
+     * @return the key for the cell
+     */
+    private final long getKey(final int row, final int column) {
+        return ((long) column << 32) | (row & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Removes from the specified cell the weakly registered listeners which
+     * have been garbage collected.
+     * <p>
+     * This is called while sending a change to the listeners of the cell, and
+     * touches no other cell.
+     * 
+     * @param row
+     *            the cell's row
+     * @param column
+     *            the cell's column
+     */
+    private final void purge(final int row, final int column) {
+        setListeners(row, column, getListeners(row, column).purged());
+    }
+
+    /**
+     * Stores the listeners of the specified cell, removing its entry if there
+     * are none.
+     * 
+     * @param row
+     *            the cell's row
+     * @param column
+     *            the cell's column
+     * @param cellListeners
+     *            the listeners for the cell
+     */
+    private final void setListeners(final int row, final int column,
+            final ListenerRegistry<IntValueChangeListener> cellListeners) {
+        final long key;
+        Cell cell;
+
+        key = getKey(row, column);
+        cell = cells.get(key);
+        if (cellListeners.isEmpty()) {
+            if (cell != null) {
+                cells.remove(key);
+                listened[column].clear(row);
+            }
+        } else {
+            if (cell == null) {
+                cell = new Cell(key);
+                cells.put(cell);
+                listened[column].set(row);
+            }
+            cell.listeners = cellListeners;
+        }
+    }
+
+    /**
+     * Returns the view for the specified cell, creating it if there is none in
+     * use.
+     * 
+     * @param row
+     *            the cell's row
+     * @param column
+     *            the cell's column
+     * @return the view for the cell
+     */
+    private final CellValueBox getView(final int row, final int column) {
+        final Long key;
+        CellValueBox view;
+
+        key = getKey(row, column);
+        view = views.get(key);
+        if (view == null) {
+            view = new CellValueBox(this, row, column);
+            views.put(key, view);
+        }
+
+        return view;
+    }
+
+}
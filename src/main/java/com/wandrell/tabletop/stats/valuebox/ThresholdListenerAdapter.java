@@ -0,0 +1,158 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.stats.valuebox;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Arrays;
+
+import com.wandrell.tabletop.stats.event.IntValueChangeListener;
+import com.wandrell.tabletop.stats.event.ThresholdListener;
+
+/**
+ * Adapter sending to a {@code ThresholdListener} only those changes which
+ * cross any of its thresholds.
+ * <p>
+ * It is registered as any other {@code IntValueChangeListener}, and finds the
+ * band of the values before and after each change with a binary search over
+ * the thresholds, so changes inside a band are discarded without creating any
+ * object.
+ * <p>
+ * Adapters are equal when they wrap the same listener, so they can be found
+ * when removing it. For the same reason, a listener can be added only once to
+ * each {@code ValueBox}, which is checked when adding it.
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+final class ThresholdListenerAdapter implements IntValueChangeListener {
+
+    /**
+     * The wrapped listener.
+     */
+    private final ThresholdListener listener;
+    /**
+     * The thresholds, sorted in ascending order.
+     */
+    private final int[]             thresholds;
+
+    /**
+     * Constructs an adapter for the specified listener, with no thresholds.
+     * <p>
+     * This is meant to find the adapter when removing the listener.
+     * 
+     * @param listener
+     *            the listener to wrap
+     */
+    public ThresholdListenerAdapter(final ThresholdListener listener) {
+        super();
+
+        this.listener = checkNotNull(listener,
+                "Received a null pointer as listener");
+        thresholds = new int[0];
+    }
+
+    /**
+     * Constructs an adapter for the specified listener and thresholds.
+     * 
+     * @param listener
+     *            the listener to wrap
+     * @param thresholds
+     *            the thresholds, in strictly ascending order
+     */
+    public ThresholdListenerAdapter(final ThresholdListener listener,
+            final int... thresholds) {
+        super();
+
+        this.listener = checkNotNull(listener,
+                "Received a null pointer as listener");
+
+        checkNotNull(thresholds, "Received a null pointer as thresholds");
+        checkArgument(thresholds.length > 0,
+                "At least one threshold is required");
+        for (int i = 1; i < thresholds.length; i++) {
+            checkArgument(thresholds[i - 1] < thresholds[i],
+                    "The thresholds should be in strictly ascending order");
+        }
+
+        this.thresholds = Arrays.copyOf(thresholds, thresholds.length);
+    }
+
+    @Override
+    public final boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+
+        if (obj == null) {
+            return false;
+        }
+
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+
+        return listener.equals(((ThresholdListenerAdapter) obj).listener);
+    }
+
+    @Override
+    public final int hashCode() {
+        return listener.hashCode();
+    }
+
+    @Override
+    public final void valueChanged(final ValueBox source, final int oldValue,
+            final int newValue) {
+        final int oldBand;
+        final int newBand;
+
+        oldBand = getBand(oldValue);
+        newBand = getBand(newValue);
+
+        if (oldBand != newBand) {
+            listener.thresholdCrossed(source, oldBand, newBand, oldValue,
+                    newValue);
+        }
+    }
+
+    /**
+     * Returns the band of the received value, which is the number of
+     * thresholds lower or equal to it.
+     * 
+     * @param value
+     *            the value to check
+     * @return the band of the value
+     */
+    private final int getBand(final int value) {
+        int low;
+        int high;
+        int middle;
+
+        low = 0;
+        high = thresholds.length;
+        while (low < high) {
+            middle = (low + high) >>> 1;
+            if (value >= thresholds[middle]) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+}
@@ -15,6 +15,8 @@
  */
 package com.wandrell.tabletop.stats.valuebox;
 
+import com.wandrell.tabletop.stats.event.IntValueChangeListener;
+import com.wandrell.tabletop.stats.event.ThresholdListener;
 import com.wandrell.tabletop.stats.event.ValueChangeListener;
 
 /**
@@ -43,6 +45,18 @@ import com.wandrell.tabletop.stats.event.ValueChangeListener;
  */
 public interface ValueBox {
 
+    /**
+     * Adds a value box listener which receives the values as primitives.
+     * <p>
+     * When the value is modified this listener will be notified, without
+     * creating any event.
+     * 
+     * @param listener
+     *            the listener to add
+     */
+    public void addIntValueChangeListener(
+            final IntValueChangeListener listener);
+
     /**
      * Adds a value box listener.
      * <p>
@@ -54,6 +68,36 @@ public interface ValueBox {
      */
     public void addValueChangeListener(final ValueChangeListener listener);
 
+    /**
+     * Adds a listener which is notified only when the value crosses any of the
+     * specified thresholds.
+     * <p>
+     * Changes which keep the value between the same thresholds are discarded
+     * without creating any event.
+     * <p>
+     * A listener can be added only once, with a single group of thresholds.
+     * Adding it again throws an {@code IllegalArgumentException}, even if
+     * the thresholds are different. To change its thresholds, it should be
+     * removed first.
+     * 
+     * @param thresholds
+     *            the thresholds, in strictly ascending order
+     * @param listener
+     *            the listener to add
+     */
+    public void addThresholdListener(final int[] thresholds,
+            final ThresholdListener listener);
+
+    /**
+     * Returns the current value as a primitive.
+     * <p>
+     * This is the same value returned by {@link #getValue() getValue}, but
+     * without boxing it, and so it is the one to be used in the hot paths.
+     * 
+     * @return the value
+     */
+    public int getInt();
+
     /**
      * Returns the current value.
      * 
@@ -61,6 +105,23 @@ public interface ValueBox {
      */
     public Integer getValue();
 
+    /**
+     * Removes a value box listener which receives the values as primitives.
+     * 
+     * @param listener
+     *            the listener to remove
+     */
+    public void removeIntValueChangeListener(
+            final IntValueChangeListener listener);
+
+    /**
+     * Removes a listener for threshold crossings.
+     * 
+     * @param listener
+     *            the listener to remove
+     */
+    public void removeThresholdListener(final ThresholdListener listener);
+
     /**
      * Removes a value box listener.
      * 
@@ -69,6 +130,18 @@ public interface ValueBox {
      */
     public void removeValueChangeListener(final ValueChangeListener listener);
 
+    /**
+     * Sets the value stored, received as a primitive.
+     * <p>
+     * This is the same as {@link #setValue(Integer) setValue}, but without
+     * requiring the value to be boxed. If the value is not editable this should
+     * be disabled too.
+     * 
+     * @param value
+     *            the value to store
+     */
+    public void setInt(final int value);
+
     /**
      * Sets the value stored.
      * <p>
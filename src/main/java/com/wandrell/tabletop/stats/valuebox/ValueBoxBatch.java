@@ -0,0 +1,236 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.stats.valuebox;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * Scope grouping a series of {@link ValueBox} modifications, so their events
+ * are sent together.
+ * <p>
+ * While a batch is open, the events fired by any {@code ValueBox} extending
+ * {@link AbstractValueBoxEventFirer} on the same thread are held back. When the
+ * batch is committed, each of those {@code ValueBox} instances fires a single
+ * event, containing the value it had before its first change and the value it
+ * has after its last change.
+ * <p>
+ * The events sent on commit may cause other events, such as when an
+ * {@link AggregatedValueBox} reacts to its values. These are coalesced in the
+ * same way, so an aggregated value with several changed values will fire only
+ * once. Note that this means that derived values won't be updated until the
+ * batch is committed.
+ * <p>
+ * Batches are meant to be used with a try-with-resources block, which will
+ * commit them when closed:
+ * 
+ * <pre>
+ * try (ValueBoxBatch batch = ValueBoxBatch.open()) {
+ *     strength.setInt(12);
+ *     constitution.setInt(14);
+ * }
+ * </pre>
+ * <p>
+ * Opening a batch while another is open on the same thread just joins it, and
+ * the events are sent only when the outermost one is closed.
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class ValueBoxBatch implements AutoCloseable {
+
+    /**
+     * Batch open on each thread.
+     */
+    private static final ThreadLocal<ValueBoxBatch> CURRENT = new ThreadLocal<ValueBoxBatch>();
+    /**
+     * Number of batches open on all the threads.
+     * <p>
+     * This allows skipping the thread local lookup when no batch is in use.
+     */
+    private static final AtomicInteger              OPEN    = new AtomicInteger();
+
+    /**
+     * Number of times the batch has been opened and not closed.
+     */
+    private int                                     depth   = 0;
+    /**
+     * {@code ValueBox} instances with held back events, in the order they
+     * changed.
+     */
+    private List<AbstractValueBoxEventFirer>        order   = new ArrayList<AbstractValueBoxEventFirer>();
+    /**
+     * Changes held back for each {@code ValueBox}.
+     * <p>
+     * Only the old value from the first change, and the new value from the
+     * last one, are kept.
+     */
+    private Map<AbstractValueBoxEventFirer, int[]>  pending = new IdentityHashMap<AbstractValueBoxEventFirer, int[]>();
+
+    /**
+     * Checks if a batch is open on the current thread.
+     * 
+     * @return {@code true} if a batch is open, {@code false} otherwise
+     */
+    public static final boolean isOpen() {
+        return (OPEN.get() > 0) && (CURRENT.get() != null);
+    }
+
+    /**
+     * Opens a batch on the current thread, or joins the one already open.
+     * 
+     * @return the batch open on the current thread
+     */
+    public static final ValueBoxBatch open() {
+        ValueBoxBatch batch;
+
+        batch = CURRENT.get();
+        if (batch == null) {
+            batch = new ValueBoxBatch();
+            CURRENT.set(batch);
+            OPEN.incrementAndGet();
+        }
+
+        batch.depth++;
+
+        return batch;
+    }
+
+    /**
+     * Holds back the change if there is a batch open on the current thread.
+     * 
+     * @param box
+     *            the {@code ValueBox} which changed
+     * @param oldValue
+     *            the value before the change
+     * @param newValue
+     *            the value after the change
+     * @return {@code true} if the change was held back, {@code false} if it
+     *         should be sent
+     */
+    static final boolean defer(final AbstractValueBoxEventFirer box,
+            final int oldValue, final int newValue) {
+        final ValueBoxBatch batch;
+        final boolean deferred;
+
+        if (OPEN.get() == 0) {
+            deferred = false;
+        } else {
+            batch = CURRENT.get();
+            if (batch == null) {
+                deferred = false;
+            } else {
+                batch.add(box, oldValue, newValue);
+                deferred = true;
+            }
+        }
+
+        return deferred;
+    }
+
+    /**
+     * Constructs a {@code ValueBoxBatch}.
+     * <p>
+     * New batches are created through {@link #open() open}.
+     */
+    private ValueBoxBatch() {
+        super();
+    }
+
+    /**
+     * Closes the batch, which will commit it if this is the outermost scope.
+     */
+    @Override
+    public final void close() {
+        commit();
+    }
+
+    /**
+     * Commits the batch.
+     * <p>
+     * If this is the outermost scope, each {@code ValueBox} changed while it
+     * was open will fire a single event. Otherwise nothing will happen until
+     * the outermost scope is committed.
+     */
+    public final void commit() {
+        List<AbstractValueBoxEventFirer> boxes;
+        Map<AbstractValueBoxEventFirer, int[]> values;
+        int[] changes;
+
+        checkState(depth > 0, "The batch is already committed");
+        checkState(CURRENT.get() == this,
+                "The batch is not open on the current thread");
+
+        depth--;
+        if (depth == 0) {
+            try {
+                // Events fired while sending these are held back again, and
+                // sent in the next round
+                while (!order.isEmpty()) {
+                    boxes = order;
+                    values = pending;
+                    order = new ArrayList<AbstractValueBoxEventFirer>();
+                    pending = new IdentityHashMap<AbstractValueBoxEventFirer, int[]>();
+
+                    for (final AbstractValueBoxEventFirer box : boxes) {
+                        changes = values.get(box);
+                        box.dispatchValueChanged(changes[0], changes[1],
+                                null);
+                    }
+                }
+            } finally {
+                CURRENT.remove();
+                OPEN.decrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    public final String toString() {
+        return MoreObjects.toStringHelper(this).add("depth", depth)
+                .add("pending", order.size()).toString();
+    }
+
+    /**
+     * Holds back a change.
+     * 
+     * @param box
+     *            the {@code ValueBox} which changed
+     * @param oldValue
+     *            the value before the change
+     * @param newValue
+     *            the value after the change
+     */
+    private final void add(final AbstractValueBoxEventFirer box,
+            final int oldValue, final int newValue) {
+        final int[] changes;
+
+        changes = pending.get(box);
+        if (changes == null) {
+            pending.put(box, new int[] { oldValue, newValue });
+            order.add(box);
+        } else {
+            changes[1] = newValue;
+        }
+    }
+
+}
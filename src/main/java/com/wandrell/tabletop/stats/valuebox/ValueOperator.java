@@ -0,0 +1,39 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.stats.valuebox;
+
+/**
+ * Operation to be applied over the value of a {@link ValueBox}.
+ * <p>
+ * It receives the current value and returns the one which should replace it.
+ * As it may be applied more than once, for example when retrying an atomic
+ * update, it should not have side effects.
+ * 
+ * @author Bernardo Martínez Garrido
+ * @see AtomicValueBox
+ */
+public interface ValueOperator {
+
+    /**
+     * Applies the operation to the received value.
+     * 
+     * @param value
+     *            the current value
+     * @return the updated value
+     */
+    public int apply(final int value);
+
+}
@@ -37,6 +37,10 @@
  * {@link com.wandrell.tabletop.stats.valuebox.AbstractValueBoxEventFirer
  * AbstractValueBoxEventFirer}, contains support for the value events, so new
  * implementation of the interface can be created with ease.
+ * <p>
+ * When a large number of values has to be stored, the
+ * {@link com.wandrell.tabletop.stats.valuebox.StatTable StatTable} keeps them
+ * in primitive columns, giving {@code ValueBox} views over its cells.
  */
 package com.wandrell.tabletop.stats.valuebox;
 
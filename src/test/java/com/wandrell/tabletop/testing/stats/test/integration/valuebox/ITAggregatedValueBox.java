@@ -15,11 +15,21 @@
  */
 package com.wandrell.tabletop.testing.stats.test.integration.valuebox;
 
+import java.util.Arrays;
+
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import com.wandrell.tabletop.stats.aggregator.Aggregator;
+import com.wandrell.tabletop.stats.aggregator.MaxAggregator;
+import com.wandrell.tabletop.stats.event.IntValueChangeListener;
+import com.wandrell.tabletop.stats.event.ValueChangeEvent;
+import com.wandrell.tabletop.stats.event.ValueChangeListener;
 import com.wandrell.tabletop.stats.valuebox.AggregatedValueBox;
 import com.wandrell.tabletop.stats.valuebox.DefaultValueBox;
+import com.wandrell.tabletop.stats.valuebox.MetricsRecorder;
 import com.wandrell.tabletop.stats.valuebox.ValueBox;
 
 /**
@@ -33,6 +43,31 @@ import com.wandrell.tabletop.stats.valuebox.ValueBox;
  * <li>The aggregated value is updated when a {@code ValueBox} is removed.</li>
  * <li>The aggregated value is updated when the initial {@code ValueBox} is
  * modified.</li>
+ * <li>Removing a {@code ValueBox} equal to an aggregated one, but which is not
+ * aggregated, does not change the aggregated value.</li>
+ * <li>The highest value is kept when using a {@code MaxAggregator}, and the
+ * values change.</li>
+ * <li>When a value reaches an {@code AggregatedValueBox} through several paths
+ * it fires a single event, with the final value.</li>
+ * <li>When a value reaches an {@code AggregatedValueBox} both directly and
+ * through another one it fires a single event, with the final value.</li>
+ * <li>In lazy mode, and without listeners, changes don't reach the aggregator,
+ * which receives the current values when queried.</li>
+ * <li>In lazy mode, and with listeners, the events are still fired.</li>
+ * <li>In lazy mode, the events fired after adding a listener to an outdated
+ * value contain the actual previous value.</li>
+ * <li>After replacing the {@code ValueBox} instances, changes on the old ones
+ * don't reach the aggregated value.</li>
+ * <li>A copy is updated when the {@code ValueBox} instances change.</li>
+ * <li>A listener of an aggregated value reads the updated aggregates, even if
+ * it was added before them.</li>
+ * <li>A listener changing a value reads the updated aggregates right after
+ * the change.</li>
+ * <li>When a listener fails after changing a value, the aggregates are still
+ * updated.</li>
+ * <li>When a listener fails, the changes held back are still notified.</li>
+ * <li>When an aggregate fails to update, those depending on it are generated
+ * again when queried.</li>
  * </ol>
  * 
  * @author Bernardo Martínez Garrido
@@ -110,4 +145,443 @@ public final class ITAggregatedValueBox {
         Assert.assertEquals(aggregated.getValue(), (Integer) 1);
     }
 
+    /**
+     * Tests that removing a {@code ValueBox} equal to an aggregated one, but
+     * which is not aggregated, does not change the aggregated value.
+     */
+    @Test
+    public final void testValueUpdates_removed_equalNotAggregated() {
+        final ValueBox value1;               // Aggregated value
+        final ValueBox value2;               // Equal, not aggregated, value
+        final AggregatedValueBox aggregated; // Tested ValueBox
+
+        value1 = new DefaultValueBox(1);
+        value2 = new DefaultValueBox(1);
+
+        aggregated = new AggregatedValueBox(value1);
+
+        aggregated.removeValueBox(value2);
+
+        value1.setValue(5);
+
+        Assert.assertEquals(aggregated.getValue(), (Integer) 5);
+    }
+
+    /**
+     * Tests that the highest value is kept when using a {@code MaxAggregator},
+     * and the values change.
+     */
+    @Test
+    public final void testValueUpdates_Max() {
+        final ValueBox value1;               // First aggregated value
+        final ValueBox value2;               // Second aggregated value
+        final AggregatedValueBox aggregated; // Tested ValueBox
+
+        value1 = new DefaultValueBox(3);
+        value2 = new DefaultValueBox(5);
+
+        aggregated = new AggregatedValueBox(new MaxAggregator(), value1,
+                value2);
+
+        Assert.assertEquals(aggregated.getValue(), (Integer) 5);
+
+        value2.setValue(1);
+
+        Assert.assertEquals(aggregated.getValue(), (Integer) 3);
+
+        aggregated.removeValueBox(value1);
+
+        Assert.assertEquals(aggregated.getValue(), (Integer) 1);
+    }
+
+    /**
+     * Tests that when a value reaches an {@code AggregatedValueBox} through
+     * several paths it fires a single event, with the final value.
+     */
+    @Test
+    public final void testValueUpdates_Diamond() {
+        final ValueBox value;                          // Aggregated value
+        final AggregatedValueBox left;                 // First path
+        final AggregatedValueBox right;                // Second path
+        final AggregatedValueBox top;                  // Tested ValueBox
+        final ValueChangeListener listener;            // Mocked listener
+        final ArgumentCaptor<ValueChangeEvent> captor; // Event captor
+
+        value = new DefaultValueBox(1);
+
+        left = new AggregatedValueBox(value);
+        right = new AggregatedValueBox(value);
+        top = new AggregatedValueBox(left, right);
+
+        listener = Mockito.mock(ValueChangeListener.class);
+        captor = ArgumentCaptor.forClass(ValueChangeEvent.class);
+
+        top.addValueChangeListener(listener);
+
+        value.setValue(5);
+
+        Mockito.verify(listener, Mockito.times(1)).valueChanged(
+                captor.capture());
+
+        Assert.assertEquals(captor.getValue().getOldInt(), 2);
+        Assert.assertEquals(captor.getValue().getNewInt(), 10);
+        Assert.assertEquals(top.getInt(), 10);
+    }
+
+    /**
+     * Tests that when a value reaches an {@code AggregatedValueBox} both
+     * directly and through another one it fires a single event, with the
+     * final value.
+     */
+    @Test
+    public final void testValueUpdates_Shortcut() {
+        final ValueBox value;                          // Aggregated value
+        final AggregatedValueBox middle;               // Indirect path
+        final AggregatedValueBox top;                  // Tested ValueBox
+        final ValueChangeListener listener;            // Mocked listener
+        final ArgumentCaptor<ValueChangeEvent> captor; // Event captor
+
+        value = new DefaultValueBox(1);
+
+        middle = new AggregatedValueBox(value);
+        top = new AggregatedValueBox(value, middle);
+
+        listener = Mockito.mock(ValueChangeListener.class);
+        captor = ArgumentCaptor.forClass(ValueChangeEvent.class);
+
+        top.addValueChangeListener(listener);
+
+        value.setValue(3);
+
+        Mockito.verify(listener, Mockito.times(1)).valueChanged(
+                captor.capture());
+
+        Assert.assertEquals(captor.getValue().getOldInt(), 2);
+        Assert.assertEquals(captor.getValue().getNewInt(), 6);
+    }
+
+    /**
+     * Tests that in lazy mode, and without listeners, changes don't reach the
+     * aggregator, which receives the current values when queried.
+     */
+    @Test
+    public final void testValueUpdates_Lazy() {
+        final ValueBox value1;               // First aggregated value
+        final ValueBox value2;               // Second aggregated value
+        final Aggregator aggregator;         // Mocked aggregator
+        final AggregatedValueBox aggregated; // Tested ValueBox
+
+        value1 = new DefaultValueBox(1);
+        value2 = new DefaultValueBox(2);
+
+        aggregator = Mockito.mock(Aggregator.class);
+
+        aggregated = new AggregatedValueBox(aggregator, value1, value2);
+        aggregated.setLazy(true);
+
+        value1.setValue(5);
+        value1.setValue(7);
+        value2.setValue(3);
+
+        Mockito.verify(aggregator, Mockito.never()).replace(
+                Mockito.anyInt(), Mockito.anyInt());
+
+        aggregated.getValue();
+
+        Mockito.verify(aggregator, Mockito.times(1)).add(7);
+        Mockito.verify(aggregator, Mockito.times(1)).add(3);
+    }
+
+    /**
+     * Tests that in lazy mode, and with listeners, the events are still fired.
+     */
+    @Test
+    public final void testValueUpdates_Lazy_Listener() {
+        final ValueBox value;                          // Aggregated value
+        final AggregatedValueBox aggregated;           // Tested ValueBox
+        final ValueChangeListener listener;            // Mocked listener
+        final ArgumentCaptor<ValueChangeEvent> captor; // Event captor
+
+        value = new DefaultValueBox(1);
+
+        aggregated = new AggregatedValueBox(value);
+        aggregated.setLazy(true);
+
+        value.setValue(2);
+
+        listener = Mockito.mock(ValueChangeListener.class);
+        captor = ArgumentCaptor.forClass(ValueChangeEvent.class);
+
+        aggregated.addValueChangeListener(listener);
+
+        value.setValue(5);
+
+        Mockito.verify(listener, Mockito.times(1)).valueChanged(
+                captor.capture());
+
+        Assert.assertEquals(captor.getValue().getNewInt(), 5);
+        Assert.assertEquals(aggregated.getInt(), 5);
+    }
+
+    /**
+     * Tests that in lazy mode, the events fired after adding a listener to an
+     * outdated value contain the actual previous value.
+     */
+    @Test
+    public final void testValueUpdates_Lazy_OldValue() {
+        final ValueBox value;                          // Aggregated value
+        final AggregatedValueBox aggregated;           // Tested ValueBox
+        final ValueChangeListener listener;            // Mocked listener
+        final ArgumentCaptor<ValueChangeEvent> captor; // Event captor
+
+        value = new DefaultValueBox(1);
+
+        aggregated = new AggregatedValueBox(value);
+        aggregated.setLazy(true);
+
+        value.setValue(3);
+
+        listener = Mockito.mock(ValueChangeListener.class);
+        captor = ArgumentCaptor.forClass(ValueChangeEvent.class);
+
+        aggregated.addValueChangeListener(listener);
+
+        value.setValue(4);
+        aggregated.addValueBox(new DefaultValueBox(10));
+
+        Mockito.verify(listener, Mockito.times(2)).valueChanged(
+                captor.capture());
+
+        Assert.assertEquals(captor.getAllValues().get(0).getOldInt(), 3);
+        Assert.assertEquals(captor.getAllValues().get(0).getNewInt(), 4);
+        Assert.assertEquals(captor.getAllValues().get(1).getOldInt(), 4);
+        Assert.assertEquals(captor.getAllValues().get(1).getNewInt(), 14);
+    }
+
+    /**
+     * Tests that a copy is updated when the {@code ValueBox} instances change.
+     */
+    @Test
+    public final void testValueUpdates_Copy() {
+        final ValueBox value;                // Aggregated value
+        final AggregatedValueBox aggregated; // Copied ValueBox
+        final AggregatedValueBox copy;       // Tested ValueBox
+
+        value = new DefaultValueBox(1);
+
+        aggregated = new AggregatedValueBox(value);
+        copy = new AggregatedValueBox(aggregated);
+
+        value.setInt(4);
+
+        Assert.assertEquals(copy.getInt(), 4);
+    }
+
+    /**
+     * Tests that after replacing the {@code ValueBox} instances, changes on
+     * the old ones don't reach the aggregated value.
+     */
+    @Test
+    public final void testValueUpdates_SetValueBoxes() {
+        final ValueBox valueOld;             // Replaced value
+        final ValueBox valueNew;             // New value
+        final AggregatedValueBox aggregated; // Tested ValueBox
+        final ValueChangeListener listener;  // Mocked listener
+
+        valueOld = new DefaultValueBox(1);
+        valueNew = new DefaultValueBox(2);
+
+        aggregated = new AggregatedValueBox(valueOld);
+        aggregated.setValueBoxes(Arrays.asList(valueNew));
+
+        listener = Mockito.mock(ValueChangeListener.class);
+        aggregated.addValueChangeListener(listener);
+
+        valueOld.setInt(10);
+
+        Mockito.verifyZeroInteractions(listener);
+        Assert.assertEquals(aggregated.getInt(), 2);
+    }
+
+    /**
+     * Tests that a listener of an aggregated value reads the updated
+     * aggregates, even if it was added before them.
+     */
+    @Test
+    public final void testValueUpdates_ReadFromListener() {
+        final ValueBox child;                  // Changed value
+        final AggregatedValueBox[] aggregates; // Parent and grandparent
+        final int[] read;                      // Values read by the listener
+
+        child = new DefaultValueBox(1);
+        aggregates = new AggregatedValueBox[2];
+        read = new int[2];
+        child.addIntValueChangeListener(new IntValueChangeListener() {
+
+            @Override
+            public final void valueChanged(final ValueBox source,
+                    final int oldValue, final int newValue) {
+                read[0] = aggregates[0].getInt();
+                read[1] = aggregates[1].getInt();
+            }
+
+        });
+
+        aggregates[0] = new AggregatedValueBox(child, new DefaultValueBox(10));
+        aggregates[1] = new AggregatedValueBox(aggregates[0],
+                new DefaultValueBox(100));
+
+        child.setInt(5);
+
+        Assert.assertEquals(read[0], 15);
+        Assert.assertEquals(read[1], 115);
+    }
+
+    /**
+     * Tests that a listener changing a value reads the updated aggregates
+     * right after the change.
+     */
+    @Test
+    public final void testValueUpdates_WriteFromListener() {
+        final ValueBox source;                 // Value with the listener
+        final ValueBox child;                  // Value changed by the listener
+        final AggregatedValueBox[] aggregates; // Parent and grandparent
+        final int[] read;                      // Values read by the listener
+
+        source = new DefaultValueBox(1);
+        child = new DefaultValueBox(1);
+        aggregates = new AggregatedValueBox[2];
+        aggregates[0] = new AggregatedValueBox(child, new DefaultValueBox(10));
+        aggregates[1] = new AggregatedValueBox(aggregates[0],
+                new DefaultValueBox(100));
+
+        read = new int[2];
+        source.addIntValueChangeListener(new IntValueChangeListener() {
+
+            @Override
+            public final void valueChanged(final ValueBox source,
+                    final int oldValue, final int newValue) {
+                child.setInt(5);
+                read[0] = aggregates[0].getInt();
+                read[1] = aggregates[1].getInt();
+            }
+
+        });
+
+        source.setInt(2);
+
+        Assert.assertEquals(read[0], 15);
+        Assert.assertEquals(read[1], 115);
+    }
+
+    /**
+     * Tests that when a listener fails after changing a value, the aggregates
+     * are still updated.
+     */
+    @Test
+    public final void testValueUpdates_WriteFromListener_Failure() {
+        final ValueBox source;                 // Value with the listener
+        final ValueBox child;                  // Value changed by the listener
+        final AggregatedValueBox[] aggregates; // Parent and grandparent
+
+        source = new DefaultValueBox(1);
+        child = new DefaultValueBox(1);
+        aggregates = new AggregatedValueBox[2];
+        aggregates[0] = new AggregatedValueBox(child, new DefaultValueBox(10));
+        aggregates[1] = new AggregatedValueBox(aggregates[0],
+                new DefaultValueBox(100));
+
+        source.addIntValueChangeListener(new IntValueChangeListener() {
+
+            @Override
+            public final void valueChanged(final ValueBox source,
+                    final int oldValue, final int newValue) {
+                child.setInt(7);
+                throw new IllegalStateException();
+            }
+
+        });
+
+        try {
+            source.setInt(2);
+            Assert.fail();
+        } catch (final IllegalStateException exception) {
+            // Expected
+        }
+
+        Assert.assertEquals(aggregates[0].getInt(), 17);
+        Assert.assertEquals(aggregates[1].getInt(), 117);
+    }
+
+    /**
+     * Tests that when a listener fails, the changes held back are still
+     * notified.
+     */
+    @Test
+    public final void testValueUpdates_WriteFromListener_Failure_Notified() {
+        final ValueBox source;                // Value with the failing listener
+        final ValueBox other;                 // Value changed by the listener
+        final IntValueChangeListener watcher; // Listener for the other value
+
+        source = new DefaultValueBox(1);
+        other = new DefaultValueBox(1);
+
+        watcher = Mockito.mock(IntValueChangeListener.class);
+        other.addIntValueChangeListener(watcher);
+
+        source.addIntValueChangeListener(new IntValueChangeListener() {
+
+            @Override
+            public final void valueChanged(final ValueBox source,
+                    final int oldValue, final int newValue) {
+                other.setInt(5);
+                throw new IllegalStateException();
+            }
+
+        });
+
+        try {
+            source.setInt(2);
+            Assert.fail();
+        } catch (final IllegalStateException exception) {
+            // Expected
+        }
+
+        Mockito.verify(watcher, Mockito.times(1)).valueChanged(other, 1, 5);
+    }
+
+    /**
+     * Tests that when an aggregate fails to update, those depending on it are
+     * generated again when queried.
+     */
+    @Test
+    public final void testValueUpdates_UpdateFailure() {
+        final ValueBox child;                  // Changed value
+        final AggregatedValueBox[] aggregates; // Parent and grandparent
+        final MetricsRecorder recorder;        // Failing recorder
+
+        child = new DefaultValueBox(1);
+        aggregates = new AggregatedValueBox[2];
+        aggregates[0] = new AggregatedValueBox(child, new DefaultValueBox(10));
+        aggregates[1] = new AggregatedValueBox(aggregates[0],
+                new DefaultValueBox(100));
+
+        recorder = Mockito.mock(MetricsRecorder.class);
+        Mockito.when(
+                recorder.eventFired(Mockito.any(ValueBox.class),
+                        Mockito.anyInt())).thenThrow(
+                new IllegalStateException());
+        aggregates[0].setMetricsRecorder(recorder);
+
+        try {
+            child.setInt(7);
+            Assert.fail();
+        } catch (final IllegalStateException exception) {
+            // Expected
+        }
+
+        Assert.assertEquals(aggregates[0].getInt(), 17);
+        Assert.assertEquals(aggregates[1].getInt(), 117);
+    }
+
 }
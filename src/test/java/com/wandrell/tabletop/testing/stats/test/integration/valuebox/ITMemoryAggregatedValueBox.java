@@ -0,0 +1,276 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.testing.stats.test.integration.valuebox;
+
+import java.lang.ref.WeakReference;
+
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.wandrell.tabletop.stats.event.ValueChangeEvent;
+import com.wandrell.tabletop.stats.event.ValueChangeListener;
+import com.wandrell.tabletop.stats.valuebox.AggregatedValueBox;
+import com.wandrell.tabletop.stats.valuebox.DefaultValueBox;
+import com.wandrell.tabletop.stats.valuebox.StatTable;
+import com.wandrell.tabletop.stats.valuebox.ValueBox;
+
+/**
+ * Integration test for {@link AggregatedValueBox}, checking that discarded
+ * instances with weak linking are not kept in memory by the values they
+ * aggregated, while those without it are.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>The heap use is stable after creating and discarding many
+ * {@code AggregatedValueBox} instances over the same long-lived values.</li>
+ * <li>A discarded {@code AggregatedValueBox} can be garbage collected while
+ * the values it aggregated are still in use.</li>
+ * <li>A discarded {@code AggregatedValueBox} can be garbage collected while
+ * the {@code StatTable} cells it aggregated are still in use.</li>
+ * <li>Without weak linking, a discarded {@code AggregatedValueBox} keeps
+ * notifying its listeners.</li>
+ * </ol>
+ * <p>
+ * These tests are in the {@code memory} group, which the suites run on its
+ * own and in a single thread, as other tests running at the same time would
+ * change the heap use and keep the garbage collector busy.
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class ITMemoryAggregatedValueBox {
+
+    /**
+     * Number of instances created and discarded.
+     * <p>
+     * If they were kept in memory, they would take far more than the growth
+     * allowed.
+     */
+    private static final int  CYCLES     = 200000;
+    /**
+     * Maximum number of times the garbage collector is asked to run while
+     * waiting for an instance to be collected.
+     */
+    private static final int  GC_TRIES   = 20;
+    /**
+     * Milliseconds to wait between garbage collector runs.
+     */
+    private static final long GC_WAIT    = 50;
+    /**
+     * Maximum growth allowed for the heap, in bytes.
+     */
+    private static final long GROWTH_MAX = 16L * 1024 * 1024;
+    /**
+     * Number of instances created and discarded before measuring the heap.
+     */
+    private static final int  WARMUP     = 100000;
+
+    /**
+     * Constructs an {@code ITMemoryAggregatedValueBox}.
+     */
+    public ITMemoryAggregatedValueBox() {
+        super();
+    }
+
+    /**
+     * Tests that a discarded {@code AggregatedValueBox} can be garbage
+     * collected while the values it aggregated are still in use.
+     */
+    @Test(groups = "memory")
+    public final void testDiscarded_Collected() throws InterruptedException {
+        final ValueBox shared;                             // Long-lived value
+        final AggregatedValueBox sharedAggregated;         // Long-lived sum
+        final WeakReference<AggregatedValueBox> discarded; // Discarded value
+
+        shared = new DefaultValueBox(1);
+        sharedAggregated = new AggregatedValueBox(shared);
+
+        discarded = new WeakReference<AggregatedValueBox>(
+                newWeakAggregate(shared, sharedAggregated));
+
+        awaitCollected(discarded);
+
+        Assert.assertNull(discarded.get());
+
+        // The long-lived values still work
+        shared.setInt(3);
+        Assert.assertEquals(sharedAggregated.getInt(), 3);
+    }
+
+    /**
+     * Tests that a discarded {@code AggregatedValueBox} can be garbage
+     * collected while the {@code StatTable} cells it aggregated are still in
+     * use.
+     */
+    @Test(groups = "memory")
+    public final void testDiscarded_Collected_Cell()
+            throws InterruptedException {
+        final StatTable table;                             // Long-lived table
+        final ValueBox cell;                               // Long-lived cell
+        final WeakReference<AggregatedValueBox> discarded; // Discarded value
+
+        table = new StatTable(1);
+        table.addRow();
+        cell = table.getValueBox(0, 0);
+
+        discarded = new WeakReference<AggregatedValueBox>(
+                newWeakAggregate(cell));
+
+        awaitCollected(discarded);
+
+        Assert.assertNull(discarded.get());
+
+        // The cell still works
+        cell.setInt(3);
+        Assert.assertEquals(table.getInt(0, 0), 3);
+    }
+
+    /**
+     * Tests that the heap use is stable after creating and discarding many
+     * {@code AggregatedValueBox} instances over the same long-lived values.
+     */
+    @Test(groups = "memory")
+    public final void testDiscarded_HeapStable() {
+        final ValueBox shared;                     // Long-lived value
+        final AggregatedValueBox sharedAggregated; // Long-lived aggregate
+        final long before;                         // Heap used before
+        final long after;                          // Heap used after
+
+        shared = new DefaultValueBox(1);
+        sharedAggregated = new AggregatedValueBox(shared);
+
+        runCycles(shared, sharedAggregated, WARMUP);
+        before = getUsedHeap();
+
+        runCycles(shared, sharedAggregated, CYCLES);
+        after = getUsedHeap();
+
+        Assert.assertTrue(after - before < GROWTH_MAX, String.format(
+                "The heap grew by %d bytes", after - before));
+
+        // The long-lived values still work
+        shared.setInt(5);
+        Assert.assertEquals(sharedAggregated.getInt(), 5);
+    }
+
+    /**
+     * Tests that without weak linking, a discarded
+     * {@code AggregatedValueBox} keeps notifying its listeners.
+     */
+    @Test(groups = "memory")
+    public final void testDiscarded_Strong_Notifying() {
+        final ValueBox shared;              // Long-lived value
+        final ValueChangeListener listener; // Mocked listener
+
+        shared = new DefaultValueBox(1);
+        listener = Mockito.mock(ValueChangeListener.class);
+
+        new AggregatedValueBox(shared).addValueChangeListener(listener);
+
+        shared.setInt(2);
+        for (int i = 0; i < GC_TRIES; i++) {
+            getUsedHeap();
+        }
+        shared.setInt(3);
+
+        Mockito.verify(listener, Mockito.times(2)).valueChanged(
+                Mockito.any(ValueChangeEvent.class));
+    }
+
+    /**
+     * Runs the garbage collector until the referenced object is collected, or
+     * the tries run out.
+     * <p>
+     * The collector may skip a run while other tests are running, so it waits
+     * a bit between runs.
+     * 
+     * @param reference
+     *            reference to the object which should be collected
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    private final void awaitCollected(final WeakReference<?> reference)
+            throws InterruptedException {
+        int tries;
+
+        tries = 0;
+        while ((reference.get() != null) && (tries < GC_TRIES)) {
+            getUsedHeap();
+            if (reference.get() != null) {
+                Thread.sleep(GC_WAIT);
+            }
+            tries++;
+        }
+    }
+
+    /**
+     * Returns the heap in use, after trying to garbage collect everything
+     * unreachable.
+     * 
+     * @return the heap in use, in bytes
+     */
+    private final long getUsedHeap() {
+        final Runtime runtime;
+
+        runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Returns a new {@code AggregatedValueBox} with weak linking.
+     * 
+     * @param boxes
+     *            the values to aggregate
+     * @return an {@code AggregatedValueBox} with weak linking
+     */
+    private final AggregatedValueBox newWeakAggregate(
+            final ValueBox... boxes) {
+        final AggregatedValueBox aggregated;
+
+        aggregated = new AggregatedValueBox(boxes);
+        aggregated.setWeakLinking(true);
+
+        return aggregated;
+    }
+
+    /**
+     * Creates and discards {@code AggregatedValueBox} instances aggregating
+     * the received values, which are modified from time to time.
+     * 
+     * @param shared
+     *            long-lived value
+     * @param sharedAggregated
+     *            long-lived aggregate
+     * @param cycles
+     *            number of instances to create
+     */
+    private final void runCycles(final ValueBox shared,
+            final AggregatedValueBox sharedAggregated, final int cycles) {
+        AggregatedValueBox discarded;
+
+        for (int i = 0; i < cycles; i++) {
+            discarded = newWeakAggregate(shared, sharedAggregated);
+            if (i % 1000 == 0) {
+                shared.setInt(discarded.getInt());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.testing.stats.test.integration.valuebox;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.wandrell.tabletop.stats.controller.DefaultValueController;
+import com.wandrell.tabletop.stats.controller.ValueController;
+import com.wandrell.tabletop.stats.valuebox.AggregatedValueBox;
+import com.wandrell.tabletop.stats.valuebox.StatTable;
+
+/**
+ * Integration test for {@link StatTable}, checking that the views over its
+ * cells work with the other classes of the library.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>An {@code AggregatedValueBox} is updated when one of the cells it
+ * aggregates changes.</li>
+ * <li>A {@code ValueController} modifies the cell it handles.</li>
+ * </ol>
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class ITStatTable {
+
+    /**
+     * Constructs an {@code ITStatTable}.
+     */
+    public ITStatTable() {
+        super();
+    }
+
+    /**
+     * Tests that an {@code AggregatedValueBox} is updated when one of the cells
+     * it aggregates changes.
+     */
+    @Test
+    public final void testAggregated() {
+        final StatTable table;               // Table with the values
+        final AggregatedValueBox aggregated; // Aggregated cells
+
+        table = new StatTable(2);
+        table.addRow();
+        table.setInt(0, 0, 1);
+        table.setInt(0, 1, 2);
+
+        aggregated = new AggregatedValueBox(table.getValueBox(0, 0),
+                table.getValueBox(0, 1));
+
+        table.setInt(0, 1, 5);
+
+        Assert.assertEquals(aggregated.getValue(), (Integer) 6);
+    }
+
+    /**
+     * Tests that a {@code ValueController} modifies the cell it handles.
+     */
+    @Test
+    public final void testController() {
+        final StatTable table;          // Table with the values
+        final ValueController handler; // Controller for a cell
+
+        table = new StatTable(2);
+        table.addRow();
+
+        handler = new DefaultValueController(table.getValueBox(0, 1));
+        handler.setInterval(0, 1);
+
+        handler.increaseValue();
+        handler.increaseValue();
+
+        Assert.assertEquals(table.getInt(0, 1), 1);
+        Assert.assertEquals(table.getInt(0, 0), 0);
+    }
+
+}
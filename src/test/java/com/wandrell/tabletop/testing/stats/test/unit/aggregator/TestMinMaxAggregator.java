@@ -0,0 +1,145 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.testing.stats.test.unit.aggregator;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.wandrell.tabletop.stats.aggregator.Aggregator;
+import com.wandrell.tabletop.stats.aggregator.MaxAggregator;
+import com.wandrell.tabletop.stats.aggregator.MinAggregator;
+
+/**
+ * Unit test for {@link MinAggregator} and {@link MaxAggregator}, checking that
+ * the lowest and highest values are tracked correctly.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>The result is zero when there are no values.</li>
+ * <li>The lowest value is returned.</li>
+ * <li>The highest value is returned.</li>
+ * <li>Removing the lowest value returns the next one.</li>
+ * <li>Removing one of several repeated highest values keeps it.</li>
+ * <li>Replacing the highest value with a lower one returns the next one.</li>
+ * </ol>
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class TestMinMaxAggregator {
+
+    /**
+     * Constructs a {@code TestMinMaxAggregator}.
+     */
+    public TestMinMaxAggregator() {
+        super();
+    }
+
+    /**
+     * Tests that the result is zero when there are no values.
+     */
+    @Test
+    public final void testGetResult_Empty() {
+        Assert.assertEquals(new MinAggregator().getResult(), 0);
+        Assert.assertEquals(new MaxAggregator().getResult(), 0);
+    }
+
+    /**
+     * Tests that the highest value is returned.
+     */
+    @Test
+    public final void testGetResult_Max() {
+        final Aggregator aggregator; // Tested aggregator
+
+        aggregator = new MaxAggregator();
+
+        aggregator.add(3);
+        aggregator.add(-2);
+        aggregator.add(7);
+
+        Assert.assertEquals(aggregator.getResult(), 7);
+    }
+
+    /**
+     * Tests that removing one of several repeated highest values keeps it.
+     */
+    @Test
+    public final void testGetResult_Max_RemoveRepeated() {
+        final Aggregator aggregator; // Tested aggregator
+
+        aggregator = new MaxAggregator();
+
+        aggregator.add(7);
+        aggregator.add(3);
+        aggregator.add(7);
+
+        aggregator.remove(7);
+
+        Assert.assertEquals(aggregator.getResult(), 7);
+    }
+
+    /**
+     * Tests that replacing the highest value with a lower one returns the next
+     * one.
+     */
+    @Test
+    public final void testGetResult_Max_Replace() {
+        final Aggregator aggregator; // Tested aggregator
+
+        aggregator = new MaxAggregator();
+
+        aggregator.add(7);
+        aggregator.add(3);
+
+        aggregator.replace(7, 1);
+
+        Assert.assertEquals(aggregator.getResult(), 3);
+    }
+
+    /**
+     * Tests that the lowest value is returned.
+     */
+    @Test
+    public final void testGetResult_Min() {
+        final Aggregator aggregator; // Tested aggregator
+
+        aggregator = new MinAggregator();
+
+        aggregator.add(3);
+        aggregator.add(-2);
+        aggregator.add(7);
+
+        Assert.assertEquals(aggregator.getResult(), -2);
+    }
+
+    /**
+     * Tests that removing the lowest value returns the next one.
+     */
+    @Test
+    public final void testGetResult_Min_Remove() {
+        final Aggregator aggregator; // Tested aggregator
+
+        aggregator = new MinAggregator();
+
+        aggregator.add(3);
+        aggregator.add(-2);
+        aggregator.add(7);
+
+        aggregator.remove(-2);
+
+        Assert.assertEquals(aggregator.getResult(), 3);
+    }
+
+}
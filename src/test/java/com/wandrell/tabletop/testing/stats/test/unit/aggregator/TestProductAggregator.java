@@ -0,0 +1,159 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.testing.stats.test.unit.aggregator;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.wandrell.tabletop.stats.aggregator.Aggregator;
+import com.wandrell.tabletop.stats.aggregator.ProductAggregator;
+
+/**
+ * Unit test for {@link ProductAggregator}, checking that the product is
+ * tracked correctly.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>The result is one when there are no values.</li>
+ * <li>The values are multiplied, taking into account their signs.</li>
+ * <li>Any zero sets the result to zero.</li>
+ * <li>Removing all the zeros gives back the product of the other values.</li>
+ * <li>The result is set to the upper limit when the product overflows.</li>
+ * <li>The result is set to the lower limit when the product underflows.</li>
+ * <li>Removing values after the product overflows gives back the correct
+ * product.</li>
+ * </ol>
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class TestProductAggregator {
+
+    /**
+     * Constructs a {@code TestProductAggregator}.
+     */
+    public TestProductAggregator() {
+        super();
+    }
+
+    /**
+     * Tests that the result is one when there are no values.
+     */
+    @Test
+    public final void testGetResult_Empty() {
+        Assert.assertEquals(new ProductAggregator().getResult(), 1);
+    }
+
+    /**
+     * Tests that the result is set to the upper limit when the product
+     * overflows.
+     */
+    @Test
+    public final void testGetResult_Overflow() {
+        final Aggregator aggregator; // Tested aggregator
+
+        aggregator = new ProductAggregator();
+
+        aggregator.add(Integer.MAX_VALUE);
+        aggregator.add(2);
+
+        Assert.assertEquals(aggregator.getResult(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Tests that removing values after the product overflows gives back the
+     * correct product.
+     */
+    @Test
+    public final void testGetResult_Overflow_Remove() {
+        final Aggregator aggregator; // Tested aggregator
+
+        aggregator = new ProductAggregator();
+
+        aggregator.add(3);
+        aggregator.add(Integer.MAX_VALUE);
+        aggregator.add(Integer.MAX_VALUE);
+        aggregator.add(Integer.MAX_VALUE);
+
+        aggregator.remove(Integer.MAX_VALUE);
+        aggregator.remove(Integer.MAX_VALUE);
+
+        Assert.assertEquals(aggregator.getResult(), Integer.MAX_VALUE);
+
+        aggregator.remove(Integer.MAX_VALUE);
+
+        Assert.assertEquals(aggregator.getResult(), 3);
+    }
+
+    /**
+     * Tests that the values are multiplied, taking into account their signs.
+     */
+    @Test
+    public final void testGetResult_Signs() {
+        final Aggregator aggregator; // Tested aggregator
+
+        aggregator = new ProductAggregator();
+
+        aggregator.add(2);
+        aggregator.add(-3);
+        aggregator.add(1);
+
+        Assert.assertEquals(aggregator.getResult(), -6);
+
+        aggregator.add(-1);
+
+        Assert.assertEquals(aggregator.getResult(), 6);
+    }
+
+    /**
+     * Tests that the result is set to the lower limit when the product
+     * underflows.
+     */
+    @Test
+    public final void testGetResult_Underflow() {
+        final Aggregator aggregator; // Tested aggregator
+
+        aggregator = new ProductAggregator();
+
+        aggregator.add(Integer.MIN_VALUE);
+        aggregator.add(2);
+
+        Assert.assertEquals(aggregator.getResult(), Integer.MIN_VALUE);
+    }
+
+    /**
+     * Tests that any zero sets the result to zero, and removing all of them
+     * gives back the product of the other values.
+     */
+    @Test
+    public final void testGetResult_Zero() {
+        final Aggregator aggregator; // Tested aggregator
+
+        aggregator = new ProductAggregator();
+
+        aggregator.add(2);
+        aggregator.add(0);
+        aggregator.add(5);
+        aggregator.add(0);
+
+        Assert.assertEquals(aggregator.getResult(), 0);
+
+        aggregator.remove(0);
+        aggregator.replace(0, 3);
+
+        Assert.assertEquals(aggregator.getResult(), 30);
+    }
+
+}
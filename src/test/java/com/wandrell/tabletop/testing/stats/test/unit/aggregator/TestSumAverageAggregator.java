@@ -0,0 +1,131 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.testing.stats.test.unit.aggregator;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.wandrell.tabletop.stats.aggregator.Aggregator;
+import com.wandrell.tabletop.stats.aggregator.AverageAggregator;
+import com.wandrell.tabletop.stats.aggregator.SumAggregator;
+
+/**
+ * Unit test for {@link SumAggregator} and {@link AverageAggregator}, checking
+ * that the sum and average are tracked correctly.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>The result is zero when there are no values.</li>
+ * <li>The sum is set to the upper limit when it overflows.</li>
+ * <li>The sum is correct again once it goes back inside the limits.</li>
+ * <li>The average is rounded towards zero.</li>
+ * <li>The average does not overflow with big values.</li>
+ * <li>Replacing a value updates the average.</li>
+ * </ol>
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class TestSumAverageAggregator {
+
+    /**
+     * Constructs a {@code TestSumAverageAggregator}.
+     */
+    public TestSumAverageAggregator() {
+        super();
+    }
+
+    /**
+     * Tests that the average does not overflow with big values.
+     */
+    @Test
+    public final void testGetResult_Average_Big() {
+        final Aggregator aggregator; // Tested aggregator
+
+        aggregator = new AverageAggregator();
+
+        aggregator.add(Integer.MAX_VALUE);
+        aggregator.add(Integer.MAX_VALUE);
+
+        Assert.assertEquals(aggregator.getResult(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Tests that replacing a value updates the average.
+     */
+    @Test
+    public final void testGetResult_Average_Replace() {
+        final Aggregator aggregator; // Tested aggregator
+
+        aggregator = new AverageAggregator();
+
+        aggregator.add(2);
+        aggregator.add(4);
+
+        aggregator.replace(4, 10);
+
+        Assert.assertEquals(aggregator.getResult(), 6);
+    }
+
+    /**
+     * Tests that the average is rounded towards zero.
+     */
+    @Test
+    public final void testGetResult_Average_Rounding() {
+        final Aggregator aggregator; // Tested aggregator
+
+        aggregator = new AverageAggregator();
+
+        aggregator.add(1);
+        aggregator.add(2);
+
+        Assert.assertEquals(aggregator.getResult(), 1);
+
+        aggregator.replace(1, -1);
+        aggregator.replace(2, -2);
+
+        Assert.assertEquals(aggregator.getResult(), -1);
+    }
+
+    /**
+     * Tests that the result is zero when there are no values.
+     */
+    @Test
+    public final void testGetResult_Empty() {
+        Assert.assertEquals(new SumAggregator().getResult(), 0);
+        Assert.assertEquals(new AverageAggregator().getResult(), 0);
+    }
+
+    /**
+     * Tests that the sum is set to the upper limit when it overflows, and it is
+     * correct again once it goes back inside the limits.
+     */
+    @Test
+    public final void testGetResult_Sum_Overflow() {
+        final Aggregator aggregator; // Tested aggregator
+
+        aggregator = new SumAggregator();
+
+        aggregator.add(Integer.MAX_VALUE);
+        aggregator.add(10);
+
+        Assert.assertEquals(aggregator.getResult(), Integer.MAX_VALUE);
+
+        aggregator.remove(Integer.MAX_VALUE);
+
+        Assert.assertEquals(aggregator.getResult(), 10);
+    }
+
+}
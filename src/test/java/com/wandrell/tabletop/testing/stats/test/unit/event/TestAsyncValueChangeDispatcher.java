@@ -0,0 +1,323 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.testing.stats.test.unit.event;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.wandrell.tabletop.stats.event.AsyncValueChangeDispatcher;
+import com.wandrell.tabletop.stats.event.AsyncValueChangeDispatcher.OverflowPolicy;
+import com.wandrell.tabletop.stats.event.IntValueChangeListener;
+import com.wandrell.tabletop.stats.event.ValueChangeEvent;
+import com.wandrell.tabletop.stats.event.ValueChangeListener;
+import com.wandrell.tabletop.stats.valuebox.DefaultValueBox;
+import com.wandrell.tabletop.stats.valuebox.ValueBox;
+
+/**
+ * Unit test for {@link AsyncValueChangeDispatcher}, checking that the
+ * listeners are called through the executor, in order, and that the overflow
+ * policies are applied.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>The listener is not called until the executor runs the task.</li>
+ * <li>The changes are received in order when using a thread pool.</li>
+ * <li>When discarding the newest changes, only the first ones are
+ * received.</li>
+ * <li>When discarding the oldest changes, only the last ones are
+ * received.</li>
+ * <li>When failing, an exception is thrown once the queue is full.</li>
+ * <li>After a listener throws an error, the remaining changes are still
+ * received.</li>
+ * </ol>
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class TestAsyncValueChangeDispatcher {
+
+    /**
+     * Executor storing the tasks, so they can be run when needed.
+     * 
+     * @author Bernardo Martínez Garrido
+     */
+    private static final class ManualExecutor implements Executor {
+
+        /**
+         * Tasks received.
+         */
+        private final List<Runnable> tasks = new ArrayList<Runnable>();
+
+        /**
+         * Constructs a {@code ManualExecutor}.
+         */
+        public ManualExecutor() {
+            super();
+        }
+
+        @Override
+        public final void execute(final Runnable command) {
+            tasks.add(command);
+        }
+
+        /**
+         * Runs all the tasks received.
+         */
+        public final void runAll() {
+            while (!tasks.isEmpty()) {
+                tasks.remove(0).run();
+            }
+        }
+
+    }
+
+    /**
+     * Constructs a {@code TestAsyncValueChangeDispatcher}.
+     */
+    public TestAsyncValueChangeDispatcher() {
+        super();
+    }
+
+    /**
+     * Tests that the listener is not called until the executor runs the task.
+     */
+    @Test
+    public final void testDispatch_Deferred() {
+        final ManualExecutor executor;          // Executor
+        final AsyncValueChangeDispatcher async; // Tested dispatcher
+        final ValueBox box;                     // Changed value
+        final List<Integer> received;           // Received values
+
+        executor = new ManualExecutor();
+        async = new AsyncValueChangeDispatcher(executor, 10,
+                OverflowPolicy.FAIL);
+        received = new ArrayList<Integer>();
+
+        box = new DefaultValueBox(0);
+        box.addValueChangeListener(async.wrap(new ValueChangeListener() {
+
+            @Override
+            public final void valueChanged(final ValueChangeEvent event) {
+                received.add(event.getNewInt());
+            }
+
+        }));
+
+        box.setInt(1);
+        box.setInt(2);
+
+        Assert.assertTrue(received.isEmpty());
+
+        executor.runAll();
+
+        Assert.assertEquals(received, Arrays.asList(1, 2));
+    }
+
+    /**
+     * Tests that when discarding the newest changes, only the first ones are
+     * received.
+     */
+    @Test
+    public final void testDispatch_DiscardNewest() {
+        final ManualExecutor executor;          // Executor
+        final AsyncValueChangeDispatcher async; // Tested dispatcher
+        final ValueBox box;                     // Changed value
+        final List<Integer> received;           // Received values
+
+        executor = new ManualExecutor();
+        async = new AsyncValueChangeDispatcher(executor, 2,
+                OverflowPolicy.DISCARD_NEWEST);
+        received = new ArrayList<Integer>();
+
+        box = new DefaultValueBox(0);
+        box.addIntValueChangeListener(async.wrap(getListener(received)));
+
+        for (int i = 1; i <= 5; i++) {
+            box.setInt(i);
+        }
+
+        executor.runAll();
+
+        Assert.assertEquals(received, Arrays.asList(1, 2));
+    }
+
+    /**
+     * Tests that when discarding the oldest changes, only the last ones are
+     * received.
+     */
+    @Test
+    public final void testDispatch_DiscardOldest() {
+        final ManualExecutor executor;          // Executor
+        final AsyncValueChangeDispatcher async; // Tested dispatcher
+        final ValueBox box;                     // Changed value
+        final List<Integer> received;           // Received values
+
+        executor = new ManualExecutor();
+        async = new AsyncValueChangeDispatcher(executor, 2,
+                OverflowPolicy.DISCARD_OLDEST);
+        received = new ArrayList<Integer>();
+
+        box = new DefaultValueBox(0);
+        box.addIntValueChangeListener(async.wrap(getListener(received)));
+
+        for (int i = 1; i <= 5; i++) {
+            box.setInt(i);
+        }
+
+        executor.runAll();
+
+        Assert.assertEquals(received, Arrays.asList(4, 5));
+    }
+
+    /**
+     * Tests that after a listener throws an error, the remaining changes are
+     * still received.
+     */
+    @Test
+    public final void testDispatch_Error() {
+        final ManualExecutor executor;          // Executor
+        final AsyncValueChangeDispatcher async; // Tested dispatcher
+        final ValueBox box;                     // Changed value
+        final List<Integer> received;           // Received values
+        final Error failure;                    // Error thrown by the listener
+        Error thrown;                           // Error received
+
+        executor = new ManualExecutor();
+        async = new AsyncValueChangeDispatcher(executor, 10,
+                OverflowPolicy.BLOCK);
+        received = new ArrayList<Integer>();
+        failure = new Error("Listener failure");
+
+        box = new DefaultValueBox(0);
+        box.addValueChangeListener(async.wrap(new ValueChangeListener() {
+
+            @Override
+            public final void valueChanged(final ValueChangeEvent event) {
+                if (event.getNewInt() == 1) {
+                    throw failure;
+                }
+                received.add(event.getNewInt());
+            }
+
+        }));
+
+        box.setInt(1);
+        box.setInt(2);
+
+        thrown = null;
+        try {
+            executor.runAll();
+        } catch (final Error error) {
+            thrown = error;
+        }
+
+        Assert.assertSame(thrown, failure);
+
+        executor.runAll();
+        box.setInt(3);
+        executor.runAll();
+
+        Assert.assertEquals(received, Arrays.asList(2, 3));
+    }
+
+    /**
+     * Tests that when failing, an exception is thrown once the queue is full.
+     */
+    @Test(expectedExceptions = RejectedExecutionException.class)
+    public final void testDispatch_Fail() {
+        final ManualExecutor executor;          // Executor
+        final AsyncValueChangeDispatcher async; // Tested dispatcher
+        final ValueBox box;                     // Changed value
+
+        executor = new ManualExecutor();
+        async = new AsyncValueChangeDispatcher(executor, 2,
+                OverflowPolicy.FAIL);
+
+        box = new DefaultValueBox(0);
+        box.addIntValueChangeListener(async.wrap(getListener(
+                new ArrayList<Integer>())));
+
+        box.setInt(1);
+        box.setInt(2);
+        box.setInt(3);
+    }
+
+    /**
+     * Tests that the changes are received in order when using a thread pool.
+     * 
+     * @throws InterruptedException
+     *             if the test is interrupted while waiting for the executor
+     */
+    @Test
+    public final void testDispatch_Order() throws InterruptedException {
+        final ExecutorService executor;         // Executor
+        final AsyncValueChangeDispatcher async; // Tested dispatcher
+        final ValueBox box;                     // Changed value
+        final List<Integer> received;           // Received values
+        final int changes = 10000;              // Number of changes
+
+        executor = Executors.newFixedThreadPool(4);
+        async = new AsyncValueChangeDispatcher(executor, 16,
+                OverflowPolicy.BLOCK);
+        received = Collections.synchronizedList(new ArrayList<Integer>());
+
+        box = new DefaultValueBox(0);
+        box.addIntValueChangeListener(async.wrap(getListener(received)));
+
+        for (int i = 1; i <= changes; i++) {
+            box.setInt(i);
+        }
+
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        Assert.assertEquals(received.size(), changes);
+        for (int i = 0; i < changes; i++) {
+            Assert.assertEquals((int) received.get(i), i + 1);
+        }
+    }
+
+    /**
+     * Returns a primitive listener storing the new values into the received
+     * list.
+     * 
+     * @param received
+     *            list where the values will be stored
+     * @return a listener storing the values
+     */
+    private final IntValueChangeListener getListener(
+            final List<Integer> received) {
+        return new IntValueChangeListener() {
+
+            @Override
+            public final void valueChanged(final ValueBox source,
+                    final int oldValue, final int newValue) {
+                received.add(newValue);
+            }
+
+        };
+    }
+
+}
@@ -0,0 +1,199 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.testing.stats.test.unit.event;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.wandrell.tabletop.stats.event.ChangeJournal;
+import com.wandrell.tabletop.stats.event.ChangeJournal.Cursor;
+import com.wandrell.tabletop.stats.valuebox.DefaultValueBox;
+import com.wandrell.tabletop.stats.valuebox.ValueBox;
+
+/**
+ * Unit test for {@link ChangeJournal}, checking that the changes are recorded,
+ * read and replayed correctly.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>The changes of the tracked values are read in order.</li>
+ * <li>A cursor keeps reading the changes recorded after it ran out.</li>
+ * <li>When full, the oldest changes are overwritten, and a cursor which fell
+ * behind counts those it missed.</li>
+ * <li>Replaying sets the latest values into the received values.</li>
+ * <li>The changes of untracked values are not recorded.</li>
+ * </ol>
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class TestChangeJournal {
+
+    /**
+     * Constructs a {@code TestChangeJournal}.
+     */
+    public TestChangeJournal() {
+        super();
+    }
+
+    /**
+     * Tests that a cursor keeps reading the changes recorded after it ran out.
+     */
+    @Test
+    public final void testCursor_Continues() {
+        final ChangeJournal journal; // Tested journal
+        final ValueBox box;          // Tracked value
+        final Cursor cursor;         // Cursor for the changes
+
+        journal = new ChangeJournal(10);
+        box = new DefaultValueBox(0);
+        journal.track(box);
+
+        cursor = journal.getCursor();
+
+        box.setInt(1);
+
+        Assert.assertTrue(cursor.next());
+        Assert.assertFalse(cursor.next());
+
+        box.setInt(2);
+
+        Assert.assertTrue(cursor.next());
+        Assert.assertEquals(cursor.getSequence(), 1);
+        Assert.assertEquals(cursor.getOldValue(), 1);
+        Assert.assertEquals(cursor.getNewValue(), 2);
+    }
+
+    /**
+     * Tests that the changes of the tracked values are read in order.
+     */
+    @Test
+    public final void testCursor_Ordered() {
+        final ChangeJournal journal; // Tested journal
+        final ValueBox first;        // First tracked value
+        final ValueBox second;       // Second tracked value
+        final Cursor cursor;         // Cursor for the changes
+        final int idFirst;           // Id for the first value
+        final int idSecond;          // Id for the second value
+
+        journal = new ChangeJournal(10);
+        first = new DefaultValueBox(0);
+        second = new DefaultValueBox(5);
+        idFirst = journal.track(first);
+        idSecond = journal.track(second);
+
+        first.setInt(1);
+        second.setInt(6);
+
+        cursor = journal.getCursor();
+
+        Assert.assertTrue(cursor.next());
+        Assert.assertEquals(cursor.getSequence(), 0);
+        Assert.assertEquals(cursor.getBoxId(), idFirst);
+        Assert.assertEquals(cursor.getOldValue(), 0);
+        Assert.assertEquals(cursor.getNewValue(), 1);
+
+        Assert.assertTrue(cursor.next());
+        Assert.assertEquals(cursor.getSequence(), 1);
+        Assert.assertEquals(cursor.getBoxId(), idSecond);
+        Assert.assertEquals(cursor.getOldValue(), 5);
+        Assert.assertEquals(cursor.getNewValue(), 6);
+
+        Assert.assertFalse(cursor.next());
+    }
+
+    /**
+     * Tests that when full, the oldest changes are overwritten, and a cursor
+     * which fell behind counts those it missed.
+     */
+    @Test
+    public final void testCursor_Overwritten() {
+        final ChangeJournal journal; // Tested journal
+        final ValueBox box;          // Tracked value
+        final Cursor cursor;         // Cursor for the changes
+
+        journal = new ChangeJournal(3);
+        box = new DefaultValueBox(0);
+        journal.track(box);
+
+        cursor = journal.getCursor();
+
+        for (int i = 1; i <= 5; i++) {
+            box.setInt(i);
+        }
+
+        Assert.assertEquals(journal.getSize(), 3);
+
+        Assert.assertTrue(cursor.next());
+        Assert.assertEquals(cursor.getSkipped(), 2);
+        Assert.assertEquals(cursor.getSequence(), 2);
+        Assert.assertEquals(cursor.getNewValue(), 3);
+
+        Assert.assertTrue(cursor.next());
+        Assert.assertTrue(cursor.next());
+        Assert.assertEquals(cursor.getNewValue(), 5);
+        Assert.assertFalse(cursor.next());
+    }
+
+    /**
+     * Tests that replaying sets the latest values into the received values.
+     */
+    @Test
+    public final void testReplay() {
+        final ChangeJournal journal; // Tested journal
+        final ValueBox first;        // First tracked value
+        final ValueBox second;       // Second tracked value
+        final ValueBox[] copies;     // Values for the replay
+        final int applied;           // Number of changes applied
+
+        journal = new ChangeJournal(2);
+        first = new DefaultValueBox(0);
+        second = new DefaultValueBox(0);
+        journal.track(first);
+        journal.track(second);
+
+        second.setInt(7);
+        first.setInt(1);
+        first.setInt(2);
+
+        copies = new ValueBox[] { new DefaultValueBox(0),
+                new DefaultValueBox(0) };
+        applied = journal.replay(copies);
+
+        Assert.assertEquals(applied, 2);
+        Assert.assertEquals(copies[0].getInt(), 2);
+        // The change to the second value was overwritten
+        Assert.assertEquals(copies[1].getInt(), 0);
+    }
+
+    /**
+     * Tests that the changes of untracked values are not recorded.
+     */
+    @Test
+    public final void testUntrack() {
+        final ChangeJournal journal; // Tested journal
+        final ValueBox box;          // Tracked value
+
+        journal = new ChangeJournal(10);
+        box = new DefaultValueBox(0);
+
+        journal.untrack(journal.track(box));
+
+        box.setInt(1);
+
+        Assert.assertEquals(journal.getSize(), 0);
+    }
+
+}
@@ -0,0 +1,175 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.testing.stats.test.unit.event;
+
+import java.util.List;
+
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.wandrell.tabletop.stats.event.CoalescingValueChangeListener;
+import com.wandrell.tabletop.stats.event.ValueChangeEvent;
+import com.wandrell.tabletop.stats.event.ValueChangeListener;
+import com.wandrell.tabletop.stats.valuebox.DefaultValueBox;
+import com.wandrell.tabletop.stats.valuebox.ValueBox;
+
+/**
+ * Unit test for {@link CoalescingValueChangeListener}, checking that the
+ * changes are merged between flushes.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>Many changes to a value are sent as a single event.</li>
+ * <li>Changes which cancel each other are not sent.</li>
+ * <li>Each value sends its own event, in the order they first changed.</li>
+ * <li>Flushing twice sends the changes only once.</li>
+ * </ol>
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class TestCoalescingValueChangeListener {
+
+    /**
+     * Constructs a {@code TestCoalescingValueChangeListener}.
+     */
+    public TestCoalescingValueChangeListener() {
+        super();
+    }
+
+    /**
+     * Tests that changes which cancel each other are not sent.
+     */
+    @Test
+    public final void testFlush_Cancelled() {
+        final ValueChangeListener listener;             // Mocked listener
+        final CoalescingValueChangeListener coalescing; // Tested listener
+        final ValueBox box;                             // Changed value
+
+        listener = Mockito.mock(ValueChangeListener.class);
+        coalescing = new CoalescingValueChangeListener(listener);
+
+        box = new DefaultValueBox(5);
+        box.addValueChangeListener(coalescing);
+
+        box.setInt(8);
+        box.setInt(2);
+        box.setInt(5);
+
+        coalescing.flush();
+
+        Mockito.verifyZeroInteractions(listener);
+    }
+
+    /**
+     * Tests that many changes to a value are sent as a single event.
+     */
+    @Test
+    public final void testFlush_Merged() {
+        final ValueChangeListener listener;             // Mocked listener
+        final CoalescingValueChangeListener coalescing; // Tested listener
+        final ValueBox box;                             // Changed value
+        final ArgumentCaptor<ValueChangeEvent> captor;  // Event captor
+
+        listener = Mockito.mock(ValueChangeListener.class);
+        coalescing = new CoalescingValueChangeListener(listener);
+        captor = ArgumentCaptor.forClass(ValueChangeEvent.class);
+
+        box = new DefaultValueBox(0);
+        box.addIntValueChangeListener(coalescing);
+
+        for (int i = 1; i <= 200; i++) {
+            box.setInt(i);
+        }
+
+        Mockito.verifyZeroInteractions(listener);
+
+        coalescing.flush();
+
+        Mockito.verify(listener, Mockito.times(1)).valueChanged(
+                captor.capture());
+
+        Assert.assertEquals(captor.getValue().getSource(), box);
+        Assert.assertEquals(captor.getValue().getOldInt(), 0);
+        Assert.assertEquals(captor.getValue().getNewInt(), 200);
+    }
+
+    /**
+     * Tests that each value sends its own event, in the order they first
+     * changed.
+     */
+    @Test
+    public final void testFlush_Ordered() {
+        final ValueChangeListener listener;             // Mocked listener
+        final CoalescingValueChangeListener coalescing; // Tested listener
+        final ValueBox first;                           // First value
+        final ValueBox second;                          // Second value
+        final ArgumentCaptor<ValueChangeEvent> captor;  // Event captor
+        final List<ValueChangeEvent> events;            // Sent events
+
+        listener = Mockito.mock(ValueChangeListener.class);
+        coalescing = new CoalescingValueChangeListener(listener);
+        captor = ArgumentCaptor.forClass(ValueChangeEvent.class);
+
+        first = new DefaultValueBox(0);
+        second = new DefaultValueBox(0);
+        first.addValueChangeListener(coalescing);
+        second.addValueChangeListener(coalescing);
+
+        second.setInt(1);
+        first.setInt(1);
+        second.setInt(2);
+        first.setInt(3);
+
+        coalescing.flush();
+
+        Mockito.verify(listener, Mockito.times(2)).valueChanged(
+                captor.capture());
+        events = captor.getAllValues();
+
+        Assert.assertTrue(events.get(0).getSource() == second);
+        Assert.assertEquals(events.get(0).getNewInt(), 2);
+        Assert.assertTrue(events.get(1).getSource() == first);
+        Assert.assertEquals(events.get(1).getNewInt(), 3);
+    }
+
+    /**
+     * Tests that flushing twice sends the changes only once.
+     */
+    @Test
+    public final void testFlush_Twice() {
+        final ValueChangeListener listener;             // Mocked listener
+        final CoalescingValueChangeListener coalescing; // Tested listener
+        final ValueBox box;                             // Changed value
+
+        listener = Mockito.mock(ValueChangeListener.class);
+        coalescing = new CoalescingValueChangeListener(listener);
+
+        box = new DefaultValueBox(0);
+        box.addValueChangeListener(coalescing);
+
+        box.setInt(1);
+
+        coalescing.flush();
+        coalescing.flush();
+
+        Mockito.verify(listener, Mockito.times(1)).valueChanged(
+                Mockito.any(ValueChangeEvent.class));
+        Assert.assertEquals(coalescing.getPendingCount(), 0);
+    }
+
+}
@@ -0,0 +1,246 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.testing.stats.test.unit.event;
+
+import java.util.List;
+
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.wandrell.tabletop.stats.event.IntValueChangeListener;
+import com.wandrell.tabletop.stats.event.ValueBoxPublisher;
+import com.wandrell.tabletop.stats.event.ValueBoxPublisher.BackpressureStrategy;
+import com.wandrell.tabletop.stats.event.ValueChangeEvent;
+import com.wandrell.tabletop.stats.event.ValueChangeSubscriber;
+import com.wandrell.tabletop.stats.event.ValueChangeSubscription;
+import com.wandrell.tabletop.stats.valuebox.DefaultValueBox;
+import com.wandrell.tabletop.stats.valuebox.ValueBox;
+
+/**
+ * Unit test for {@link ValueBoxPublisher}, checking that the subscribers
+ * receive only the changes they request.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>No change is sent until it is requested.</li>
+ * <li>With the latest strategy, the changes not requested are merged.</li>
+ * <li>With the buffer strategy, the changes not requested are sent in order
+ * once requested.</li>
+ * <li>With the buffer strategy, the subscription fails when the buffer
+ * overflows.</li>
+ * <li>Requesting zero changes fails the subscription.</li>
+ * <li>Cancelling the subscription removes its listener from the value.</li>
+ * </ol>
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class TestValueBoxPublisher {
+
+    /**
+     * Constructs a {@code TestValueBoxPublisher}.
+     */
+    public TestValueBoxPublisher() {
+        super();
+    }
+
+    /**
+     * Tests that with the buffer strategy, the changes not requested are sent
+     * in order once requested.
+     */
+    @Test
+    public final void testBuffer_Ordered() {
+        final ValueBox box;                            // Published value
+        final ValueChangeSubscriber subscriber;        // Mocked subscriber
+        final ValueChangeSubscription subscription;    // Subscription
+        final ArgumentCaptor<ValueChangeEvent> captor; // Event captor
+        final List<ValueChangeEvent> events;           // Sent events
+
+        box = new DefaultValueBox(0);
+        subscriber = Mockito.mock(ValueChangeSubscriber.class);
+        captor = ArgumentCaptor.forClass(ValueChangeEvent.class);
+
+        subscription = subscribe(new ValueBoxPublisher(box,
+                BackpressureStrategy.BUFFER, 4), subscriber);
+
+        box.setInt(1);
+        box.setInt(2);
+        box.setInt(3);
+
+        subscription.request(2);
+
+        Mockito.verify(subscriber, Mockito.times(2)).onNext(captor.capture());
+        events = captor.getAllValues();
+
+        Assert.assertEquals(events.get(0).getOldInt(), 0);
+        Assert.assertEquals(events.get(0).getNewInt(), 1);
+        Assert.assertEquals(events.get(1).getOldInt(), 1);
+        Assert.assertEquals(events.get(1).getNewInt(), 2);
+    }
+
+    /**
+     * Tests that with the buffer strategy, the subscription fails when the
+     * buffer overflows.
+     */
+    @Test
+    public final void testBuffer_Overflow() {
+        final ValueBox box;                     // Published value
+        final ValueChangeSubscriber subscriber; // Mocked subscriber
+
+        box = new DefaultValueBox(0);
+        subscriber = Mockito.mock(ValueChangeSubscriber.class);
+
+        subscribe(new ValueBoxPublisher(box, BackpressureStrategy.BUFFER, 2),
+                subscriber);
+
+        box.setInt(1);
+        box.setInt(2);
+        box.setInt(3);
+
+        Mockito.verify(subscriber).onError(
+                Mockito.any(IllegalStateException.class));
+        Mockito.verify(subscriber, Mockito.never()).onNext(
+                Mockito.any(ValueChangeEvent.class));
+    }
+
+    /**
+     * Tests that cancelling the subscription removes its listener from the
+     * value.
+     */
+    @Test
+    public final void testCancel_Unregisters() {
+        final ValueBox box;                                  // Mocked value
+        final ValueChangeSubscriber subscriber;              // Subscriber
+        final ValueChangeSubscription subscription;          // Subscription
+        final ArgumentCaptor<IntValueChangeListener> captor; // Listener captor
+
+        box = Mockito.mock(ValueBox.class);
+        subscriber = Mockito.mock(ValueChangeSubscriber.class);
+        captor = ArgumentCaptor.forClass(IntValueChangeListener.class);
+
+        subscription = subscribe(new ValueBoxPublisher(box), subscriber);
+
+        Mockito.verify(box).addIntValueChangeListener(captor.capture());
+
+        subscription.cancel();
+
+        Mockito.verify(box).removeIntValueChangeListener(captor.getValue());
+    }
+
+    /**
+     * Tests that with the latest strategy, the changes not requested are
+     * merged.
+     */
+    @Test
+    public final void testLatest_Merged() {
+        final ValueBox box;                            // Published value
+        final ValueChangeSubscriber subscriber;        // Mocked subscriber
+        final ValueChangeSubscription subscription;    // Subscription
+        final ArgumentCaptor<ValueChangeEvent> captor; // Event captor
+
+        box = new DefaultValueBox(0);
+        subscriber = Mockito.mock(ValueChangeSubscriber.class);
+        captor = ArgumentCaptor.forClass(ValueChangeEvent.class);
+
+        subscription = subscribe(new ValueBoxPublisher(box), subscriber);
+
+        for (int i = 1; i <= 100; i++) {
+            box.setInt(i);
+        }
+
+        subscription.request(5);
+
+        Mockito.verify(subscriber, Mockito.times(1)).onNext(captor.capture());
+        Assert.assertTrue(captor.getValue().getSource() == box);
+        Assert.assertEquals(captor.getValue().getOldInt(), 0);
+        Assert.assertEquals(captor.getValue().getNewInt(), 100);
+
+        // The remaining demand lets new changes through
+        box.setInt(101);
+
+        Mockito.verify(subscriber, Mockito.times(2)).onNext(
+                Mockito.any(ValueChangeEvent.class));
+    }
+
+    /**
+     * Tests that no change is sent until it is requested.
+     */
+    @Test
+    public final void testNotRequested() {
+        final ValueBox box;                     // Published value
+        final ValueChangeSubscriber subscriber; // Mocked subscriber
+
+        box = new DefaultValueBox(0);
+        subscriber = Mockito.mock(ValueChangeSubscriber.class);
+
+        subscribe(new ValueBoxPublisher(box), subscriber);
+
+        box.setInt(1);
+
+        Mockito.verify(subscriber, Mockito.never()).onNext(
+                Mockito.any(ValueChangeEvent.class));
+    }
+
+    /**
+     * Tests that requesting zero changes fails the subscription.
+     */
+    @Test
+    public final void testRequest_Zero() {
+        final ValueBox box;                         // Published value
+        final ValueChangeSubscriber subscriber;     // Mocked subscriber
+        final ValueChangeSubscription subscription; // Subscription
+
+        box = new DefaultValueBox(0);
+        subscriber = Mockito.mock(ValueChangeSubscriber.class);
+
+        subscription = subscribe(new ValueBoxPublisher(box), subscriber);
+
+        subscription.request(0);
+        subscription.request(1);
+        box.setInt(1);
+
+        Mockito.verify(subscriber).onError(
+                Mockito.any(IllegalArgumentException.class));
+        Mockito.verify(subscriber, Mockito.never()).onNext(
+                Mockito.any(ValueChangeEvent.class));
+    }
+
+    /**
+     * Subscribes the received subscriber, and returns the subscription it
+     * received.
+     * 
+     * @param publisher
+     *            publisher to subscribe to
+     * @param subscriber
+     *            mocked subscriber
+     * @return the subscription received by the subscriber
+     */
+    private final ValueChangeSubscription subscribe(
+            final ValueBoxPublisher publisher,
+            final ValueChangeSubscriber subscriber) {
+        final ArgumentCaptor<ValueChangeSubscription> captor; // Captor
+
+        captor = ArgumentCaptor.forClass(ValueChangeSubscription.class);
+
+        publisher.subscribe(subscriber);
+
+        Mockito.verify(subscriber).onSubscribe(captor.capture());
+
+        return captor.getValue();
+    }
+
+}
@@ -69,8 +69,8 @@ public final class TestAggregatedValueBox {
         value1 = Mockito.mock(ValueBox.class);
         value2 = Mockito.mock(ValueBox.class);
 
-        Mockito.when(value1.getValue()).thenReturn(1);
-        Mockito.when(value2.getValue()).thenReturn(4);
+        Mockito.when(value1.getInt()).thenReturn(1);
+        Mockito.when(value2.getInt()).thenReturn(4);
 
         aggregated = new AggregatedValueBox(value1);
 
@@ -92,8 +92,8 @@ public final class TestAggregatedValueBox {
         value1 = Mockito.mock(ValueBox.class);
         value2 = Mockito.mock(ValueBox.class);
 
-        Mockito.when(value1.getValue()).thenReturn(0 - 1);
-        Mockito.when(value2.getValue()).thenReturn(Integer.MIN_VALUE);
+        Mockito.when(value1.getInt()).thenReturn(0 - 1);
+        Mockito.when(value2.getInt()).thenReturn(Integer.MIN_VALUE);
 
         aggregated = new AggregatedValueBox(value1);
 
@@ -115,8 +115,8 @@ public final class TestAggregatedValueBox {
         value1 = Mockito.mock(ValueBox.class);
         value2 = Mockito.mock(ValueBox.class);
 
-        Mockito.when(value1.getValue()).thenReturn(1);
-        Mockito.when(value2.getValue()).thenReturn(Integer.MAX_VALUE);
+        Mockito.when(value1.getInt()).thenReturn(1);
+        Mockito.when(value2.getInt()).thenReturn(Integer.MAX_VALUE);
 
         aggregated = new AggregatedValueBox(value1);
 
@@ -148,7 +148,7 @@ public final class TestAggregatedValueBox {
 
         value1 = Mockito.mock(ValueBox.class);
 
-        Mockito.when(value1.getValue()).thenReturn(1);
+        Mockito.when(value1.getInt()).thenReturn(1);
 
         aggregated = new AggregatedValueBox(value1);
 
@@ -168,8 +168,8 @@ public final class TestAggregatedValueBox {
         value1 = Mockito.mock(ValueBox.class);
         value2 = Mockito.mock(ValueBox.class);
 
-        Mockito.when(value1.getValue()).thenReturn(1);
-        Mockito.when(value2.getValue()).thenReturn(Integer.MAX_VALUE);
+        Mockito.when(value1.getInt()).thenReturn(1);
+        Mockito.when(value2.getInt()).thenReturn(Integer.MAX_VALUE);
 
         aggregated = new AggregatedValueBox(value1, value2);
 
@@ -189,8 +189,8 @@ public final class TestAggregatedValueBox {
         value1 = Mockito.mock(ValueBox.class);
         value2 = Mockito.mock(ValueBox.class);
 
-        Mockito.when(value1.getValue()).thenReturn(-1);
-        Mockito.when(value2.getValue()).thenReturn(Integer.MIN_VALUE);
+        Mockito.when(value1.getInt()).thenReturn(-1);
+        Mockito.when(value2.getInt()).thenReturn(Integer.MIN_VALUE);
 
         aggregated = new AggregatedValueBox(value1, value2);
 
@@ -210,8 +210,8 @@ public final class TestAggregatedValueBox {
         value1 = Mockito.mock(ValueBox.class);
         value2 = Mockito.mock(ValueBox.class);
 
-        Mockito.when(value1.getValue()).thenReturn(1);
-        Mockito.when(value2.getValue()).thenReturn(4);
+        Mockito.when(value1.getInt()).thenReturn(1);
+        Mockito.when(value2.getInt()).thenReturn(4);
 
         aggregated = new AggregatedValueBox(value1, value2);
 
@@ -234,8 +234,8 @@ public final class TestAggregatedValueBox {
         value1 = Mockito.mock(ValueBox.class);
         value2 = Mockito.mock(ValueBox.class);
 
-        Mockito.when(value1.getValue()).thenReturn(1);
-        Mockito.when(value2.getValue()).thenReturn(4);
+        Mockito.when(value1.getInt()).thenReturn(1);
+        Mockito.when(value2.getInt()).thenReturn(4);
 
         aggregated = new AggregatedValueBox(value1, value2);
 
@@ -257,8 +257,8 @@ public final class TestAggregatedValueBox {
         value1 = Mockito.mock(ValueBox.class);
         value2 = Mockito.mock(ValueBox.class);
 
-        Mockito.when(value1.getValue()).thenReturn(1);
-        Mockito.when(value2.getValue()).thenReturn(4);
+        Mockito.when(value1.getInt()).thenReturn(1);
+        Mockito.when(value2.getInt()).thenReturn(4);
 
         aggregated = new AggregatedValueBox(value1, value2);
 
@@ -0,0 +1,197 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.testing.stats.test.unit.valuebox;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.wandrell.tabletop.stats.event.ValueChangeEvent;
+import com.wandrell.tabletop.stats.event.ValueChangeListener;
+import com.wandrell.tabletop.stats.valuebox.AtomicValueBox;
+import com.wandrell.tabletop.stats.valuebox.ValueOperator;
+
+/**
+ * Unit test for {@link AtomicValueBox}, checking that the atomic operations
+ * work correctly.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>A successful compare-and-set changes the value and fires an event.</li>
+ * <li>A failed compare-and-set doesn't change the value nor fire events.</li>
+ * <li>Adding a value which overflows sets the maximum integer.</li>
+ * <li>Updating with an operator stores the result.</li>
+ * <li>Concurrent additions are not lost, and all the events have consistent
+ * values.</li>
+ * </ol>
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class TestAtomicValueBox {
+
+    /**
+     * Constructs a {@code TestAtomicValueBox}.
+     */
+    public TestAtomicValueBox() {
+        super();
+    }
+
+    /**
+     * Tests that a failed compare-and-set doesn't change the value nor fire
+     * events.
+     */
+    @Test
+    public final void testCompareAndSet_Failed() {
+        final AtomicValueBox box;           // Tested ValueBox
+        final ValueChangeListener listener; // Mocked listener
+
+        box = new AtomicValueBox(1);
+
+        listener = Mockito.mock(ValueChangeListener.class);
+        box.addValueChangeListener(listener);
+
+        Assert.assertFalse(box.compareAndSet(2, 5));
+
+        Assert.assertEquals(box.getInt(), 1);
+        Mockito.verify(listener, Mockito.never()).valueChanged(
+                Mockito.any(ValueChangeEvent.class));
+    }
+
+    /**
+     * Tests that a successful compare-and-set changes the value and fires an
+     * event.
+     */
+    @Test
+    public final void testCompareAndSet_Set() {
+        final AtomicValueBox box;           // Tested ValueBox
+        final ValueChangeListener listener; // Mocked listener
+
+        box = new AtomicValueBox(1);
+
+        listener = Mockito.mock(ValueChangeListener.class);
+        box.addValueChangeListener(listener);
+
+        Assert.assertTrue(box.compareAndSet(1, 5));
+
+        Assert.assertEquals(box.getInt(), 5);
+        Mockito.verify(listener, Mockito.times(1)).valueChanged(
+                Mockito.any(ValueChangeEvent.class));
+    }
+
+    /**
+     * Tests that concurrent additions are not lost, and all the events have
+     * consistent values.
+     * 
+     * @throws InterruptedException
+     *             if the test is interrupted
+     */
+    @Test
+    public final void testGetAndAdd_Concurrent() throws InterruptedException {
+        final AtomicValueBox box;            // Tested ValueBox
+        final AtomicLong delta;              // Addition of all the changes
+        final AtomicInteger inconsistent;    // Events with wrong values
+        final ExecutorService executor;      // Executor for the threads
+        final CountDownLatch start;          // Starts all the threads
+        final Integer threads = 4;           // Number of threads
+        final Integer additions = 10000;     // Additions for each thread
+
+        box = new AtomicValueBox();
+        delta = new AtomicLong();
+        inconsistent = new AtomicInteger();
+
+        box.addValueChangeListener(new ValueChangeListener() {
+
+            @Override
+            public final void valueChanged(final ValueChangeEvent event) {
+                delta.addAndGet(event.getNewInt() - event.getOldInt());
+                if (event.getNewInt() != event.getOldInt() + 1) {
+                    inconsistent.incrementAndGet();
+                }
+            }
+
+        });
+
+        executor = Executors.newFixedThreadPool(threads);
+        start = new CountDownLatch(1);
+        for (int i = 0; i < threads; i++) {
+            executor.execute(new Runnable() {
+
+                @Override
+                public final void run() {
+                    try {
+                        start.await();
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int j = 0; j < additions; j++) {
+                        box.getAndAdd(1);
+                    }
+                }
+
+            });
+        }
+
+        start.countDown();
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        Assert.assertEquals(box.getInt(), threads * additions);
+        Assert.assertEquals(delta.get(), (long) (threads * additions));
+        Assert.assertEquals(inconsistent.get(), 0);
+    }
+
+    /**
+     * Tests that adding a value which overflows sets the maximum integer.
+     */
+    @Test
+    public final void testGetAndAdd_Overflow() {
+        final AtomicValueBox box; // Tested ValueBox
+
+        box = new AtomicValueBox(Integer.MAX_VALUE - 1);
+
+        Assert.assertEquals(box.getAndAdd(10), Integer.MAX_VALUE - 1);
+        Assert.assertEquals(box.getInt(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Tests that updating with an operator stores the result.
+     */
+    @Test
+    public final void testUpdateAndGet() {
+        final AtomicValueBox box; // Tested ValueBox
+
+        box = new AtomicValueBox(3);
+
+        Assert.assertEquals(box.updateAndGet(new ValueOperator() {
+
+            @Override
+            public final int apply(final int value) {
+                return value * 2;
+            }
+
+        }), 6);
+        Assert.assertEquals(box.getInt(), 6);
+    }
+
+}
@@ -0,0 +1,238 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.testing.stats.test.unit.valuebox;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.wandrell.tabletop.stats.aggregator.SumAggregator;
+import com.wandrell.tabletop.stats.valuebox.AggregatedValueBox;
+import com.wandrell.tabletop.stats.valuebox.DefaultValueBox;
+import com.wandrell.tabletop.stats.valuebox.ValueBox;
+
+/**
+ * Unit test for {@link AggregatedValueBox}, checking that cycles are
+ * rejected.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>An {@code AggregatedValueBox} can't be added to itself.</li>
+ * <li>An {@code AggregatedValueBox} can't be added to one it aggregates.</li>
+ * <li>An {@code AggregatedValueBox} can't be added to one it aggregates
+ * through other values.</li>
+ * <li>A rejected cycle leaves the values working.</li>
+ * <li>Values shared through several paths are not taken for cycles.</li>
+ * <li>Cycles are rejected at the end of a long chain.</li>
+ * <li>A long chain built from the top down propagates changes and rejects
+ * cycles.</li>
+ * <li>A long chain raised from the bottom propagates changes and rejects
+ * cycles.</li>
+ * </ol>
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class TestCycleAggregatedValueBox {
+
+    /**
+     * Constructs a {@code TestCycleAggregatedValueBox}.
+     */
+    public TestCycleAggregatedValueBox() {
+        super();
+    }
+
+    /**
+     * Tests that cycles are rejected at the end of a long chain.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public final void testAdd_LongChain() {
+        final AggregatedValueBox bottom; // Bottom of the chain
+        AggregatedValueBox top;          // Top of the chain
+
+        bottom = new AggregatedValueBox(new DefaultValueBox(1));
+        top = bottom;
+        for (int i = 0; i < 1000; i++) {
+            top = new AggregatedValueBox(new SumAggregator(), top);
+        }
+
+        bottom.addValueBox(top);
+    }
+
+    /**
+     * Tests that a long chain built from the top down propagates changes and
+     * rejects cycles.
+     */
+    @Test
+    public final void testAdd_LongChain_TopDown() {
+        final AggregatedValueBox top; // Top of the chain
+        final DefaultValueBox value;  // Value at the bottom
+        AggregatedValueBox bottom;    // Bottom of the chain
+        AggregatedValueBox box;       // Box added to the bottom
+
+        top = new AggregatedValueBox();
+        bottom = top;
+        for (int i = 0; i < 5000; i++) {
+            box = new AggregatedValueBox();
+            bottom.addValueBox(box);
+            bottom = box;
+        }
+
+        value = new DefaultValueBox(1);
+        bottom.addValueBox(value);
+
+        value.setInt(5);
+
+        Assert.assertEquals(top.getInt(), 5);
+
+        try {
+            bottom.addValueBox(top);
+            Assert.fail();
+        } catch (final IllegalArgumentException exception) {
+            // Expected
+        }
+    }
+
+    /**
+     * Tests that a long chain raised from the bottom, by adding there an
+     * {@code AggregatedValueBox} which aggregates another one, propagates
+     * changes and rejects cycles.
+     */
+    @Test
+    public final void testAdd_LongChain_Raised() {
+        final AggregatedValueBox bottom; // Bottom of the chain
+        final AggregatedValueBox nested; // Aggregated by the added box
+        final DefaultValueBox value;     // Value aggregated by the nested box
+        AggregatedValueBox top;          // Top of the chain
+
+        bottom = new AggregatedValueBox(new DefaultValueBox(1));
+        top = bottom;
+        for (int i = 0; i < 20000; i++) {
+            top = new AggregatedValueBox(new SumAggregator(), top);
+        }
+
+        value = new DefaultValueBox(2);
+        nested = new AggregatedValueBox(new SumAggregator(), value);
+        bottom.addValueBox(new AggregatedValueBox(new SumAggregator(), nested));
+
+        value.setInt(5);
+
+        Assert.assertEquals(top.getInt(), 6);
+
+        try {
+            nested.addValueBox(top);
+            Assert.fail();
+        } catch (final IllegalArgumentException exception) {
+            // Expected
+        }
+    }
+
+    /**
+     * Tests that an {@code AggregatedValueBox} can't be added to one it
+     * aggregates.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public final void testAdd_Parent() {
+        final AggregatedValueBox child;  // Aggregated value
+        final AggregatedValueBox parent; // Aggregating value
+
+        child = new AggregatedValueBox();
+        parent = new AggregatedValueBox(new SumAggregator(), child);
+
+        child.addValueBox(parent);
+    }
+
+    /**
+     * Tests that a rejected cycle leaves the values working.
+     */
+    @Test
+    public final void testAdd_Rejected_Working() {
+        final ValueBox value;            // Base value
+        final AggregatedValueBox child;  // Aggregated value
+        final AggregatedValueBox parent; // Aggregating value
+
+        value = new DefaultValueBox(1);
+        child = new AggregatedValueBox(value);
+        parent = new AggregatedValueBox(new SumAggregator(), child);
+
+        try {
+            child.addValueBox(parent);
+            Assert.fail("The cycle was accepted");
+        } catch (final IllegalArgumentException exception) {
+            // Expected
+        }
+
+        value.setInt(5);
+
+        Assert.assertEquals(child.getInt(), 5);
+        Assert.assertEquals(parent.getInt(), 5);
+        Assert.assertFalse(child.getValueBoxes().contains(parent));
+    }
+
+    /**
+     * Tests that an {@code AggregatedValueBox} can't be added to itself.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public final void testAdd_Self() {
+        final AggregatedValueBox box; // Tested value
+
+        box = new AggregatedValueBox();
+
+        box.addValueBox(box);
+    }
+
+    /**
+     * Tests that values shared through several paths are not taken for
+     * cycles.
+     */
+    @Test
+    public final void testAdd_Shared() {
+        final ValueBox value;            // Base value
+        final AggregatedValueBox shared; // Value aggregated twice
+        final AggregatedValueBox left;   // First path
+        final AggregatedValueBox right;  // Second path
+        final AggregatedValueBox top;    // Aggregating both paths
+
+        value = new DefaultValueBox(1);
+        shared = new AggregatedValueBox(value);
+        left = new AggregatedValueBox(new SumAggregator(), shared);
+        right = new AggregatedValueBox(new SumAggregator(), shared);
+        top = new AggregatedValueBox(new SumAggregator(), left);
+
+        top.addValueBox(right);
+        top.addValueBox(shared);
+
+        value.setInt(2);
+
+        Assert.assertEquals(top.getInt(), 6);
+    }
+
+    /**
+     * Tests that an {@code AggregatedValueBox} can't be added to one it
+     * aggregates through other values.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public final void testAdd_Transitive() {
+        final AggregatedValueBox first;  // Bottom value
+        final AggregatedValueBox second; // Middle value
+        final AggregatedValueBox third;  // Top value
+
+        first = new AggregatedValueBox();
+        second = new AggregatedValueBox(new SumAggregator(), first);
+        third = new AggregatedValueBox(new SumAggregator(), second);
+
+        first.addValueBox(third);
+    }
+
+}
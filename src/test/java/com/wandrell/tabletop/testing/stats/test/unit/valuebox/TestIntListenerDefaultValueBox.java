@@ -0,0 +1,145 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.testing.stats.test.unit.valuebox;
+
+import org.mockito.ArgumentCaptor;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.wandrell.tabletop.stats.event.IntValueChangeListener;
+import com.wandrell.tabletop.stats.event.ValueChangeEvent;
+import com.wandrell.tabletop.stats.event.ValueChangeListener;
+import com.wandrell.tabletop.stats.valuebox.DefaultValueBox;
+import com.wandrell.tabletop.stats.valuebox.ValueBox;
+import com.wandrell.tabletop.stats.valuebox.ValueBoxBatch;
+
+/**
+ * Unit tests for {@link DefaultValueBox}, checking that the primitive
+ * listeners are notified correctly.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>The primitive listener receives the source and both values.</li>
+ * <li>Primitive and event listeners receive the same values.</li>
+ * <li>A removed primitive listener is not notified.</li>
+ * <li>Inside a batch the primitive listener receives a single change.</li>
+ * </ol>
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class TestIntListenerDefaultValueBox {
+
+    /**
+     * Constructs a {@code TestIntListenerDefaultValueBox}.
+     */
+    public TestIntListenerDefaultValueBox() {
+        super();
+    }
+
+    /**
+     * Tests that inside a batch the primitive listener receives a single
+     * change.
+     */
+    @Test
+    public final void testSetValue_Batch() {
+        final ValueBox box;                      // Tested ValueBox
+        final IntValueChangeListener listener;   // Mocked listener
+
+        box = new DefaultValueBox(1);
+
+        listener = Mockito.mock(IntValueChangeListener.class);
+        box.addIntValueChangeListener(listener);
+
+        try (ValueBoxBatch batch = ValueBoxBatch.open()) {
+            box.setInt(2);
+            box.setInt(3);
+        }
+
+        Mockito.verify(listener, Mockito.times(1)).valueChanged(
+                Matchers.any(ValueBox.class), Matchers.anyInt(),
+                Matchers.anyInt());
+        Mockito.verify(listener).valueChanged(box, 1, 3);
+    }
+
+    /**
+     * Tests that primitive and event listeners receive the same values.
+     */
+    @Test
+    public final void testSetValue_Both() {
+        final ValueBox box;                            // Tested ValueBox
+        final IntValueChangeListener listenerInt;      // Primitive listener
+        final ValueChangeListener listenerEvent;       // Event listener
+        final ArgumentCaptor<ValueChangeEvent> captor; // Event captor
+
+        box = new DefaultValueBox(1);
+
+        listenerInt = Mockito.mock(IntValueChangeListener.class);
+        listenerEvent = Mockito.mock(ValueChangeListener.class);
+        captor = ArgumentCaptor.forClass(ValueChangeEvent.class);
+
+        box.addIntValueChangeListener(listenerInt);
+        box.addValueChangeListener(listenerEvent);
+
+        box.setInt(4);
+
+        Mockito.verify(listenerInt).valueChanged(box, 1, 4);
+        Mockito.verify(listenerEvent).valueChanged(captor.capture());
+
+        Assert.assertEquals(captor.getValue().getSource(), box);
+        Assert.assertEquals(captor.getValue().getOldInt(), 1);
+        Assert.assertEquals(captor.getValue().getNewInt(), 4);
+    }
+
+    /**
+     * Tests that the primitive listener receives the source and both values.
+     */
+    @Test
+    public final void testSetValue_Primitive() {
+        final ValueBox box;                    // Tested ValueBox
+        final IntValueChangeListener listener; // Mocked listener
+
+        box = new DefaultValueBox(0);
+
+        listener = Mockito.mock(IntValueChangeListener.class);
+        box.addIntValueChangeListener(listener);
+
+        box.setValue(10);
+
+        Mockito.verify(listener, Mockito.times(1)).valueChanged(box, 0, 10);
+    }
+
+    /**
+     * Tests that a removed primitive listener is not notified.
+     */
+    @Test
+    public final void testSetValue_Removed() {
+        final ValueBox box;                    // Tested ValueBox
+        final IntValueChangeListener listener; // Mocked listener
+
+        box = new DefaultValueBox(0);
+
+        listener = Mockito.mock(IntValueChangeListener.class);
+        box.addIntValueChangeListener(listener);
+        box.removeIntValueChangeListener(listener);
+
+        box.setValue(10);
+
+        Mockito.verifyZeroInteractions(listener);
+    }
+
+}
@@ -0,0 +1,179 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.testing.stats.test.unit.valuebox;
+
+import java.util.EventListener;
+
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.testng.annotations.Test;
+
+import com.wandrell.tabletop.stats.aggregator.SumAggregator;
+import com.wandrell.tabletop.stats.event.IntValueChangeListener;
+import com.wandrell.tabletop.stats.event.ValueChangeListener;
+import com.wandrell.tabletop.stats.valuebox.AggregatedValueBox;
+import com.wandrell.tabletop.stats.valuebox.DefaultValueBox;
+import com.wandrell.tabletop.stats.valuebox.MetricsRecorder;
+import com.wandrell.tabletop.stats.valuebox.ValueBox;
+
+/**
+ * Unit tests for {@link DefaultValueBox}, checking that the notifications are
+ * recorded by the {@link MetricsRecorder}.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>Each change is recorded along the number of listeners.</li>
+ * <li>The listener calls of sampled changes are timed.</li>
+ * <li>The listener calls of changes not sampled are not timed.</li>
+ * <li>The updates of cascading aggregates are recorded with their depth.</li>
+ * <li>Nothing is recorded after removing the recorder.</li>
+ * </ol>
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class TestMetricsDefaultValueBox {
+
+    /**
+     * Constructs a {@code TestMetricsDefaultValueBox}.
+     */
+    public TestMetricsDefaultValueBox() {
+        super();
+    }
+
+    /**
+     * Tests that the updates of cascading aggregates are recorded with their
+     * depth.
+     */
+    @Test
+    public final void testCascade_Depth() {
+        final DefaultValueBox box;       // Changed value
+        final AggregatedValueBox first;  // Aggregating the value
+        final AggregatedValueBox second; // Aggregating the first aggregate
+        final MetricsRecorder recorder;  // Mocked recorder
+
+        box = new DefaultValueBox(1);
+        first = new AggregatedValueBox(new SumAggregator(), box);
+        second = new AggregatedValueBox(new SumAggregator(), first, box);
+
+        recorder = Mockito.mock(MetricsRecorder.class);
+        first.setMetricsRecorder(recorder);
+        second.setMetricsRecorder(recorder);
+
+        box.setInt(2);
+
+        Mockito.verify(recorder).aggregateUpdated(first, 1);
+        Mockito.verify(recorder).aggregateUpdated(second, 2);
+    }
+
+    /**
+     * Tests that each change is recorded along the number of listeners.
+     */
+    @Test
+    public final void testEventFired() {
+        final DefaultValueBox box;      // Tested ValueBox
+        final MetricsRecorder recorder; // Mocked recorder
+
+        box = new DefaultValueBox(0);
+        box.addIntValueChangeListener(Mockito
+                .mock(IntValueChangeListener.class));
+        box.addValueChangeListener(Mockito.mock(ValueChangeListener.class));
+
+        recorder = Mockito.mock(MetricsRecorder.class);
+        box.setMetricsRecorder(recorder);
+
+        box.setInt(1);
+        box.setInt(2);
+
+        Mockito.verify(recorder, Mockito.times(2)).eventFired(box, 2);
+    }
+
+    /**
+     * Tests that nothing is recorded after removing the recorder.
+     */
+    @Test
+    public final void testRemoved() {
+        final DefaultValueBox box;      // Tested ValueBox
+        final MetricsRecorder recorder; // Mocked recorder
+
+        box = new DefaultValueBox(0);
+        box.addIntValueChangeListener(Mockito
+                .mock(IntValueChangeListener.class));
+
+        recorder = Mockito.mock(MetricsRecorder.class);
+        box.setMetricsRecorder(recorder);
+        box.setMetricsRecorder(null);
+
+        box.setInt(1);
+
+        Mockito.verifyZeroInteractions(recorder);
+    }
+
+    /**
+     * Tests that the listener calls of changes not sampled are not timed.
+     */
+    @Test
+    public final void testTimed_NotSampled() {
+        final DefaultValueBox box;      // Tested ValueBox
+        final MetricsRecorder recorder; // Mocked recorder
+
+        box = new DefaultValueBox(0);
+        box.addIntValueChangeListener(Mockito
+                .mock(IntValueChangeListener.class));
+
+        recorder = Mockito.mock(MetricsRecorder.class);
+        Mockito.when(
+                recorder.eventFired(Matchers.any(ValueBox.class),
+                        Matchers.anyInt())).thenReturn(false);
+        box.setMetricsRecorder(recorder);
+
+        box.setInt(1);
+
+        Mockito.verify(recorder, Mockito.never()).listenerCalled(
+                Matchers.any(ValueBox.class),
+                Matchers.any(EventListener.class), Matchers.anyLong());
+    }
+
+    /**
+     * Tests that the listener calls of sampled changes are timed.
+     */
+    @Test
+    public final void testTimed_Sampled() {
+        final DefaultValueBox box;                // Tested ValueBox
+        final IntValueChangeListener listenerInt; // Primitive listener
+        final ValueChangeListener listener;       // Event listener
+        final MetricsRecorder recorder;           // Mocked recorder
+
+        box = new DefaultValueBox(0);
+        listenerInt = Mockito.mock(IntValueChangeListener.class);
+        listener = Mockito.mock(ValueChangeListener.class);
+        box.addIntValueChangeListener(listenerInt);
+        box.addValueChangeListener(listener);
+
+        recorder = Mockito.mock(MetricsRecorder.class);
+        Mockito.when(
+                recorder.eventFired(Matchers.any(ValueBox.class),
+                        Matchers.anyInt())).thenReturn(true);
+        box.setMetricsRecorder(recorder);
+
+        box.setInt(1);
+
+        Mockito.verify(recorder).listenerCalled(Matchers.eq(box),
+                Matchers.eq(listenerInt), Matchers.anyLong());
+        Mockito.verify(recorder).listenerCalled(Matchers.eq(box),
+                Matchers.eq(listener), Matchers.anyLong());
+    }
+
+}
@@ -0,0 +1,146 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.testing.stats.test.unit.valuebox;
+
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.wandrell.tabletop.stats.event.IntValueChangeListener;
+import com.wandrell.tabletop.stats.event.ValueChangeEvent;
+import com.wandrell.tabletop.stats.event.ValueChangeListener;
+import com.wandrell.tabletop.stats.valuebox.AggregatedValueBox;
+import com.wandrell.tabletop.stats.valuebox.DefaultValueBox;
+import com.wandrell.tabletop.stats.valuebox.ValueBox;
+
+/**
+ * Unit tests for {@link DefaultValueBox}, checking that the listeners can be
+ * modified while a change is being notified.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>A listener can remove itself, and the following listeners are still
+ * notified.</li>
+ * <li>A listener added while notifying receives only the following
+ * changes.</li>
+ * <li>The value can be added to an {@code AggregatedValueBox} while
+ * notifying.</li>
+ * </ol>
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class TestReentrantListenerDefaultValueBox {
+
+    /**
+     * Constructs a {@code TestReentrantListenerDefaultValueBox}.
+     */
+    public TestReentrantListenerDefaultValueBox() {
+        super();
+    }
+
+    /**
+     * Tests that the value can be added to an {@code AggregatedValueBox} while
+     * notifying.
+     */
+    @Test
+    public final void testSetValue_AddToAggregated() {
+        final ValueBox box;                   // Tested ValueBox
+        final AggregatedValueBox aggregated;  // Aggregating ValueBox
+
+        box = new DefaultValueBox(1);
+        aggregated = new AggregatedValueBox();
+
+        box.addValueChangeListener(new ValueChangeListener() {
+
+            @Override
+            public final void valueChanged(final ValueChangeEvent event) {
+                aggregated.addValueBox(box);
+            }
+
+        });
+
+        box.setInt(2);
+        box.setInt(3);
+
+        Assert.assertEquals(aggregated.getInt(), 3);
+    }
+
+    /**
+     * Tests that a listener added while notifying receives only the following
+     * changes.
+     */
+    @Test
+    public final void testSetValue_Added() {
+        final ValueBox box;                    // Tested ValueBox
+        final IntValueChangeListener listener; // Mocked listener
+
+        box = new DefaultValueBox(1);
+        listener = Mockito.mock(IntValueChangeListener.class);
+
+        box.addIntValueChangeListener(new IntValueChangeListener() {
+
+            @Override
+            public final void valueChanged(final ValueBox source,
+                    final int oldValue, final int newValue) {
+                source.addIntValueChangeListener(listener);
+            }
+
+        });
+
+        box.setInt(2);
+
+        Mockito.verifyZeroInteractions(listener);
+
+        box.setInt(3);
+
+        Mockito.verify(listener, Mockito.times(1)).valueChanged(
+                Matchers.any(ValueBox.class), Matchers.anyInt(),
+                Matchers.anyInt());
+        Mockito.verify(listener).valueChanged(box, 2, 3);
+    }
+
+    /**
+     * Tests that a listener can remove itself, and the following listeners are
+     * still notified.
+     */
+    @Test
+    public final void testSetValue_RemoveItself() {
+        final ValueBox box;                    // Tested ValueBox
+        final IntValueChangeListener listener; // Mocked listener
+
+        box = new DefaultValueBox(1);
+        listener = Mockito.mock(IntValueChangeListener.class);
+
+        box.addIntValueChangeListener(new IntValueChangeListener() {
+
+            @Override
+            public final void valueChanged(final ValueBox source,
+                    final int oldValue, final int newValue) {
+                source.removeIntValueChangeListener(this);
+            }
+
+        });
+        box.addIntValueChangeListener(listener);
+
+        box.setInt(2);
+        box.setInt(3);
+
+        Mockito.verify(listener).valueChanged(box, 1, 2);
+        Mockito.verify(listener).valueChanged(box, 2, 3);
+    }
+
+}
@@ -0,0 +1,353 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.testing.stats.test.unit.valuebox;
+
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.wandrell.tabletop.stats.event.IntValueChangeListener;
+import com.wandrell.tabletop.stats.event.ValueChangeEvent;
+import com.wandrell.tabletop.stats.event.ValueChangeListener;
+import com.wandrell.tabletop.stats.valuebox.AggregatedValueBox;
+import com.wandrell.tabletop.stats.valuebox.StatTable;
+import com.wandrell.tabletop.stats.valuebox.ValueBox;
+
+/**
+ * Unit test for {@link StatTable}, checking that the values and events are
+ * handled correctly.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>New rows have all their values set to zero.</li>
+ * <li>Rows can be added over the initial capacity, keeping the values.</li>
+ * <li>Setting a value through a view changes the table.</li>
+ * <li>Setting a value through the table changes the views.</li>
+ * <li>Views for the same cell share the listeners.</li>
+ * <li>The event generated has a view of the cell as source.</li>
+ * <li>Removed listeners don't receive events.</li>
+ * <li>Views for the same cell are the same instance, so aggregating them twice
+ * keeps the aggregated value consistent.</li>
+ * <li>Reading or setting a cell in a column out of the table is rejected as
+ * any other invalid index.</li>
+ * <li>With many listened cells, each listener receives only the changes of
+ * its cell, also after removing the listeners of other cells.</li>
+ * </ol>
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class TestStatTable {
+
+    /**
+     * Constructs a {@code TestStatTable}.
+     */
+    public TestStatTable() {
+        super();
+    }
+
+    /**
+     * Tests that views for the same cell are the same instance, so aggregating
+     * them twice keeps the aggregated value consistent.
+     */
+    @Test
+    public final void testAggregated_DuplicateViews() {
+        final StatTable table;               // Tested table
+        final ValueBox first;                // First view
+        final ValueBox second;               // Second view
+        final AggregatedValueBox aggregated; // Aggregating the views
+
+        table = new StatTable(1);
+        table.addRow();
+        table.setInt(0, 0, 1);
+
+        first = table.getValueBox(0, 0);
+        second = table.getValueBox(0, 0);
+
+        Assert.assertTrue(first == second);
+
+        aggregated = new AggregatedValueBox(first, second);
+
+        table.setInt(0, 0, 5);
+
+        Assert.assertEquals(aggregated.getInt(), 5);
+
+        aggregated.removeValueBox(second);
+        table.setInt(0, 0, 7);
+
+        Assert.assertEquals(aggregated.getInt(), 0);
+    }
+
+    /**
+     * Tests that the event generated has a view of the cell as source.
+     */
+    @Test
+    public final void testEvent_Source() {
+        final StatTable table;                         // Tested table
+        final ValueChangeListener listener;            // Mocked listener
+        final ArgumentCaptor<ValueChangeEvent> captor; // Event captor
+        final ValueChangeEvent event;                  // Generated event
+
+        table = new StatTable(2);
+        table.addRow();
+        table.addRow();
+
+        listener = Mockito.mock(ValueChangeListener.class);
+        captor = ArgumentCaptor.forClass(ValueChangeEvent.class);
+
+        table.addValueChangeListener(1, 0, listener);
+
+        table.setInt(1, 0, 5);
+
+        Mockito.verify(listener, Mockito.times(1)).valueChanged(
+                captor.capture());
+
+        event = captor.getValue();
+
+        Assert.assertEquals(event.getSource(), table.getValueBox(1, 0));
+        Assert.assertEquals(event.getOldValue(), (Integer) 0);
+        Assert.assertEquals(event.getNewValue(), (Integer) 5);
+    }
+
+    /**
+     * Tests that reading a cell in a column out of the table is rejected as
+     * any other invalid index.
+     */
+    @Test
+    public final void testIndex_InvalidColumn_Get() {
+        final StatTable table; // Tested table
+
+        table = new StatTable(2);
+        table.addRow();
+
+        try {
+            table.getInt(0, 2);
+            Assert.fail("The invalid column was accepted");
+        } catch (final IndexOutOfBoundsException exception) {
+            Assert.assertEquals(exception.getClass(),
+                    IndexOutOfBoundsException.class);
+        }
+    }
+
+    /**
+     * Tests that setting a cell in a column out of the table is rejected as
+     * any other invalid index.
+     */
+    @Test
+    public final void testIndex_InvalidColumn_Set() {
+        final StatTable table; // Tested table
+
+        table = new StatTable(2);
+        table.addRow();
+
+        try {
+            table.setInt(0, 2, 1);
+            Assert.fail("The invalid column was accepted");
+        } catch (final IndexOutOfBoundsException exception) {
+            Assert.assertEquals(exception.getClass(),
+                    IndexOutOfBoundsException.class);
+        }
+    }
+
+    /**
+     * Tests that with many listened cells, each listener receives only the
+     * changes of its cell, also after removing the listeners of other cells.
+     */
+    @Test
+    public final void testListener_ManyCells() {
+        final StatTable table;                      // Tested table
+        final int[][] received;                     // Changes received
+        final IntValueChangeListener[][] recorders; // Listeners for the cells
+
+        table = new StatTable(8);
+        received = new int[40][8];
+        recorders = new IntValueChangeListener[40][8];
+        for (int row = 0; row < 40; row++) {
+            table.addRow();
+            for (int column = 0; column < 8; column++) {
+                recorders[row][column] = getRecorder(received[row], column);
+                table.addIntValueChangeListener(row, column,
+                        recorders[row][column]);
+            }
+        }
+
+        // The listeners of every other row are removed
+        for (int row = 0; row < 40; row += 2) {
+            for (int column = 0; column < 8; column++) {
+                table.removeIntValueChangeListener(row, column,
+                        recorders[row][column]);
+            }
+        }
+
+        for (int row = 0; row < 40; row++) {
+            for (int column = 0; column < 8; column++) {
+                table.setInt(row, column, row * 8 + column);
+            }
+        }
+
+        for (int row = 0; row < 40; row++) {
+            for (int column = 0; column < 8; column++) {
+                if (row % 2 == 0) {
+                    Assert.assertEquals(received[row][column], 0);
+                } else {
+                    Assert.assertEquals(received[row][column], row * 8
+                            + column);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests that views for the same cell share the listeners.
+     */
+    @Test
+    public final void testListener_SharedByViews() {
+        final StatTable table;              // Tested table
+        final ValueChangeListener listener; // Mocked listener
+
+        table = new StatTable(1);
+        table.addRow();
+
+        listener = Mockito.mock(ValueChangeListener.class);
+
+        table.getValueBox(0, 0).addValueChangeListener(listener);
+
+        table.getValueBox(0, 0).setInt(3);
+
+        Mockito.verify(listener, Mockito.times(1)).valueChanged(
+                Mockito.any(ValueChangeEvent.class));
+    }
+
+    /**
+     * Tests that removed listeners don't receive events.
+     */
+    @Test
+    public final void testListener_Removed() {
+        final StatTable table;              // Tested table
+        final ValueChangeListener listener; // Mocked listener
+
+        table = new StatTable(1);
+        table.addRow();
+
+        listener = Mockito.mock(ValueChangeListener.class);
+
+        table.getValueBox(0, 0).addValueChangeListener(listener);
+        table.getValueBox(0, 0).removeValueChangeListener(listener);
+
+        table.setInt(0, 0, 3);
+
+        Mockito.verify(listener, Mockito.never()).valueChanged(
+                Mockito.any(ValueChangeEvent.class));
+    }
+
+    /**
+     * Tests that rows can be added over the initial capacity, keeping the
+     * values.
+     */
+    @Test
+    public final void testRows_Growth() {
+        final StatTable table; // Tested table
+
+        table = new StatTable(2, 1);
+
+        for (int i = 0; i < 100; i++) {
+            table.setInt(table.addRow(), 1, i);
+        }
+
+        Assert.assertEquals(table.getRowCount(), 100);
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(table.getInt(i, 1), i);
+        }
+    }
+
+    /**
+     * Tests that new rows have all their values set to zero.
+     */
+    @Test
+    public final void testRows_New() {
+        final StatTable table; // Tested table
+        final int row;         // Added row
+
+        table = new StatTable(3);
+
+        row = table.addRow();
+
+        Assert.assertEquals(row, 0);
+        for (int i = 0; i < table.getColumnCount(); i++) {
+            Assert.assertEquals(table.getInt(row, i), 0);
+        }
+    }
+
+    /**
+     * Tests that setting a value through the table changes the views.
+     */
+    @Test
+    public final void testSetValue_Table() {
+        final StatTable table; // Tested table
+        final ValueBox view;   // View for the cell
+
+        table = new StatTable(2);
+        table.addRow();
+
+        view = table.getValueBox(0, 1);
+
+        table.setInt(0, 1, 7);
+
+        Assert.assertEquals(view.getValue(), (Integer) 7);
+        Assert.assertEquals(table.getInt(0, 0), 0);
+    }
+
+    /**
+     * Tests that setting a value through a view changes the table.
+     */
+    @Test
+    public final void testSetValue_View() {
+        final StatTable table; // Tested table
+
+        table = new StatTable(2);
+        table.addRow();
+        table.addRow();
+
+        table.getValueBox(1, 1).setValue(4);
+
+        Assert.assertEquals(table.getInt(1, 1), 4);
+        Assert.assertEquals(table.getInt(0, 1), 0);
+    }
+
+    /**
+     * Returns a listener storing the new values received in the specified
+     * position of an array.
+     * 
+     * @param received
+     *            array where the values are stored
+     * @param index
+     *            position for the values
+     * @return a listener storing the values received
+     */
+    private final IntValueChangeListener getRecorder(final int[] received,
+            final int index) {
+        return new IntValueChangeListener() {
+
+            @Override
+            public final void valueChanged(final ValueBox source,
+                    final int oldValue, final int newValue) {
+                received[index] = newValue;
+            }
+
+        };
+    }
+
+}
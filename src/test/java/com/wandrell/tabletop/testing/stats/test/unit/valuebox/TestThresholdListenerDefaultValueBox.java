@@ -0,0 +1,220 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.testing.stats.test.unit.valuebox;
+
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.wandrell.tabletop.stats.event.ThresholdListener;
+import com.wandrell.tabletop.stats.valuebox.DefaultValueBox;
+import com.wandrell.tabletop.stats.valuebox.StatTable;
+import com.wandrell.tabletop.stats.valuebox.ValueBox;
+
+/**
+ * Unit tests for {@link DefaultValueBox}, checking that the threshold
+ * listeners are notified only on crossings.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>Changes inside a band are not notified.</li>
+ * <li>Crossing a threshold notifies both bands and values.</li>
+ * <li>A change skipping several bands is notified once.</li>
+ * <li>A removed threshold listener is not notified.</li>
+ * <li>The cells of a {@code StatTable} notify crossings too.</li>
+ * <li>Thresholds not in ascending order are rejected.</li>
+ * <li>Adding a listener again, with other thresholds, is rejected and keeps
+ * the original thresholds.</li>
+ * <li>Adding a listener again to a {@code StatTable} cell is rejected.</li>
+ * </ol>
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class TestThresholdListenerDefaultValueBox {
+
+    /**
+     * Constructs a {@code TestThresholdListenerDefaultValueBox}.
+     */
+    public TestThresholdListenerDefaultValueBox() {
+        super();
+    }
+
+    /**
+     * Tests that adding a listener again, with other thresholds, is rejected
+     * and keeps the original thresholds.
+     */
+    @Test
+    public final void testAdd_Repeated() {
+        final ValueBox box;               // Tested ValueBox
+        final ThresholdListener listener; // Mocked listener
+
+        box = new DefaultValueBox(0);
+
+        listener = Mockito.mock(ThresholdListener.class);
+        box.addThresholdListener(new int[] { 10 }, listener);
+
+        try {
+            box.addThresholdListener(new int[] { 5 }, listener);
+            Assert.fail("The listener was accepted twice");
+        } catch (final IllegalArgumentException exception) {
+            // Expected
+        }
+
+        box.setInt(7);
+        box.setInt(12);
+
+        Mockito.verify(listener).thresholdCrossed(box, 0, 1, 7, 12);
+        Mockito.verifyNoMoreInteractions(listener);
+    }
+
+    /**
+     * Tests that adding a listener again to a {@code StatTable} cell is
+     * rejected.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public final void testAdd_Repeated_TableCell() {
+        final StatTable table;            // Table with the cell
+        final ThresholdListener listener; // Mocked listener
+
+        table = new StatTable(1);
+        table.addRow();
+
+        listener = Mockito.mock(ThresholdListener.class);
+        table.getValueBox(0, 0).addThresholdListener(new int[] { 3 },
+                listener);
+        table.getValueBox(0, 0).addThresholdListener(new int[] { 5 },
+                listener);
+    }
+
+    /**
+     * Tests that thresholds not in ascending order are rejected.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public final void testAdd_Unordered() {
+        final ValueBox box;               // Tested ValueBox
+        final ThresholdListener listener; // Mocked listener
+
+        box = new DefaultValueBox(0);
+
+        listener = Mockito.mock(ThresholdListener.class);
+        box.addThresholdListener(new int[] { 10, 1 }, listener);
+    }
+
+    /**
+     * Tests that crossing a threshold notifies both bands and values.
+     */
+    @Test
+    public final void testSetValue_Crossed() {
+        final ValueBox box;               // Tested ValueBox
+        final ThresholdListener listener; // Mocked listener
+
+        box = new DefaultValueBox(5);
+
+        listener = Mockito.mock(ThresholdListener.class);
+        box.addThresholdListener(new int[] { 1, 10 }, listener);
+
+        box.setInt(10);
+        box.setInt(0);
+
+        Mockito.verify(listener).thresholdCrossed(box, 1, 2, 5, 10);
+        Mockito.verify(listener).thresholdCrossed(box, 2, 0, 10, 0);
+        Mockito.verifyNoMoreInteractions(listener);
+    }
+
+    /**
+     * Tests that changes inside a band are not notified.
+     */
+    @Test
+    public final void testSetValue_InsideBand() {
+        final ValueBox box;               // Tested ValueBox
+        final ThresholdListener listener; // Mocked listener
+
+        box = new DefaultValueBox(5);
+
+        listener = Mockito.mock(ThresholdListener.class);
+        box.addThresholdListener(new int[] { 1, 10 }, listener);
+
+        box.setInt(1);
+        box.setInt(9);
+        box.setInt(3);
+
+        Mockito.verifyZeroInteractions(listener);
+    }
+
+    /**
+     * Tests that a removed threshold listener is not notified.
+     */
+    @Test
+    public final void testSetValue_Removed() {
+        final ValueBox box;               // Tested ValueBox
+        final ThresholdListener listener; // Mocked listener
+
+        box = new DefaultValueBox(5);
+
+        listener = Mockito.mock(ThresholdListener.class);
+        box.addThresholdListener(new int[] { 10 }, listener);
+        box.removeThresholdListener(listener);
+
+        box.setInt(20);
+
+        Mockito.verifyZeroInteractions(listener);
+    }
+
+    /**
+     * Tests that a change skipping several bands is notified once.
+     */
+    @Test
+    public final void testSetValue_SeveralBands() {
+        final ValueBox box;               // Tested ValueBox
+        final ThresholdListener listener; // Mocked listener
+
+        box = new DefaultValueBox(0);
+
+        listener = Mockito.mock(ThresholdListener.class);
+        box.addThresholdListener(new int[] { 1, 5, 10 }, listener);
+
+        box.setInt(50);
+
+        Mockito.verify(listener, Mockito.times(1)).thresholdCrossed(box, 0,
+                3, 0, 50);
+        Mockito.verifyNoMoreInteractions(listener);
+    }
+
+    /**
+     * Tests that the cells of a {@code StatTable} notify crossings too.
+     */
+    @Test
+    public final void testSetValue_TableCell() {
+        final StatTable table;            // Table with the cell
+        final ValueBox box;               // Tested ValueBox
+        final ThresholdListener listener; // Mocked listener
+
+        table = new StatTable(2);
+        table.addRow();
+        table.addRow();
+        box = table.getValueBox(1, 1);
+
+        listener = Mockito.mock(ThresholdListener.class);
+        box.addThresholdListener(new int[] { 3 }, listener);
+
+        table.setInt(1, 1, 2);
+        table.setInt(1, 1, 4);
+
+        Mockito.verify(listener).thresholdCrossed(box, 0, 1, 2, 4);
+        Mockito.verifyNoMoreInteractions(listener);
+    }
+
+}
@@ -0,0 +1,167 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.testing.stats.test.unit.valuebox;
+
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.wandrell.tabletop.stats.event.ValueChangeEvent;
+import com.wandrell.tabletop.stats.event.ValueChangeListener;
+import com.wandrell.tabletop.stats.valuebox.AggregatedValueBox;
+import com.wandrell.tabletop.stats.valuebox.DefaultValueBox;
+import com.wandrell.tabletop.stats.valuebox.ValueBox;
+import com.wandrell.tabletop.stats.valuebox.ValueBoxBatch;
+
+/**
+ * Unit test for {@link ValueBoxBatch}, checking that events are held back and
+ * coalesced.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>No events are fired while the batch is open.</li>
+ * <li>A single event with the net change is fired on commit.</li>
+ * <li>An {@code AggregatedValueBox} fires once when several of its values
+ * changed.</li>
+ * <li>Nested batches send the events when the outermost one is closed.</li>
+ * </ol>
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class TestValueBoxBatch {
+
+    /**
+     * Constructs a {@code TestValueBoxBatch}.
+     */
+    public TestValueBoxBatch() {
+        super();
+    }
+
+    /**
+     * Tests that an {@code AggregatedValueBox} fires once when several of its
+     * values changed.
+     */
+    @Test
+    public final void testCommit_Aggregated() {
+        final ValueBox value1;                         // First value
+        final ValueBox value2;                         // Second value
+        final AggregatedValueBox aggregated;           // Aggregated value
+        final ValueChangeListener listener;            // Mocked listener
+        final ArgumentCaptor<ValueChangeEvent> captor; // Event captor
+
+        value1 = new DefaultValueBox(1);
+        value2 = new DefaultValueBox(2);
+        aggregated = new AggregatedValueBox(value1, value2);
+
+        listener = Mockito.mock(ValueChangeListener.class);
+        captor = ArgumentCaptor.forClass(ValueChangeEvent.class);
+        aggregated.addValueChangeListener(listener);
+
+        try (ValueBoxBatch batch = ValueBoxBatch.open()) {
+            value1.setInt(10);
+            value2.setInt(20);
+            value1.setInt(5);
+        }
+
+        Mockito.verify(listener, Mockito.times(1)).valueChanged(
+                captor.capture());
+        Assert.assertEquals(captor.getValue().getOldInt(), 3);
+        Assert.assertEquals(captor.getValue().getNewInt(), 25);
+        Assert.assertEquals(aggregated.getInt(), 25);
+    }
+
+    /**
+     * Tests that a single event with the net change is fired on commit.
+     */
+    @Test
+    public final void testCommit_NetChange() {
+        final ValueBox box;                            // Tested ValueBox
+        final ValueChangeListener listener;            // Mocked listener
+        final ArgumentCaptor<ValueChangeEvent> captor; // Event captor
+
+        box = new DefaultValueBox(1);
+
+        listener = Mockito.mock(ValueChangeListener.class);
+        captor = ArgumentCaptor.forClass(ValueChangeEvent.class);
+        box.addValueChangeListener(listener);
+
+        try (ValueBoxBatch batch = ValueBoxBatch.open()) {
+            box.setInt(2);
+            box.setInt(3);
+            box.setInt(4);
+        }
+
+        Mockito.verify(listener, Mockito.times(1)).valueChanged(
+                captor.capture());
+        Assert.assertEquals(captor.getValue().getSource(), box);
+        Assert.assertEquals(captor.getValue().getOldInt(), 1);
+        Assert.assertEquals(captor.getValue().getNewInt(), 4);
+    }
+
+    /**
+     * Tests that nested batches send the events when the outermost one is
+     * closed.
+     */
+    @Test
+    public final void testCommit_Nested() {
+        final ValueBox box;                 // Tested ValueBox
+        final ValueChangeListener listener; // Mocked listener
+
+        box = new DefaultValueBox(1);
+
+        listener = Mockito.mock(ValueChangeListener.class);
+        box.addValueChangeListener(listener);
+
+        try (ValueBoxBatch outer = ValueBoxBatch.open()) {
+            try (ValueBoxBatch inner = ValueBoxBatch.open()) {
+                box.setInt(2);
+            }
+
+            Mockito.verify(listener, Mockito.never()).valueChanged(
+                    Mockito.any(ValueChangeEvent.class));
+
+            box.setInt(3);
+        }
+
+        Mockito.verify(listener, Mockito.times(1)).valueChanged(
+                Mockito.any(ValueChangeEvent.class));
+        Assert.assertFalse(ValueBoxBatch.isOpen());
+    }
+
+    /**
+     * Tests that no events are fired while the batch is open.
+     */
+    @Test
+    public final void testOpen_NoEvents() {
+        final ValueBox box;                 // Tested ValueBox
+        final ValueChangeListener listener; // Mocked listener
+
+        box = new DefaultValueBox(1);
+
+        listener = Mockito.mock(ValueChangeListener.class);
+        box.addValueChangeListener(listener);
+
+        try (ValueBoxBatch batch = ValueBoxBatch.open()) {
+            box.setInt(2);
+
+            Mockito.verify(listener, Mockito.never()).valueChanged(
+                    Mockito.any(ValueChangeEvent.class));
+            Assert.assertEquals(box.getInt(), 2);
+        }
+    }
+
+}
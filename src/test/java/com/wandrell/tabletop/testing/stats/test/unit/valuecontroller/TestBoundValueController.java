@@ -0,0 +1,266 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.testing.stats.test.unit.valuecontroller;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.wandrell.tabletop.stats.controller.BoundValueController;
+import com.wandrell.tabletop.stats.valuebox.DefaultValueBox;
+import com.wandrell.tabletop.stats.valuebox.ValueBox;
+import com.wandrell.tabletop.stats.valuebox.ValueBoxBatch;
+
+/**
+ * Unit test for {@link BoundValueController}, checking that the limits follow
+ * the values they are bound to.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>The flags change when the bound limits change.</li>
+ * <li>The flags change when the handled value changes.</li>
+ * <li>The flags are updated once a batch is committed.</li>
+ * <li>Inside a batch, the value is never moved beyond a bound limit.</li>
+ * <li>Inside a batch, changes to a bound limit are taken into account.</li>
+ * <li>With clamping, the value is moved into the new limits.</li>
+ * <li>Without clamping, the value is kept out of the new limits.</li>
+ * <li>Constant limits replace the bound ones, which are no longer followed.</li>
+ * <li>The value is never moved beyond a bound limit.</li>
+ * </ol>
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class TestBoundValueController {
+
+    /**
+     * Constructs a {@code TestBoundValueController}.
+     */
+    public TestBoundValueController() {
+        super();
+    }
+
+    /**
+     * Tests that the flags are updated once a batch is committed.
+     */
+    @Test
+    public final void testBatch_FlagsUpdated() {
+        final BoundValueController controller; // Tested controller
+        final ValueBox value;                  // Handled value
+        final ValueBox upper;                  // Upper limit
+
+        value = new DefaultValueBox(5);
+        upper = new DefaultValueBox(5);
+        controller = new BoundValueController(value, new DefaultValueBox(0),
+                upper);
+
+        try (ValueBoxBatch batch = ValueBoxBatch.open()) {
+            upper.setInt(10);
+        }
+
+        Assert.assertTrue(controller.isAbleToIncrease());
+    }
+
+    /**
+     * Tests that inside a batch, the value is never moved beyond a bound
+     * limit.
+     */
+    @Test
+    public final void testBatch_IncreaseStopsAtLimit() {
+        final BoundValueController controller; // Tested controller
+        final ValueBox value;                  // Handled value
+
+        value = new DefaultValueBox(9);
+        controller = new BoundValueController(value, new DefaultValueBox(0),
+                new DefaultValueBox(10));
+
+        try (ValueBoxBatch batch = ValueBoxBatch.open()) {
+            for (int i = 0; i < 3; i++) {
+                controller.increaseValue();
+            }
+
+            Assert.assertEquals(value.getInt(), 10);
+            Assert.assertFalse(controller.isAbleToIncrease());
+            Assert.assertFalse(controller.canIncrease());
+        }
+
+        Assert.assertEquals(value.getInt(), 10);
+        Assert.assertFalse(controller.isAbleToIncrease());
+    }
+
+    /**
+     * Tests that inside a batch, changes to a bound limit are taken into
+     * account.
+     */
+    @Test
+    public final void testBatch_LimitChanged() {
+        final BoundValueController controller; // Tested controller
+        final ValueBox value;                  // Handled value
+        final ValueBox upper;                  // Upper limit
+
+        value = new DefaultValueBox(5);
+        upper = new DefaultValueBox(10);
+        controller = new BoundValueController(value, new DefaultValueBox(0),
+                upper);
+
+        try (ValueBoxBatch batch = ValueBoxBatch.open()) {
+            upper.setInt(5);
+
+            Assert.assertFalse(controller.isAbleToIncrease());
+            Assert.assertEquals(controller.getUpperLimit(), (Integer) 5);
+
+            controller.increaseValue();
+        }
+
+        Assert.assertEquals(value.getInt(), 5);
+    }
+
+    /**
+     * Tests that with clamping, the value is moved into the new limits.
+     */
+    @Test
+    public final void testClamping_Clamped() {
+        final BoundValueController controller; // Tested controller
+        final ValueBox value;                  // Handled value
+        final ValueBox lower;                  // Lower limit
+        final ValueBox upper;                  // Upper limit
+
+        value = new DefaultValueBox(5);
+        lower = new DefaultValueBox(0);
+        upper = new DefaultValueBox(10);
+        controller = new BoundValueController(value, lower, upper);
+        controller.setClamping(true);
+
+        upper.setInt(3);
+
+        Assert.assertEquals(value.getInt(), 3);
+        Assert.assertTrue(controller.isAbleToDecrease());
+        Assert.assertFalse(controller.isAbleToIncrease());
+
+        lower.setInt(4);
+
+        Assert.assertEquals(value.getInt(), 4);
+    }
+
+    /**
+     * Tests that without clamping, the value is kept out of the new limits.
+     */
+    @Test
+    public final void testClamping_Disabled() {
+        final BoundValueController controller; // Tested controller
+        final ValueBox value;                  // Handled value
+        final ValueBox upper;                  // Upper limit
+
+        value = new DefaultValueBox(5);
+        upper = new DefaultValueBox(10);
+        controller = new BoundValueController(value, new DefaultValueBox(0),
+                upper);
+
+        upper.setInt(3);
+
+        Assert.assertEquals(value.getInt(), 5);
+        Assert.assertFalse(controller.isAbleToIncrease());
+    }
+
+    /**
+     * Tests that constant limits replace the bound ones, which are no longer
+     * followed.
+     */
+    @Test
+    public final void testConstant_Replaces() {
+        final BoundValueController controller; // Tested controller
+        final ValueBox upper;                  // Upper limit
+
+        upper = new DefaultValueBox(5);
+        controller = new BoundValueController(new DefaultValueBox(5),
+                new DefaultValueBox(0), upper);
+
+        controller.setInterval(0, 10);
+        upper.setInt(5);
+
+        Assert.assertEquals((int) controller.getUpperLimit(), 10);
+        Assert.assertTrue(controller.isAbleToIncrease());
+    }
+
+    /**
+     * Tests that the flags change when the bound limits change.
+     */
+    @Test
+    public final void testFlags_LimitChanged() {
+        final BoundValueController controller; // Tested controller
+        final ValueBox lower;                  // Lower limit
+        final ValueBox upper;                  // Upper limit
+
+        lower = new DefaultValueBox(5);
+        upper = new DefaultValueBox(5);
+        controller = new BoundValueController(new DefaultValueBox(5), lower,
+                upper);
+
+        Assert.assertFalse(controller.isAbleToIncrease());
+        Assert.assertFalse(controller.isAbleToDecrease());
+
+        upper.setInt(6);
+        lower.setInt(4);
+
+        Assert.assertTrue(controller.isAbleToIncrease());
+        Assert.assertTrue(controller.isAbleToDecrease());
+        Assert.assertEquals((int) controller.getLowerLimit(), 4);
+        Assert.assertEquals((int) controller.getUpperLimit(), 6);
+    }
+
+    /**
+     * Tests that the flags change when the handled value changes.
+     */
+    @Test
+    public final void testFlags_ValueChanged() {
+        final BoundValueController controller; // Tested controller
+        final ValueBox value;                  // Handled value
+
+        value = new DefaultValueBox(5);
+        controller = new BoundValueController(value, new DefaultValueBox(0),
+                new DefaultValueBox(10));
+
+        value.setInt(10);
+
+        Assert.assertFalse(controller.isAbleToIncrease());
+        Assert.assertTrue(controller.isAbleToDecrease());
+    }
+
+    /**
+     * Tests that the value is never moved beyond a bound limit.
+     */
+    @Test
+    public final void testIncrease_StopsAtLimit() {
+        final BoundValueController controller; // Tested controller
+        final ValueBox value;                  // Handled value
+        final ValueBox upper;                  // Upper limit
+
+        value = new DefaultValueBox(0);
+        upper = new DefaultValueBox(2);
+        controller = new BoundValueController(value, new DefaultValueBox(0),
+                upper);
+
+        for (int i = 0; i < 5; i++) {
+            controller.increaseValue();
+        }
+
+        Assert.assertEquals(value.getInt(), 2);
+
+        upper.setInt(3);
+        controller.increaseValue();
+
+        Assert.assertEquals(value.getInt(), 3);
+    }
+
+}
@@ -0,0 +1,237 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.testing.stats.test.unit.valuecontroller;
+
+import java.util.BitSet;
+
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.wandrell.tabletop.stats.controller.BulkValueController;
+import com.wandrell.tabletop.stats.controller.ValueHistory;
+import com.wandrell.tabletop.stats.event.IntValueChangeListener;
+import com.wandrell.tabletop.stats.valuebox.DefaultValueBox;
+import com.wandrell.tabletop.stats.valuebox.ValueBox;
+
+/**
+ * Unit test for {@link BulkValueController}, checking that the changes are
+ * applied only to those values which stay inside the limits.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>Increasing primitive values changes only those below the upper limit,
+ * and reports them.</li>
+ * <li>Decreasing primitive values changes only those above the lower limit,
+ * and reports them.</li>
+ * <li>Values at the integer limits are not overflowed.</li>
+ * <li>Checking the values doesn't modify them.</li>
+ * <li>Increasing {@code ValueBox} instances changes only those which can be
+ * increased.</li>
+ * <li>Changes to {@code ValueBox} instances are undone as a single
+ * operation.</li>
+ * <li>Values which can't be changed are not notified.</li>
+ * <li>Receiving the same {@code ValueBox} twice throws an exception, and
+ * changes nothing.</li>
+ * </ol>
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class TestBulkValueController {
+
+    /**
+     * Constructs a {@code TestBulkValueController}.
+     */
+    public TestBulkValueController() {
+        super();
+    }
+
+    /**
+     * Tests that receiving the same {@code ValueBox} twice throws an
+     * exception, and changes nothing.
+     */
+    @Test
+    public final void testBoxes_Duplicated() {
+        final BulkValueController controller; // Tested controller
+        final ValueHistory history;           // History for the changes
+        final ValueBox box;                   // Controlled value
+
+        controller = new BulkValueController();
+        history = new ValueHistory(10);
+        controller.setHistory(history);
+        box = new DefaultValueBox(1);
+
+        try {
+            controller.increaseValues(box, new DefaultValueBox(2), box);
+            Assert.fail("The same value was accepted twice");
+        } catch (final IllegalArgumentException exception) {
+            // Expected
+        }
+
+        Assert.assertEquals(box.getInt(), 1);
+        Assert.assertFalse(history.canUndo());
+    }
+
+    /**
+     * Tests that increasing {@code ValueBox} instances changes only those
+     * which can be increased.
+     */
+    @Test
+    public final void testBoxes_Increase() {
+        final BulkValueController controller; // Tested controller
+        final ValueBox[] boxes;               // Controlled values
+        final BitSet applied;                 // Changed positions
+
+        controller = new BulkValueController(0, 5);
+        boxes = new ValueBox[] { new DefaultValueBox(1),
+                new DefaultValueBox(5), new DefaultValueBox(4) };
+
+        applied = controller.increaseValues(boxes);
+
+        Assert.assertEquals(applied.toString(), "{0, 2}");
+        Assert.assertEquals(boxes[0].getInt(), 2);
+        Assert.assertEquals(boxes[1].getInt(), 5);
+        Assert.assertEquals(boxes[2].getInt(), 5);
+    }
+
+    /**
+     * Tests that values which can't be changed are not notified.
+     */
+    @Test
+    public final void testBoxes_NotNotified() {
+        final BulkValueController controller;  // Tested controller
+        final ValueBox box;                    // Controlled value
+        final IntValueChangeListener listener; // Mocked listener
+
+        controller = new BulkValueController(0, 5);
+        box = new DefaultValueBox(0);
+
+        listener = Mockito.mock(IntValueChangeListener.class);
+        box.addIntValueChangeListener(listener);
+
+        controller.decreaseValues(box);
+
+        Mockito.verify(listener, Mockito.never()).valueChanged(
+                Matchers.any(ValueBox.class), Matchers.anyInt(),
+                Matchers.anyInt());
+    }
+
+    /**
+     * Tests that changes to {@code ValueBox} instances are undone as a single
+     * operation.
+     */
+    @Test
+    public final void testBoxes_Undo() {
+        final BulkValueController controller; // Tested controller
+        final ValueHistory history;           // History for the changes
+        final ValueBox[] boxes;               // Controlled values
+
+        controller = new BulkValueController();
+        history = new ValueHistory(10);
+        controller.setHistory(history);
+        boxes = new ValueBox[] { new DefaultValueBox(1),
+                new DefaultValueBox(2) };
+
+        controller.increaseValues(boxes);
+
+        Assert.assertTrue(history.undo());
+        Assert.assertFalse(history.canUndo());
+        Assert.assertEquals(boxes[0].getInt(), 1);
+        Assert.assertEquals(boxes[1].getInt(), 2);
+    }
+
+    /**
+     * Tests that checking the values doesn't modify them.
+     */
+    @Test
+    public final void testPrimitive_Check() {
+        final BulkValueController controller; // Tested controller
+        final int[] values;                   // Controlled values
+
+        controller = new BulkValueController(0, 5);
+        values = new int[] { 0, 3, 5 };
+
+        Assert.assertEquals(controller.isAbleToIncrease(values).toString(),
+                "{0, 1}");
+        Assert.assertEquals(controller.isAbleToDecrease(values).toString(),
+                "{1, 2}");
+        Assert.assertEquals(values, new int[] { 0, 3, 5 });
+    }
+
+    /**
+     * Tests that decreasing primitive values changes only those above the
+     * lower limit, and reports them.
+     */
+    @Test
+    public final void testPrimitive_Decrease() {
+        final BulkValueController controller; // Tested controller
+        final int[] values;                   // Controlled values
+        final BitSet applied;                 // Changed positions
+
+        controller = new BulkValueController(0, 10);
+        values = new int[] { 0, 1, 5, -3 };
+
+        applied = controller.decreaseValues(values);
+
+        Assert.assertEquals(applied.toString(), "{1, 2}");
+        Assert.assertEquals(values, new int[] { 0, 0, 4, -3 });
+    }
+
+    /**
+     * Tests that increasing primitive values changes only those below the
+     * upper limit, and reports them.
+     */
+    @Test
+    public final void testPrimitive_Increase() {
+        final BulkValueController controller; // Tested controller
+        final int[] values;                   // Controlled values
+        final BitSet applied;                 // Changed positions
+
+        controller = new BulkValueController(0, 10);
+        values = new int[100];
+        values[50] = 10;
+        values[99] = 9;
+
+        applied = controller.increaseValues(values);
+
+        Assert.assertEquals(applied.cardinality(), 99);
+        Assert.assertFalse(applied.get(50));
+        Assert.assertEquals(values[0], 1);
+        Assert.assertEquals(values[50], 10);
+        Assert.assertEquals(values[99], 10);
+    }
+
+    /**
+     * Tests that values at the integer limits are not overflowed.
+     */
+    @Test
+    public final void testPrimitive_Overflow() {
+        final BulkValueController controller; // Tested controller
+        final int[] highest;                  // Values at the top
+        final int[] lowest;                   // Values at the bottom
+
+        controller = new BulkValueController();
+        highest = new int[] { Integer.MAX_VALUE };
+        lowest = new int[] { Integer.MIN_VALUE };
+
+        Assert.assertTrue(controller.increaseValues(highest).isEmpty());
+        Assert.assertTrue(controller.decreaseValues(lowest).isEmpty());
+        Assert.assertEquals(highest[0], Integer.MAX_VALUE);
+        Assert.assertEquals(lowest[0], Integer.MIN_VALUE);
+    }
+
+}
@@ -0,0 +1,268 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.testing.stats.test.unit.valuecontroller;
+
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.wandrell.tabletop.stats.controller.BoundValueController;
+import com.wandrell.tabletop.stats.controller.CapabilityListener;
+import com.wandrell.tabletop.stats.controller.ValueController;
+import com.wandrell.tabletop.stats.valuebox.DefaultValueBox;
+import com.wandrell.tabletop.stats.valuebox.ValueBox;
+import com.wandrell.tabletop.stats.valuebox.ValueBoxBatch;
+
+/**
+ * Unit test for {@link BoundValueController}, checking that the capability
+ * listeners are called only when a flag changes.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>Changes which don't flip any flag don't call the listener.</li>
+ * <li>Reaching a limit calls the listener with the new flags.</li>
+ * <li>Moving a limit calls the listener with the new flags.</li>
+ * <li>A removed listener is not called.</li>
+ * <li>A listener can remove itself while being called, without affecting the
+ * other listeners.</li>
+ * <li>A listener can change the value while being called.</li>
+ * <li>The primitive flags match the boxed ones.</li>
+ * <li>Inside a batch, the primitive flags and the listener follow the changes
+ * made by the controller, and the listener is not called again on commit.</li>
+ * </ol>
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class TestCapabilityBoundValueController {
+
+    /**
+     * Constructs a {@code TestCapabilityBoundValueController}.
+     */
+    public TestCapabilityBoundValueController() {
+        super();
+    }
+
+    /**
+     * Tests that the primitive flags match the boxed ones.
+     */
+    @Test
+    public final void testFlags_Primitive() {
+        final BoundValueController controller; // Tested controller
+        final ValueBox value;                  // Handled value
+
+        value = new DefaultValueBox(0);
+        controller = new BoundValueController(value);
+        controller.setInterval(0, 1);
+
+        Assert.assertTrue(controller.canIncrease());
+        Assert.assertFalse(controller.canDecrease());
+
+        controller.increaseValue();
+
+        Assert.assertEquals(controller.canIncrease(),
+                (boolean) controller.isAbleToIncrease());
+        Assert.assertEquals(controller.canDecrease(),
+                (boolean) controller.isAbleToDecrease());
+        Assert.assertFalse(controller.canIncrease());
+        Assert.assertTrue(controller.canDecrease());
+    }
+
+    /**
+     * Tests that inside a batch, the primitive flags and the listener follow
+     * the changes made by the controller, and the listener is not called again
+     * on commit.
+     */
+    @Test
+    public final void testFlags_Primitive_Batch() {
+        final BoundValueController controller; // Tested controller
+        final CapabilityListener listener;     // Mocked listener
+
+        controller = new BoundValueController(new DefaultValueBox(9));
+        controller.setInterval(0, 10);
+        listener = Mockito.mock(CapabilityListener.class);
+        controller.addCapabilityListener(listener);
+
+        try (ValueBoxBatch batch = ValueBoxBatch.open()) {
+            controller.increaseValue();
+
+            Assert.assertFalse(controller.canIncrease());
+            Assert.assertTrue(controller.canDecrease());
+            Mockito.verify(listener, Mockito.times(1)).capabilityChanged(
+                    controller, false, true);
+        }
+
+        Assert.assertFalse(controller.canIncrease());
+        Mockito.verifyNoMoreInteractions(listener);
+    }
+
+    /**
+     * Tests that moving a limit calls the listener with the new flags.
+     */
+    @Test
+    public final void testListener_LimitMoved() {
+        final BoundValueController controller; // Tested controller
+        final CapabilityListener listener;     // Mocked listener
+        final ValueBox upper;                  // Upper limit
+
+        upper = new DefaultValueBox(5);
+        controller = new BoundValueController(new DefaultValueBox(5),
+                new DefaultValueBox(0), upper);
+        listener = Mockito.mock(CapabilityListener.class);
+        controller.addCapabilityListener(listener);
+
+        upper.setInt(6);
+
+        Mockito.verify(listener, Mockito.times(1)).capabilityChanged(
+                controller, true, true);
+    }
+
+    /**
+     * Tests that a listener can change the value while being called.
+     */
+    @Test
+    public final void testListener_ChangesValue() {
+        final BoundValueController controller; // Tested controller
+        final CapabilityListener listener;     // Mocked listener
+        final ValueBox value;                  // Handled value
+
+        value = new DefaultValueBox(9);
+        controller = new BoundValueController(value);
+        controller.setInterval(0, 10);
+
+        // Moves the value back from the limit
+        controller.addCapabilityListener(new CapabilityListener() {
+
+            @Override
+            public void capabilityChanged(final ValueController source,
+                    final boolean ableToIncrease,
+                    final boolean ableToDecrease) {
+                if (!ableToIncrease) {
+                    source.decreaseValue();
+                }
+            }
+
+        });
+        listener = Mockito.mock(CapabilityListener.class);
+        controller.addCapabilityListener(listener);
+
+        controller.increaseValue();
+
+        Assert.assertEquals(value.getInt(), 9);
+        Assert.assertTrue(controller.isAbleToIncrease());
+        Mockito.verify(listener, Mockito.atLeastOnce()).capabilityChanged(
+                controller, true, true);
+    }
+
+    /**
+     * Tests that changes which don't flip any flag don't call the listener.
+     */
+    @Test
+    public final void testListener_NoFlip() {
+        final BoundValueController controller; // Tested controller
+        final CapabilityListener listener;     // Mocked listener
+        final ValueBox value;                  // Handled value
+
+        value = new DefaultValueBox(5);
+        controller = new BoundValueController(value);
+        controller.setInterval(0, 10);
+        listener = Mockito.mock(CapabilityListener.class);
+        controller.addCapabilityListener(listener);
+
+        controller.increaseValue();
+        controller.decreaseValue();
+        value.setInt(7);
+        controller.setInterval(-5, 20);
+
+        Mockito.verifyZeroInteractions(listener);
+    }
+
+    /**
+     * Tests that reaching a limit calls the listener with the new flags.
+     */
+    @Test
+    public final void testListener_ReachedLimit() {
+        final BoundValueController controller; // Tested controller
+        final CapabilityListener listener;     // Mocked listener
+
+        controller = new BoundValueController(new DefaultValueBox(8));
+        controller.setInterval(0, 10);
+        listener = Mockito.mock(CapabilityListener.class);
+        controller.addCapabilityListener(listener);
+
+        controller.increaseValue();
+        controller.increaseValue();
+        controller.increaseValue();
+
+        Mockito.verify(listener, Mockito.times(1)).capabilityChanged(
+                controller, false, true);
+        Mockito.verifyNoMoreInteractions(listener);
+    }
+
+    /**
+     * Tests that a listener can remove itself while being called, without
+     * affecting the other listeners.
+     */
+    @Test
+    public final void testListener_RemovesItself() {
+        final BoundValueController controller; // Tested controller
+        final CapabilityListener listener;     // Mocked listener
+
+        controller = new BoundValueController(new DefaultValueBox(8));
+        controller.setInterval(0, 10);
+
+        controller.addCapabilityListener(new CapabilityListener() {
+
+            @Override
+            public void capabilityChanged(final ValueController source,
+                    final boolean ableToIncrease,
+                    final boolean ableToDecrease) {
+                controller.removeCapabilityListener(this);
+            }
+
+        });
+        listener = Mockito.mock(CapabilityListener.class);
+        controller.addCapabilityListener(listener);
+
+        controller.increaseValue();
+        controller.increaseValue();
+        controller.decreaseValue();
+
+        Mockito.verify(listener, Mockito.times(1)).capabilityChanged(
+                controller, false, true);
+        Mockito.verify(listener, Mockito.times(1)).capabilityChanged(
+                controller, true, true);
+    }
+
+    /**
+     * Tests that a removed listener is not called.
+     */
+    @Test
+    public final void testListener_Removed() {
+        final BoundValueController controller; // Tested controller
+        final CapabilityListener listener;     // Mocked listener
+
+        controller = new BoundValueController(new DefaultValueBox(9));
+        controller.setInterval(0, 10);
+        listener = Mockito.mock(CapabilityListener.class);
+        controller.addCapabilityListener(listener);
+        controller.removeCapabilityListener(listener);
+
+        controller.increaseValue();
+
+        Mockito.verifyZeroInteractions(listener);
+    }
+
+}
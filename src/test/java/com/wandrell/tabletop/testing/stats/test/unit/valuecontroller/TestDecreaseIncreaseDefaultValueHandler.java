@@ -63,7 +63,7 @@ public final class TestDecreaseIncreaseDefaultValueHandler {
         final ValueBox value;
 
         value = Mockito.mock(ValueBox.class);
-        Mockito.when(value.getValue()).thenReturn(1);
+        Mockito.when(value.getInt()).thenReturn(1);
 
         handler = new DefaultValueController(value);
         handler.setInterval(-10, Integer.MAX_VALUE);
@@ -81,7 +81,7 @@ public final class TestDecreaseIncreaseDefaultValueHandler {
         final ValueBox value;
 
         value = Mockito.mock(ValueBox.class);
-        Mockito.when(value.getValue()).thenReturn(1);
+        Mockito.when(value.getInt()).thenReturn(1);
 
         handler = new DefaultValueController(value);
         handler.setInterval(1, Integer.MAX_VALUE);
@@ -107,7 +107,7 @@ public final class TestDecreaseIncreaseDefaultValueHandler {
         final ValueBox value;
 
         value = Mockito.mock(ValueBox.class);
-        Mockito.when(value.getValue()).thenReturn(1);
+        Mockito.when(value.getInt()).thenReturn(1);
 
         handler = new DefaultValueController(value);
         handler.setInterval(Integer.MIN_VALUE, 10);
@@ -125,7 +125,7 @@ public final class TestDecreaseIncreaseDefaultValueHandler {
         final ValueBox value;
 
         value = Mockito.mock(ValueBox.class);
-        Mockito.when(value.getValue()).thenReturn(1);
+        Mockito.when(value.getInt()).thenReturn(1);
 
         handler = new DefaultValueController(value);
         handler.setInterval(Integer.MIN_VALUE, 1);
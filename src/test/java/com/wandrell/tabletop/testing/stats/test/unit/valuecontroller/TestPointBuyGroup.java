@@ -0,0 +1,219 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.testing.stats.test.unit.valuecontroller;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.wandrell.tabletop.stats.controller.PointBuyGroup;
+import com.wandrell.tabletop.stats.controller.PointCostTable;
+import com.wandrell.tabletop.stats.controller.ValueController;
+import com.wandrell.tabletop.stats.valuebox.DefaultValueBox;
+import com.wandrell.tabletop.stats.valuebox.ValueBox;
+import com.wandrell.tabletop.stats.valuebox.ValueBoxBatch;
+
+/**
+ * Unit test for {@link PointBuyGroup}, checking that the members spend points
+ * from the shared budget.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>Increasing a member spends the cost of the next level.</li>
+ * <li>Increasing a member inside a batch respects the budget, and the points
+ * are not spent twice when the batch is closed.</li>
+ * <li>Points spent by a member keep the others from increasing.</li>
+ * <li>Decreasing a member gives the points back.</li>
+ * <li>Changes made without the controllers are taken into account.</li>
+ * <li>Removing a member gives back its points.</li>
+ * <li>Members can't move out of the cost table.</li>
+ * </ol>
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class TestPointBuyGroup {
+
+    /**
+     * Cost table used for the tests, from level 8 to 14.
+     */
+    private static final PointCostTable COSTS = new PointCostTable(8, 1,
+            1, 1, 2, 2, 3);
+
+    /**
+     * Constructs a {@code TestPointBuyGroup}.
+     */
+    public TestPointBuyGroup() {
+        super();
+    }
+
+    /**
+     * Tests that decreasing a member gives the points back.
+     */
+    @Test
+    public final void testDecrease_Refunds() {
+        final PointBuyGroup group;        // Tested group
+        final ValueController controller; // Member controller
+        final ValueBox box;               // Member value
+
+        group = new PointBuyGroup(10);
+        box = new DefaultValueBox(13);
+        controller = group.addMember(box, COSTS);
+
+        Assert.assertEquals(group.getSpent(), 7);
+
+        controller.decreaseValue();
+
+        Assert.assertEquals(box.getInt(), 12);
+        Assert.assertEquals(group.getSpent(), 5);
+        Assert.assertEquals(group.getRemaining(), 5);
+    }
+
+    /**
+     * Tests that changes made without the controllers are taken into account.
+     */
+    @Test
+    public final void testExternalChange() {
+        final PointBuyGroup group;        // Tested group
+        final ValueController controller; // Member controller
+        final ValueBox box;               // Member value
+
+        group = new PointBuyGroup(5);
+        box = new DefaultValueBox(8);
+        controller = group.addMember(box, COSTS);
+
+        box.setInt(12);
+
+        Assert.assertEquals(group.getSpent(), 5);
+        Assert.assertFalse(controller.isAbleToIncrease());
+        Assert.assertTrue(controller.isAbleToDecrease());
+    }
+
+    /**
+     * Tests that increasing a member inside a batch respects the budget, and
+     * the points are not spent twice when the batch is closed.
+     */
+    @Test
+    public final void testIncrease_Batch() {
+        final PointBuyGroup group;        // Tested group
+        final ValueController controller; // Member controller
+        final ValueBox box;               // Member value
+
+        group = new PointBuyGroup(2);
+        box = new DefaultValueBox(8);
+        controller = group.addMember(box, COSTS);
+
+        try (ValueBoxBatch batch = ValueBoxBatch.open()) {
+            for (int i = 0; i < 5; i++) {
+                controller.increaseValue();
+            }
+
+            Assert.assertEquals(box.getInt(), 10);
+            Assert.assertEquals(group.getSpent(), 2);
+            Assert.assertFalse(controller.isAbleToIncrease());
+        }
+
+        Assert.assertEquals(box.getInt(), 10);
+        Assert.assertEquals(group.getSpent(), 2);
+        Assert.assertFalse(controller.isAbleToIncrease());
+    }
+
+    /**
+     * Tests that increasing a member spends the cost of the next level.
+     */
+    @Test
+    public final void testIncrease_Spends() {
+        final PointBuyGroup group;        // Tested group
+        final ValueController controller; // Member controller
+        final ValueBox box;               // Member value
+
+        group = new PointBuyGroup(10);
+        box = new DefaultValueBox(10);
+        controller = group.addMember(box, COSTS);
+
+        Assert.assertEquals(group.getSpent(), 2);
+
+        controller.increaseValue();
+        controller.increaseValue();
+
+        Assert.assertEquals(box.getInt(), 12);
+        Assert.assertEquals(group.getSpent(), 5);
+    }
+
+    /**
+     * Tests that members can't move out of the cost table.
+     */
+    @Test
+    public final void testLimits_Table() {
+        final PointBuyGroup group;        // Tested group
+        final ValueController lowest;     // Member on the base level
+        final ValueController highest;    // Member on the highest level
+
+        group = new PointBuyGroup(100);
+        lowest = group.addMember(new DefaultValueBox(8), COSTS);
+        highest = group.addMember(new DefaultValueBox(14), COSTS);
+
+        Assert.assertFalse(lowest.isAbleToDecrease());
+        Assert.assertFalse(highest.isAbleToIncrease());
+    }
+
+    /**
+     * Tests that removing a member gives back its points.
+     */
+    @Test
+    public final void testRemove_Refunds() {
+        final PointBuyGroup group;        // Tested group
+        final ValueController controller; // Member controller
+        final ValueBox box;               // Member value
+
+        group = new PointBuyGroup(10);
+        box = new DefaultValueBox(12);
+        controller = group.addMember(box, COSTS);
+
+        group.removeMember(controller);
+
+        Assert.assertEquals(group.getSpent(), 0);
+
+        // Changes are no longer tracked
+        box.setInt(14);
+        Assert.assertEquals(group.getSpent(), 0);
+    }
+
+    /**
+     * Tests that points spent by a member keep the others from increasing.
+     */
+    @Test
+    public final void testShared() {
+        final PointBuyGroup group;    // Tested group
+        final ValueController first;  // First member
+        final ValueController second; // Second member
+
+        group = new PointBuyGroup(4);
+        first = group.addMember(new DefaultValueBox(8), COSTS);
+        second = group.addMember(new DefaultValueBox(9), COSTS);
+
+        first.increaseValue();
+        first.increaseValue();
+        first.increaseValue();
+
+        Assert.assertEquals(group.getRemaining(), 0);
+        Assert.assertFalse(first.isAbleToIncrease());
+        Assert.assertFalse(second.isAbleToIncrease());
+
+        first.decreaseValue();
+
+        Assert.assertTrue(second.isAbleToIncrease());
+    }
+
+}
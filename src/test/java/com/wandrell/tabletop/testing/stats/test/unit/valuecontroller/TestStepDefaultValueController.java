@@ -0,0 +1,154 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.testing.stats.test.unit.valuecontroller;
+
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.wandrell.tabletop.stats.controller.DefaultValueController;
+import com.wandrell.tabletop.stats.event.IntValueChangeListener;
+import com.wandrell.tabletop.stats.valuebox.DefaultValueBox;
+import com.wandrell.tabletop.stats.valuebox.ValueBox;
+
+/**
+ * Unit test for {@link DefaultValueController}, checking that the values are
+ * modified by steps and amounts correctly.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>Increasing by an amount fires a single event.</li>
+ * <li>Changes which would leave the interval are not applied.</li>
+ * <li>The step is used when increasing and decreasing.</li>
+ * <li>Results beyond the integer limits are saturated.</li>
+ * <li>Negative amounts are rejected.</li>
+ * </ol>
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class TestStepDefaultValueController {
+
+    /**
+     * Constructs a {@code TestStepDefaultValueController}.
+     */
+    public TestStepDefaultValueController() {
+        super();
+    }
+
+    /**
+     * Tests that negative amounts are rejected.
+     */
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public final void testIncreaseBy_Negative() {
+        final DefaultValueController controller; // Tested controller
+
+        controller = new DefaultValueController(new DefaultValueBox(0));
+
+        controller.increaseBy(-1);
+    }
+
+    /**
+     * Tests that changes which would leave the interval are not applied.
+     */
+    @Test
+    public final void testIncreaseBy_OutOfInterval() {
+        final DefaultValueController controller; // Tested controller
+        final ValueBox box;                      // Controlled value
+
+        box = new DefaultValueBox(8);
+        controller = new DefaultValueController(box);
+        controller.setInterval(0, 10);
+
+        controller.increaseBy(3);
+        Assert.assertEquals(box.getInt(), 8);
+
+        controller.decreaseBy(9);
+        Assert.assertEquals(box.getInt(), 8);
+
+        controller.increaseBy(2);
+        Assert.assertEquals(box.getInt(), 10);
+    }
+
+    /**
+     * Tests that results beyond the integer limits are saturated.
+     */
+    @Test
+    public final void testIncreaseBy_Saturated() {
+        final DefaultValueController controller; // Tested controller
+        final ValueBox box;                      // Controlled value
+
+        box = new DefaultValueBox(Integer.MAX_VALUE - 1);
+        controller = new DefaultValueController(box);
+
+        Assert.assertTrue(controller.isAbleToIncrease());
+        controller.increaseBy(10);
+        Assert.assertEquals(box.getInt(), Integer.MAX_VALUE);
+
+        box.setInt(Integer.MIN_VALUE + 1);
+        controller.decreaseBy(10);
+        Assert.assertEquals(box.getInt(), Integer.MIN_VALUE);
+    }
+
+    /**
+     * Tests that increasing by an amount fires a single event.
+     */
+    @Test
+    public final void testIncreaseBy_SingleEvent() {
+        final DefaultValueController controller; // Tested controller
+        final ValueBox box;                      // Controlled value
+        final IntValueChangeListener listener;   // Mocked listener
+
+        box = new DefaultValueBox(0);
+        controller = new DefaultValueController(box);
+
+        listener = Mockito.mock(IntValueChangeListener.class);
+        box.addIntValueChangeListener(listener);
+
+        controller.increaseBy(5);
+
+        Mockito.verify(listener, Mockito.times(1)).valueChanged(
+                Matchers.any(ValueBox.class), Matchers.anyInt(),
+                Matchers.anyInt());
+        Mockito.verify(listener).valueChanged(box, 0, 5);
+    }
+
+    /**
+     * Tests that the step is used when increasing and decreasing.
+     */
+    @Test
+    public final void testStep() {
+        final DefaultValueController controller; // Tested controller
+        final ValueBox box;                      // Controlled value
+
+        box = new DefaultValueBox(0);
+        controller = new DefaultValueController(box);
+        controller.setInterval(0, 10);
+        controller.setStep(4);
+
+        controller.increaseValue();
+        controller.increaseValue();
+        Assert.assertEquals(box.getInt(), 8);
+
+        Assert.assertFalse(controller.isAbleToIncrease());
+        controller.increaseValue();
+        Assert.assertEquals(box.getInt(), 8);
+
+        controller.decreaseValue();
+        Assert.assertEquals(box.getInt(), 4);
+    }
+
+}
@@ -0,0 +1,219 @@
+/**
+ * Copyright 2015 the original author or authors
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.wandrell.tabletop.testing.stats.test.unit.valuecontroller;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.wandrell.tabletop.stats.controller.DefaultValueController;
+import com.wandrell.tabletop.stats.controller.ValueHistory;
+import com.wandrell.tabletop.stats.valuebox.DefaultValueBox;
+import com.wandrell.tabletop.stats.valuebox.ValueBox;
+
+/**
+ * Unit test for {@link ValueHistory}, checking that the changes made through
+ * controllers can be undone and redone.
+ * <p>
+ * Checks the following cases:
+ * <ol>
+ * <li>Undoing reverts the last change, and redoing applies it again.</li>
+ * <li>Changes made in a group are undone together.</li>
+ * <li>Changes made through several controllers are undone in order.</li>
+ * <li>Recording a change after undoing discards the changes to redo.</li>
+ * <li>Once full, the oldest operation is discarded.</li>
+ * <li>Changes which don't modify the value are not recorded.</li>
+ * </ol>
+ * 
+ * @author Bernardo Martínez Garrido
+ */
+public final class TestValueHistory {
+
+    /**
+     * Constructs a {@code TestValueHistory}.
+     */
+    public TestValueHistory() {
+        super();
+    }
+
+    /**
+     * Tests that once full, the oldest operation is discarded.
+     */
+    @Test
+    public final void testRecord_Full() {
+        final ValueHistory history;              // Tested history
+        final DefaultValueController controller; // Controller
+        final ValueBox box;                      // Controlled value
+
+        history = new ValueHistory(3);
+        box = new DefaultValueBox(0);
+        controller = new DefaultValueController(box);
+        controller.setHistory(history);
+
+        for (int i = 0; i < 5; i++) {
+            controller.increaseValue();
+        }
+
+        Assert.assertEquals(history.getSize(), 3);
+
+        while (history.undo()) {
+            // Undoes all the changes stored
+        }
+
+        Assert.assertEquals(box.getInt(), 2);
+    }
+
+    /**
+     * Tests that changes which don't modify the value are not recorded.
+     */
+    @Test
+    public final void testRecord_Limit() {
+        final ValueHistory history;              // Tested history
+        final DefaultValueController controller; // Controller
+
+        history = new ValueHistory(10);
+        controller = new DefaultValueController(new DefaultValueBox(0));
+        controller.setInterval(0, 1);
+        controller.setHistory(history);
+
+        controller.increaseValue();
+        controller.increaseValue();
+
+        Assert.assertEquals(history.getSize(), 1);
+    }
+
+    /**
+     * Tests that recording a change after undoing discards the changes to
+     * redo.
+     */
+    @Test
+    public final void testRecord_DiscardsRedo() {
+        final ValueHistory history;              // Tested history
+        final DefaultValueController controller; // Controller
+        final ValueBox box;                      // Controlled value
+
+        history = new ValueHistory(10);
+        box = new DefaultValueBox(0);
+        controller = new DefaultValueController(box);
+        controller.setHistory(history);
+
+        controller.increaseValue();
+        controller.increaseValue();
+        history.undo();
+
+        controller.decreaseValue();
+
+        Assert.assertFalse(history.canRedo());
+        Assert.assertEquals(box.getInt(), 0);
+
+        history.undo();
+
+        Assert.assertEquals(box.getInt(), 1);
+    }
+
+    /**
+     * Tests that changes made in a group are undone together.
+     */
+    @Test
+    public final void testUndo_Group() {
+        final ValueHistory history;              // Tested history
+        final DefaultValueController controller; // Controller
+        final ValueBox box;                      // Controlled value
+
+        history = new ValueHistory(10);
+        box = new DefaultValueBox(0);
+        controller = new DefaultValueController(box);
+        controller.setHistory(history);
+
+        controller.increaseValue();
+
+        history.beginGroup();
+        controller.increaseValue();
+        controller.increaseValue();
+        controller.increaseValue();
+        history.endGroup();
+
+        Assert.assertEquals(box.getInt(), 4);
+
+        history.undo();
+
+        Assert.assertEquals(box.getInt(), 1);
+
+        history.redo();
+
+        Assert.assertEquals(box.getInt(), 4);
+    }
+
+    /**
+     * Tests that changes made through several controllers are undone in order.
+     */
+    @Test
+    public final void testUndo_Shared() {
+        final ValueHistory history;                 // Tested history
+        final DefaultValueController controllerStr; // First controller
+        final DefaultValueController controllerDex; // Second controller
+        final ValueBox str;                         // First value
+        final ValueBox dex;                         // Second value
+
+        history = new ValueHistory(10);
+        str = new DefaultValueBox(10);
+        dex = new DefaultValueBox(10);
+        controllerStr = new DefaultValueController(str);
+        controllerDex = new DefaultValueController(dex);
+        controllerStr.setHistory(history);
+        controllerDex.setHistory(history);
+
+        controllerStr.increaseValue();
+        controllerDex.decreaseValue();
+
+        history.undo();
+
+        Assert.assertEquals(str.getInt(), 11);
+        Assert.assertEquals(dex.getInt(), 10);
+
+        history.undo();
+
+        Assert.assertEquals(str.getInt(), 10);
+        Assert.assertFalse(history.canUndo());
+    }
+
+    /**
+     * Tests that undoing reverts the last change, and redoing applies it
+     * again.
+     */
+    @Test
+    public final void testUndoRedo() {
+        final ValueHistory history;              // Tested history
+        final DefaultValueController controller; // Controller
+        final ValueBox box;                      // Controlled value
+
+        history = new ValueHistory(10);
+        box = new DefaultValueBox(5);
+        controller = new DefaultValueController(box);
+        controller.setHistory(history);
+
+        controller.increaseValue();
+        controller.increaseValue();
+
+        Assert.assertTrue(history.undo());
+        Assert.assertEquals(box.getInt(), 6);
+
+        Assert.assertTrue(history.redo());
+        Assert.assertEquals(box.getInt(), 7);
+
+        Assert.assertFalse(history.redo());
+    }
+
+}